@@ -0,0 +1,105 @@
+package com.teleport.tracking.app;
+
+import com.teleport.tracking.domain.SqidsTrackingNumberEncoder;
+import com.teleport.tracking.domain.TrackingServiceImpl;
+import com.teleport.tracking.infrastructure.CachedResponseClock;
+import com.teleport.tracking.infrastructure.InMemoryRedisService;
+import com.teleport.tracking.infrastructure.LogRateLimiter;
+import com.teleport.tracking.infrastructure.RedisTrackingNumberProvider;
+import com.teleport.tracking.presentation.GlobalExceptionHandler;
+import com.teleport.tracking.presentation.TrackingRequest;
+import com.teleport.tracking.presentation.TrackingResponse;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The request path below the controller: parsing the query parameters into a
+ * {@link TrackingRequest} and validating it, and the whole use case from the raw
+ * parameters to the {@link TrackingResponse}, with Redis replaced by an in-memory
+ * counter and logging going to a file. {@link #halfInvalid} mixes in invalid
+ * requests, answered as {@link GlobalExceptionHandler} answers them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GetNextTrackingNumberUseCaseBenchmark {
+
+    @Param({"compiled", "bean"})
+    public String validation;
+
+    private TrackingRequestValidator validator;
+    private GetNextTrackingNumberUseCase useCase;
+    private GlobalExceptionHandler exceptionHandler;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        validator = "bean".equals(validation)
+                ? new BeanTrackingRequestValidator(Validation.buildDefaultValidatorFactory().getValidator())
+                : new CompiledTrackingRequestValidator();
+        TrackingServiceImpl trackingService = new TrackingServiceImpl(
+                new RedisTrackingNumberProvider(new InMemoryRedisService()), new SqidsTrackingNumberEncoder());
+        useCase = new GetNextTrackingNumberUseCase(trackingService, validator,
+                new CachedResponseClock(CachedResponseClock.Precision.MILLIS, Clock.systemUTC()),
+                null, TrackingNamespace.NONE, null, false, null);
+        exceptionHandler = new GlobalExceptionHandler(() -> new LogRateLimiter(10));
+    }
+
+    private static TrackingRequest parse() {
+        return parse("MY", "2.211");
+    }
+
+    private static TrackingRequest parse(String origin, String weight) {
+        return TrackingRequest.fromRequest(origin, "ID", weight, "2018-11-20T19:29:32 08:00",
+                "4dcccfe6-fc76-4adc-84d0-067982c24805", "RedBox Logistics", "redbox-logistics");
+    }
+
+    @Benchmark
+    public String parseAndValidate() {
+        return validator.validate(parse());
+    }
+
+    @Benchmark
+    public TrackingResponse endToEnd() {
+        return useCase.generateTrackingNumber(parse()).block();
+    }
+
+    /**
+     * Every other request is invalid: half of those fail validation, the other half
+     * fail to parse their weight.
+     */
+    @Benchmark
+    public Object halfInvalid() {
+        int kind = next++ & 3;
+        try {
+            TrackingRequest request = switch (kind) {
+                case 1 -> parse("MYS", "2.211");
+                case 3 -> parse("MY", "heavy");
+                default -> parse();
+            };
+            return useCase.generateTrackingNumber(request)
+                    .<Object>map(response -> response)
+                    .onErrorResume(Exception.class, ex -> Mono.just(exceptionHandler.handle(ex)))
+                    .block();
+        } catch (IllegalArgumentException ex) {
+            return exceptionHandler.handle(ex);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.teleport.tracking.app;
+
+import com.teleport.tracking.presentation.TrackingRequest;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of validating one {@link TrackingRequest} with Bean Validation and with the
+ * compiled validator, for a valid request and for one that breaks three constraints.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackingRequestValidatorBenchmark {
+
+    @Param({"bean", "compiled"})
+    public String mode;
+
+    @Param({"true", "false"})
+    public boolean valid;
+
+    private TrackingRequestValidator validator;
+    private TrackingRequest request;
+
+    @Setup
+    public void setUp() {
+        validator = "bean".equals(mode)
+                ? new BeanTrackingRequestValidator(Validation.buildDefaultValidatorFactory().getValidator())
+                : new CompiledTrackingRequestValidator();
+        request = valid
+                ? new TrackingRequest("MY", "ID", new BigDecimal("2.211"), OffsetDateTime.parse("2018-11-20T19:29:32+08:00"),
+                        "4dcccfe6-fc76-4adc-84d0-067982c24805", "RedBox Logistics", "redbox-logistics")
+                : new TrackingRequest("my", "ID", new BigDecimal("2.2111"), OffsetDateTime.parse("2018-11-20T19:29:32+08:00"),
+                        "4dcccfe6-fc76-4adc-84d0-067982c2480", "RedBox Logistics", "redbox-logistics");
+    }
+
+    @Benchmark
+    public String validate() {
+        return validator.validate(request);
+    }
+}
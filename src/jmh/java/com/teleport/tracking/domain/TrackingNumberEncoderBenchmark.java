@@ -0,0 +1,46 @@
+package com.teleport.tracking.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding cost per tracking number for the Sqids path and the keyed base-36
+ * encoder, fed with increasing counters as Redis would issue them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackingNumberEncoderBenchmark {
+
+    @Param({"sqids", "base36"})
+    public String encoder;
+
+    private TrackingNumberEncoder trackingNumberEncoder;
+    private long counter = 1_000_000L;
+
+    @Setup
+    public void setUp() {
+        trackingNumberEncoder = "base36".equals(encoder)
+                ? new Base36TrackingNumberEncoder(0x5DEECE66D2F1A3B7L)
+                : new SqidsTrackingNumberEncoder();
+    }
+
+    @Benchmark
+    public String encode() {
+        return trackingNumberEncoder.encode(counter++);
+    }
+}
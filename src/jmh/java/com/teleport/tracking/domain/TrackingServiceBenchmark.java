@@ -0,0 +1,48 @@
+package com.teleport.tracking.domain;
+
+import com.teleport.tracking.infrastructure.InMemoryRedisService;
+import com.teleport.tracking.infrastructure.RedisTrackingNumberProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TrackingServiceImpl#generateTrackingNumber()} with the provider reduced to
+ * an in-memory lease, so the figure is the counter plus the encoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackingServiceBenchmark {
+
+    @Param({"sqids", "base36"})
+    public String encoder;
+
+    private TrackingServiceImpl trackingService;
+
+    @Setup
+    public void setUp() {
+        TrackingNumberEncoder trackingNumberEncoder = "base36".equals(encoder)
+                ? new Base36TrackingNumberEncoder(0x5DEECE66D2F1A3B7L)
+                : new SqidsTrackingNumberEncoder();
+        trackingService = new TrackingServiceImpl(new RedisTrackingNumberProvider(new InMemoryRedisService()), trackingNumberEncoder);
+    }
+
+    @Benchmark
+    public String generateTrackingNumber() {
+        return trackingService.generateTrackingNumber().block();
+    }
+}
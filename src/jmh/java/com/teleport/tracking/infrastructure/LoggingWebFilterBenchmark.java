@@ -0,0 +1,113 @@
+package com.teleport.tracking.infrastructure;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of {@link LoggingWebFilter} on one request: the filter around a chain
+ * that only sets the status, against the bare chain. Both build the same mock
+ * exchange, so the difference is the filter. {@code config} compares the filter
+ * this one replaced ({@code legacy}: a {@code UUID.randomUUID()} trace id in the
+ * MDC and two lines), the split lines, one combined line, a 1% sample and logging
+ * switched off.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingWebFilterBenchmark {
+
+    private static final String URI = "/next-tracking-number?origin_country_id=MY&destination_country_id=ID&weight=2.211"
+            + "&created_at=2018-11-20T19:29:32%2B08:00&customer_id=4dcccfe6-fc76-4adc-84d0-067982c24805"
+            + "&customer_name=RedBox%20Logistics&customer_slug=redbox-logistics";
+
+    @Param({"legacy", "split", "combined", "sampled", "off"})
+    private String config;
+
+    private WebFilter filter;
+    private final WebFilterChain chain = exchange -> {
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+        return Mono.empty();
+    };
+
+    @Setup
+    public void setUp() {
+        filter = switch (config) {
+            case "legacy" -> new LegacyLoggingWebFilter();
+            case "split" -> new LoggingWebFilter(LoggingWebFilter.Mode.SPLIT, 1.0, new LogRateLimiter(0));
+            case "combined" -> new LoggingWebFilter(LoggingWebFilter.Mode.COMBINED, 1.0, new LogRateLimiter(0));
+            case "sampled" -> new LoggingWebFilter(LoggingWebFilter.Mode.COMBINED, 0.01, new LogRateLimiter(0));
+            case "off" -> new LoggingWebFilter(LoggingWebFilter.Mode.OFF, 1.0, new LogRateLimiter(0));
+            default -> throw new IllegalArgumentException(config);
+        };
+    }
+
+    private static ServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(URI));
+    }
+
+    @Benchmark
+    public Void baseline() {
+        return chain.filter(exchange()).block();
+    }
+
+    @Benchmark
+    public Void filtered() {
+        return filter.filter(exchange(), chain).block();
+    }
+
+    /**
+     * The logging filter as it was before the access log modes, kept here to measure against.
+     */
+    @Slf4j
+    static class LegacyLoggingWebFilter implements WebFilter {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+            String method = exchange.getRequest().getMethod().name();
+            String path = exchange.getRequest().getURI().toString();
+            String traceId = resolveOrGenerateTraceId(exchange);
+            MDC.put(LoggingWebFilter.TRACE_ID_KEY, traceId);
+            log.info("Incoming request: {} {}", method, path);
+
+            ServerHttpResponse originalResponse = exchange.getResponse();
+
+            return chain.filter(exchange)
+                    .doOnSuccess(aVoid -> {
+                        int status = originalResponse.getStatusCode() != null ? originalResponse.getStatusCode().value() : 0;
+                        log.info("Outgoing response: {} {} - Path: {}", method, status, path);
+                        MDC.remove(LoggingWebFilter.TRACE_ID_KEY);
+                    })
+                    .doOnError(e -> MDC.remove(LoggingWebFilter.TRACE_ID_KEY));
+        }
+
+        private String resolveOrGenerateTraceId(ServerWebExchange exchange) {
+            String traceId = exchange.getRequest().getHeaders().getFirst(LoggingWebFilter.TRACE_ID_HEADER);
+            return (traceId == null || traceId.isEmpty()) ? UUID.randomUUID().toString() : traceId;
+        }
+    }
+}
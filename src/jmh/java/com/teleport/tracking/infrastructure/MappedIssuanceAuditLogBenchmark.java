@@ -0,0 +1,71 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.app.IssuanceAuditLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Appends per second to {@link MappedIssuanceAuditLog}, from one thread and from
+ * one thread per CPU, including segment rollover. Segments go to a temporary
+ * directory that is deleted afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappedIssuanceAuditLogBenchmark {
+
+    private static final long CUSTOMER_HASH = IssuanceAuditLog.customerHash("4dcccfe6-fc76-4adc-84d0-067982c24805");
+    private static final int COUNTRY_PAIR = IssuanceAuditLog.countryPair("MY", "ID");
+
+    private final AtomicLong counter = new AtomicLong();
+    private Path directory;
+    private MappedIssuanceAuditLog auditLog;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("audit-bench");
+        auditLog = new MappedIssuanceAuditLog(directory, 2 * 1024 * 1024);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        auditLog.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void append() {
+        auditLog.append(counter.incrementAndGet(), System.currentTimeMillis(), CUSTOMER_HASH, COUNTRY_PAIR);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void appendContended() {
+        auditLog.append(counter.incrementAndGet(), System.currentTimeMillis(), CUSTOMER_HASH, COUNTRY_PAIR);
+    }
+}
@@ -0,0 +1,49 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.app.ResponseClock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one response timestamp: formatting on every call, as the use cases
+ * used to, against the cached clock at each precision.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ResponseClockBenchmark {
+
+    @Param({"formatted", "precise", "millis", "seconds"})
+    public String mode;
+
+    private ResponseClock clock;
+
+    @Setup
+    public void setUp() {
+        clock = "formatted".equals(mode)
+                ? ResponseClock.precise()
+                : new CachedResponseClock(CachedResponseClock.Precision.valueOf(mode.toUpperCase()), Clock.systemUTC());
+    }
+
+    @Benchmark
+    public String now() {
+        return clock.now();
+    }
+}
@@ -0,0 +1,67 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.domain.TrackingNumberProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single shared lease against striped leases as the number of
+ * issuing threads grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackingNumberProviderBenchmark {
+
+    @Param({"single", "striped"})
+    public String mode;
+
+    private TrackingNumberProvider provider;
+
+    @Setup
+    public void setUp() {
+        RedisTrackingNumberProvider redisProvider = new RedisTrackingNumberProvider(new InMemoryRedisService());
+        provider = "striped".equals(mode)
+                ? new StripedTrackingNumberProvider(redisProvider, 0, 256)
+                : redisProvider;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Long threads01() {
+        return provider.nextCounter().block();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Long threads04() {
+        return provider.nextCounter().block();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Long threads16() {
+        return provider.nextCounter().block();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Long threads64() {
+        return provider.nextCounter().block();
+    }
+}
@@ -0,0 +1,45 @@
+package com.teleport.tracking.presentation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TrackingRequest#fromRequest} against building the {@link BigDecimal} and
+ * {@link OffsetDateTime} up front, as it used to; compare {@code gc.alloc.rate.norm}
+ * for the allocation per request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackingRequestParsingBenchmark {
+
+    public String weight = "2.211";
+    // as it arrives when the client does not URL-encode the '+'
+    public String createdAt = "2018-11-20T19:29:32 08:00";
+
+    @Benchmark
+    public TrackingRequest scanned() {
+        return TrackingRequest.fromRequest("MY", "ID", weight, createdAt,
+                "4dcccfe6-fc76-4adc-84d0-067982c24805", "RedBox Logistics", "redbox-logistics");
+    }
+
+    @Benchmark
+    public TrackingRequest eager() {
+        return new TrackingRequest("MY", "ID", new BigDecimal(weight), OffsetDateTime.parse(createdAt.replace(" ", "+")),
+                "4dcccfe6-fc76-4adc-84d0-067982c24805", "RedBox Logistics", "redbox-logistics");
+    }
+}
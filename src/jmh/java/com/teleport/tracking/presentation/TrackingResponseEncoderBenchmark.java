@@ -0,0 +1,75 @@
+package com.teleport.tracking.presentation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teleport.tracking.app.ResponseClock;
+import com.teleport.tracking.infrastructure.CachedResponseClock;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Clock;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing one {@link TrackingResponse} into a pooled Netty buffer, as the server
+ * does: the Jackson encoder against the byte-template encoder. The timestamp comes
+ * from the millisecond clock, so consecutive responses mostly share it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class TrackingResponseEncoderBenchmark {
+
+    private static final ResolvableType TYPE = ResolvableType.forClass(TrackingResponse.class);
+
+    @Param({"jackson", "template"})
+    public String encoder;
+
+    private Encoder<Object> jackson;
+    private TrackingResponseEncoder template;
+    private NettyDataBufferFactory bufferFactory;
+    private ResponseClock clock;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        jackson = new Jackson2JsonEncoder(objectMapper);
+        template = new TrackingResponseEncoder(objectMapper);
+        bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+        clock = new CachedResponseClock(CachedResponseClock.Precision.MILLIS, Clock.systemUTC());
+    }
+
+    @Benchmark
+    public int encode() {
+        TrackingResponse response = new TrackingResponse("8F3K2M9XQ1ZP7RTA", clock.now());
+        DataBuffer buffer = "template".equals(encoder)
+                ? template.encodeValue(response, bufferFactory, TYPE, MediaType.APPLICATION_JSON, Collections.emptyMap())
+                : jackson.encodeValue(response, bufferFactory, TYPE, MediaType.APPLICATION_JSON, Collections.emptyMap());
+        int written = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return written;
+    }
+}
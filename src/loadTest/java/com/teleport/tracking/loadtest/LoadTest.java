@@ -0,0 +1,200 @@
+package com.teleport.tracking.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.teleport.tracking.TrackingIdGeneratorApplication;
+import com.teleport.tracking.infrastructure.InMemoryRedisService;
+import com.teleport.tracking.infrastructure.RedisConstants;
+import com.teleport.tracking.infrastructure.RedisService;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Boots {@code loadtest.instances} copies of the application in this JVM against
+ * one {@link InMemoryRedisService} and drives {@code GET /next-tracking-number}
+ * at a fixed arrival rate, spread round-robin over the instances. Requests are
+ * sent on schedule whether or not earlier ones have completed (an open model), and
+ * latency is measured from the scheduled send time, so a stalled server shows up
+ * in the percentiles instead of slowing the generator down.
+ * <p>
+ * Reports throughput, the latency distribution and whether every tracking number
+ * issued was unique, and exits non-zero on duplicates. Run with
+ * {@code ./gradlew loadTest -Dloadtest.rate=5000 -Dloadtest.instances=3}.
+ */
+public final class LoadTest {
+
+    private static final String QUERY = "/next-tracking-number?origin_country_id=MY&destination_country_id=ID&weight=2.211"
+            + "&created_at=2018-11-20T19:29:32%2B08:00&customer_id=4dcccfe6-fc76-4adc-84d0-067982c24805"
+            + "&customer_name=RedBox%20Logistics&customer_slug=redbox-logistics";
+
+    private final Settings settings;
+    private final Histogram latency = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3);
+    private final Set<String> issued = ConcurrentHashMap.newKeySet();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private LoadTest(Settings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) {
+        Settings settings = Settings.fromSystemProperties();
+        InMemoryRedisService redis = new InMemoryRedisService();
+        redis.setLatency(settings.redisLatency());
+        List<ConfigurableApplicationContext> instances = new ArrayList<>();
+        boolean unique;
+        try {
+            for (int i = 0; i < settings.instances(); i++) {
+                instances.add(start(redis, settings));
+            }
+            unique = new LoadTest(settings).run(instances, redis);
+        } finally {
+            instances.forEach(ConfigurableApplicationContext::close);
+        }
+        System.exit(unique ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext start(InMemoryRedisService redis, Settings settings) {
+        return new SpringApplicationBuilder(TrackingIdGeneratorApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        "management.health.redis.enabled=false",
+                        "logging.level.root=" + settings.logLevel())
+                .initializers(context -> ((GenericApplicationContext) context).registerBean(
+                        "inMemoryRedisService", RedisService.class, () -> redis, bd -> bd.setPrimary(true)))
+                .run("--tracking.provider.mode=" + settings.providerMode());
+    }
+
+    private boolean run(List<ConfigurableApplicationContext> instances, InMemoryRedisService redis) {
+        ConnectionProvider connections = ConnectionProvider.builder("load-test")
+                .maxConnections(settings.maxInFlight())
+                .pendingAcquireMaxCount(-1)
+                .build();
+        HttpClient httpClient = HttpClient.create(connections);
+        WebClient[] clients = instances.stream()
+                .map(context -> WebClient.builder()
+                        .baseUrl("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort())
+                        .clientConnector(new ReactorClientHttpConnector(httpClient))
+                        .build())
+                .toArray(WebClient[]::new);
+
+        System.out.printf("Driving %d instance(s) at %d req/s: %ds warm-up, %ds measured%n",
+                clients.length, settings.rate(), settings.warmup().toSeconds(), settings.duration().toSeconds());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / settings.rate();
+        long start = System.nanoTime();
+        long measureFrom = start + settings.warmup().toNanos();
+        long end = measureFrom + settings.duration().toNanos();
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = intended >= measureFrom;
+            if (inFlight.get() >= settings.maxInFlight()) {
+                if (measured) {
+                    dropped.increment();
+                }
+                continue;
+            }
+            inFlight.incrementAndGet();
+            clients[(int) (i % clients.length)].get().uri(QUERY)
+                    .retrieve()
+                    .bodyToMono(JsonNode.class)
+                    .map(body -> body.path("tracking_number").asText())
+                    .filter(trackingNumber -> !trackingNumber.isEmpty())
+                    .switchIfEmpty(Mono.error(new IllegalStateException("response without tracking_number")))
+                    .subscribe(
+                            trackingNumber -> onResponse(trackingNumber, intended, measured),
+                            error -> onError(measured));
+        }
+        long sendingDone = System.nanoTime();
+        while (inFlight.get() > 0 && System.nanoTime() - sendingDone < TimeUnit.SECONDS.toNanos(30)) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        connections.dispose();
+        return report(redis);
+    }
+
+    private void onResponse(String trackingNumber, long intended, boolean measured) {
+        long elapsed = System.nanoTime() - intended;
+        if (!issued.add(trackingNumber)) {
+            duplicates.increment();
+        }
+        if (measured) {
+            succeeded.increment();
+            latency.recordValue(Math.min(elapsed, latency.getHighestTrackableValue()));
+        }
+        inFlight.decrementAndGet();
+    }
+
+    private void onError(boolean measured) {
+        if (measured) {
+            failed.increment();
+        }
+        inFlight.decrementAndGet();
+    }
+
+    private boolean report(InMemoryRedisService redis) {
+        double seconds = settings.duration().toNanos() / 1e9;
+        System.out.println();
+        System.out.printf("requests  ok=%d failed=%d dropped=%d (in flight at the end: %d)%n",
+                succeeded.sum(), failed.sum(), dropped.sum(), inFlight.get());
+        System.out.printf("throughput %.0f req/s (target %d)%n", succeeded.sum() / seconds, settings.rate());
+        System.out.printf("latency ms p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+                percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(99.9),
+                latency.getMaxValue() / 1e6);
+        System.out.printf("redis     INCRBY calls=%d counter=%d%n",
+                redis.getIncrements(), redis.counter(RedisConstants.TRACKING_COUNTER_KEY));
+        System.out.printf("uniqueness %d tracking numbers issued, %d duplicates%n", issued.size(), duplicates.sum());
+        System.out.println();
+        System.out.println("Latency distribution (ms):");
+        latency.outputPercentileDistribution(System.out, 1e6);
+        return duplicates.sum() == 0;
+    }
+
+    private double percentileMillis(double percentile) {
+        return latency.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    private record Settings(int instances, int rate, Duration warmup, Duration duration, int maxInFlight,
+                            Duration redisLatency, String providerMode, String logLevel) {
+
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("loadtest.instances", 2),
+                    Integer.getInteger("loadtest.rate", 2_000),
+                    Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 5)),
+                    Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 30)),
+                    Integer.getInteger("loadtest.max-in-flight", 1_024),
+                    Duration.ofMillis(Long.getLong("loadtest.redis-latency-ms", 0)),
+                    System.getProperty("loadtest.provider-mode", "single"),
+                    System.getProperty("loadtest.log-level", "WARN"));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.teleport.tracking.app;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Decides whether a tracking number is generated now, later or not at all, so
+ * that a slow counter source does not pile up requests without bound.
+ */
+public interface AdmissionControl {
+
+    /**
+     * Subscribes to {@code work} once it is admitted. A request that cannot be
+     * admitted is signalled as a {@link RequestRejectedException} instead.
+     */
+    <T> Mono<T> admit(Mono<T> work);
+}
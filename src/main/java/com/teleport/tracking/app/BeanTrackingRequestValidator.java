@@ -0,0 +1,69 @@
+package com.teleport.tracking.app;
+
+import com.teleport.tracking.presentation.TrackingRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Evaluates the Bean Validation annotations on {@link TrackingRequest}. The order
+ * of the messages follows the order of the violation set and is not stable.
+ */
+@Component
+@ConditionalOnProperty(name = "tracking.validation.mode", havingValue = "bean")
+public class BeanTrackingRequestValidator implements TrackingRequestValidator {
+
+    private static final Map<String, Integer> FIELD_BITS = Map.of(
+            "originCountryId", 1,
+            "destinationCountryId", 1 << 1,
+            "weight", 1 << 2,
+            "createdAt", 1 << 3,
+            "customerId", 1 << 4,
+            "customerName", 1 << 5,
+            "customerSlug", 1 << 6);
+
+    private final Validator validator;
+
+    public BeanTrackingRequestValidator(Validator validator) {
+        this.validator = validator;
+    }
+
+    @Override
+    public String validate(TrackingRequest trackingRequest) {
+        Set<ConstraintViolation<TrackingRequest>> violations = validator.validate(trackingRequest);
+        return violations.isEmpty() ? null : message(violations);
+    }
+
+    @Override
+    public int invalidFields(TrackingRequest trackingRequest) {
+        return fields(validator.validate(trackingRequest));
+    }
+
+    @Override
+    public InvalidTrackingRequestException reject(TrackingRequest trackingRequest) {
+        Set<ConstraintViolation<TrackingRequest>> violations = validator.validate(trackingRequest);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return new InvalidTrackingRequestException(message(violations), fields(violations));
+    }
+
+    private static String message(Set<ConstraintViolation<TrackingRequest>> violations) {
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .reduce((m1, m2) -> m1 + ". " + m2)
+                .orElse("Validation failed");
+    }
+
+    private static int fields(Set<ConstraintViolation<TrackingRequest>> violations) {
+        int fields = 0;
+        for (ConstraintViolation<TrackingRequest> violation : violations) {
+            fields |= FIELD_BITS.getOrDefault(String.valueOf(violation.getPropertyPath()), 0);
+        }
+        return fields;
+    }
+}
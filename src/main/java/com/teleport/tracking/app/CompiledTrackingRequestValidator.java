@@ -0,0 +1,220 @@
+package com.teleport.tracking.app;
+
+import com.teleport.tracking.presentation.TrackingRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hand-written equivalent of the Bean Validation annotations on
+ * {@link TrackingRequest}: character-class scans instead of regexes and no
+ * reflection. The weight and {@code created_at} checks use the outcomes
+ * {@link TrackingRequest} worked out while scanning them, so neither value is
+ * materialised. Violations are collected as a bit mask, and the message and the
+ * rejection for every mask are built once up front, so validating a request, valid
+ * or not, allocates nothing.
+ * <p>
+ * Produces the same messages as {@link BeanTrackingRequestValidator}, in field
+ * declaration order. Any change to the annotations must be mirrored here; the
+ * parity test catches drift.
+ */
+@Component
+@ConditionalOnProperty(name = "tracking.validation.mode", havingValue = "compiled", matchIfMissing = true)
+public class CompiledTrackingRequestValidator implements TrackingRequestValidator {
+
+    static final int ORIGIN_COUNTRY_ID = 1;
+    static final int DESTINATION_COUNTRY_ID = 1 << 1;
+    static final int WEIGHT_MIN = 1 << 2;
+    static final int WEIGHT_DIGITS = 1 << 3;
+    static final int CREATED_AT_REQUIRED = 1 << 4;
+    static final int CUSTOMER_ID_REQUIRED = 1 << 5;
+    static final int CUSTOMER_ID_UUID = 1 << 6;
+    static final int CUSTOMER_NAME_REQUIRED = 1 << 7;
+    static final int CUSTOMER_SLUG = 1 << 8;
+
+    private static final String[] VIOLATION_MESSAGES = {
+            "origin_country_id must be ISO 3166-1 uppercase alpha-2",
+            "destination_country_id must be ISO 3166-1 uppercase alpha-2",
+            "weight too low, must be at least 0.001",
+            "weight can be up to 3 decimal places",
+            "created_at is required",
+            "customer_id is required",
+            "customer_id must be a valid UUID",
+            "customer_name is required",
+            "customer_slug must be kebab-case",
+    };
+    private static final String[] MESSAGES = new String[1 << VIOLATION_MESSAGES.length];
+    private static final InvalidTrackingRequestException[] REJECTIONS =
+            new InvalidTrackingRequestException[MESSAGES.length];
+
+    static {
+        for (int mask = 1; mask < MESSAGES.length; mask++) {
+            StringBuilder sb = new StringBuilder();
+            for (int bit = 0; bit < VIOLATION_MESSAGES.length; bit++) {
+                if ((mask & (1 << bit)) != 0) {
+                    if (!sb.isEmpty()) {
+                        sb.append(". ");
+                    }
+                    sb.append(VIOLATION_MESSAGES[bit]);
+                }
+            }
+            MESSAGES[mask] = sb.toString();
+            REJECTIONS[mask] = new InvalidTrackingRequestException(MESSAGES[mask], fields(mask));
+        }
+    }
+
+    @Override
+    public String validate(TrackingRequest trackingRequest) {
+        return message(violations(trackingRequest));
+    }
+
+    @Override
+    public int invalidFields(TrackingRequest trackingRequest) {
+        return fields(violations(trackingRequest));
+    }
+
+    @Override
+    public InvalidTrackingRequestException reject(TrackingRequest trackingRequest) {
+        return REJECTIONS[violations(trackingRequest)];
+    }
+
+    /**
+     * Folds a violation mask into a {@link TrackingRequestValidator#FIELDS} mask.
+     */
+    static int fields(int violations) {
+        int fields = violations & (ORIGIN_COUNTRY_ID | DESTINATION_COUNTRY_ID);
+        if ((violations & (WEIGHT_MIN | WEIGHT_DIGITS)) != 0) {
+            fields |= 1 << 2;
+        }
+        if ((violations & CREATED_AT_REQUIRED) != 0) {
+            fields |= 1 << 3;
+        }
+        if ((violations & (CUSTOMER_ID_REQUIRED | CUSTOMER_ID_UUID)) != 0) {
+            fields |= 1 << 4;
+        }
+        if ((violations & CUSTOMER_NAME_REQUIRED) != 0) {
+            fields |= 1 << 5;
+        }
+        if ((violations & CUSTOMER_SLUG) != 0) {
+            fields |= 1 << 6;
+        }
+        return fields;
+    }
+
+    /**
+     * @return the message for a violation mask, or {@code null} for {@code 0}
+     */
+    static String message(int violations) {
+        return MESSAGES[violations];
+    }
+
+    /**
+     * @return a bit mask of the violated constraints, {@code 0} if the request is valid
+     */
+    int violations(TrackingRequest r) {
+        int violations = 0;
+        if (r.originCountryId != null && !isCountryCode(r.originCountryId)) {
+            violations |= ORIGIN_COUNTRY_ID;
+        }
+        if (r.destinationCountryId != null && !isCountryCode(r.destinationCountryId)) {
+            violations |= DESTINATION_COUNTRY_ID;
+        }
+        if (r.weightBelowMinimum()) {
+            violations |= WEIGHT_MIN;
+        }
+        if (r.weightExceedsDigits()) {
+            violations |= WEIGHT_DIGITS;
+        }
+        if (!r.hasCreatedAt()) {
+            violations |= CREATED_AT_REQUIRED;
+        }
+        String customerId = r.customerId;
+        if (isBlank(customerId)) {
+            violations |= CUSTOMER_ID_REQUIRED;
+        }
+        if (customerId != null && !isUuid(customerId)) {
+            violations |= CUSTOMER_ID_UUID;
+        }
+        if (isBlank(r.customerName)) {
+            violations |= CUSTOMER_NAME_REQUIRED;
+        }
+        if (r.customerSlug != null && !isKebabCase(r.customerSlug)) {
+            violations |= CUSTOMER_SLUG;
+        }
+        return violations;
+    }
+
+    /**
+     * {@code ^[A-Z]{2}$}
+     */
+    static boolean isCountryCode(String s) {
+        return s.length() == 2 && isUpper(s.charAt(0)) && isUpper(s.charAt(1));
+    }
+
+    /**
+     * {@code ^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$}
+     */
+    static boolean isUuid(String s) {
+        if (s.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = s.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!isHex(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@code ^[a-z0-9]+(-[a-z0-9]+)*$}
+     */
+    static boolean isKebabCase(String s) {
+        int length = s.length();
+        if (length == 0) {
+            return false;
+        }
+        boolean afterDash = true;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c == '-') {
+                if (afterDash) {
+                    return false;
+                }
+                afterDash = true;
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                afterDash = false;
+            } else {
+                return false;
+            }
+        }
+        return !afterDash;
+    }
+
+    /**
+     * Same as {@code @NotBlank}: {@code null}, or nothing left after {@link String#trim()}.
+     */
+    static boolean isBlank(String s) {
+        if (s == null) {
+            return true;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isUpper(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+}
@@ -2,45 +2,165 @@ package com.teleport.tracking.app;
 
 import com.teleport.tracking.presentation.TrackingRequest;
 import com.teleport.tracking.presentation.TrackingResponse;
-import jakarta.validation.ConstraintViolation;
-import jakarta.validation.Validator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Mono;
 
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 @Component
 @Slf4j
-public class GetNextTrackingNumberUseCase {
+public class GetNextTrackingNumberUseCase implements MeterBinder {
 
     TrackingService trackingService;
-    private final Validator validator;
+    private final TrackingRequestValidator validator;
+    private final ResponseClock clock;
+    private final IssuanceAuditLog auditLog;
+    private final TrackingNamespace namespace;
+    private final IdempotencyStore idempotencyStore;
+    private final boolean headerOnly;
+    private final AdmissionControl admission;
+    private final LongAdder replays = new LongAdder();
+    private volatile Counter[] validationFailures;
 
 
     @Autowired
-    public GetNextTrackingNumberUseCase(TrackingService trackingService, Validator validator) {
+    public GetNextTrackingNumberUseCase(TrackingService trackingService, TrackingRequestValidator validator, ResponseClock clock,
+                                        ObjectProvider<IssuanceAuditLog> auditLog,
+                                        @Value("${tracking.namespace.key:none}") String namespaceKey,
+                                        ObjectProvider<IdempotencyStore> idempotencyStore,
+                                        @Value("${tracking.idempotency.header-only:false}") boolean headerOnly,
+                                        ObjectProvider<AdmissionControl> admission) {
+        this(trackingService, validator, clock, auditLog.getIfAvailable(), TrackingNamespace.of(namespaceKey),
+                idempotencyStore.getIfAvailable(), headerOnly, admission.getIfAvailable());
+    }
+
+    /**
+     * @param auditLog         receives every issued tracking number, or {@code null} for none
+     * @param namespace        picks the counter namespace of each request
+     * @param idempotencyStore replays the tracking number of a repeated request, or {@code null} to always issue
+     * @param headerOnly       whether only requests with an {@code Idempotency-Key} are deduplicated,
+     *                         rather than every request by its fields
+     * @param admission        admits requests that issue a new tracking number, or {@code null} to admit all
+     */
+    public GetNextTrackingNumberUseCase(TrackingService trackingService, TrackingRequestValidator validator, ResponseClock clock,
+                                        IssuanceAuditLog auditLog, TrackingNamespace namespace,
+                                        IdempotencyStore idempotencyStore, boolean headerOnly, AdmissionControl admission) {
         this.trackingService = trackingService;
         this.validator = validator;
+        this.clock = clock;
+        this.auditLog = auditLog;
+        this.namespace = namespace;
+        this.idempotencyStore = idempotencyStore;
+        this.headerOnly = headerOnly;
+        this.admission = admission;
     }
 
     public Mono<TrackingResponse> generateTrackingNumber(TrackingRequest trackingRequest) {
-        Set<ConstraintViolation<TrackingRequest>> violations = validator.validate(trackingRequest);
-        if (!violations.isEmpty()) {
-            String errorMsg = violations.stream()
-                    .map(ConstraintViolation::getMessage)
-                    .reduce((m1, m2) -> m1 + ". " + m2)
-                    .orElse("Validation failed");
-            throw new ServerWebInputException(errorMsg);
-        }
-        return trackingService.generateTrackingNumber()
-                .map(id -> {
-                    log.info("Generated tracking number: {}", id);
-                    return new TrackingResponse(id, OffsetDateTime.now(java.time.ZoneOffset.UTC).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
-                });
+        return generateTrackingNumber(trackingRequest, null);
+    }
+
+    /**
+     * An invalid request is signalled as an {@link InvalidTrackingRequestException}, not thrown,
+     * and a request shed by the admission control as a {@link RequestRejectedException}.
+     * Replays of an earlier request are never shed.
+     *
+     * @param idempotencyKey the request's {@code Idempotency-Key} header, or {@code null}
+     */
+    public Mono<TrackingResponse> generateTrackingNumber(TrackingRequest trackingRequest, String idempotencyKey) {
+        InvalidTrackingRequestException rejection = validator.reject(trackingRequest);
+        if (rejection != null) {
+            countValidationFailures(rejection.getInvalidFields());
+            return Mono.error(rejection);
+        }
+        if (idempotencyStore == null || (idempotencyKey == null && headerOnly)) {
+            return issue(trackingRequest).map(issued -> respond(trackingRequest, issued));
+        }
+        long fingerprint = idempotencyKey != null
+                ? TrackingRequest.fingerprint(trackingRequest.customerId, idempotencyKey)
+                : trackingRequest.fingerprint();
+        long previous = idempotencyStore.find(fingerprint);
+        if (previous != IdempotencyStore.NONE) {
+            replays.increment();
+            return Mono.just(new TrackingResponse(trackingService.trackingNumberOf(previous).trackingNumber(), clock.now()));
+        }
+        return issue(trackingRequest).flatMap(issued -> idempotencyStore.claim(fingerprint, issued.counter())
+                .map(owner -> {
+                    if (owner == issued.counter()) {
+                        return respond(trackingRequest, issued);
+                    }
+                    // a concurrent duplicate was issued first; ours is burned
+                    replays.increment();
+                    return new TrackingResponse(trackingService.trackingNumberOf(owner).trackingNumber(), clock.now());
+                }));
+    }
+
+    /**
+     * Requests answered with the tracking number issued for an earlier identical request.
+     */
+    public long getReplays() {
+        return replays.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Counter[] counters = new Counter[TrackingRequestValidator.FIELDS.size()];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = Counter.builder("tracking.validation.failures")
+                    .description("Rejected requests by invalid field")
+                    .tag("field", TrackingRequestValidator.FIELDS.get(i))
+                    .register(registry);
+        }
+        validationFailures = counters;
+        FunctionCounter.builder("tracking.idempotency.replays", replays, LongAdder::sum)
+                .description("Repeated requests answered with the tracking number issued the first time")
+                .register(registry);
+    }
+
+    private Mono<IssuedTrackingNumber> issue(TrackingRequest trackingRequest) {
+        String counterNamespace = namespace.resolve(trackingRequest);
+        // deferred: a service may take its number as soon as it is asked, even if the request is then shed
+        Mono<IssuedTrackingNumber> issued = admission == null
+                ? issue(counterNamespace)
+                : admission.admit(Mono.defer(() -> issue(counterNamespace)));
+        if (!log.isDebugEnabled()) {
+            return issued;
+        }
+        return Mono.deferContextual(context -> issued.doOnNext(number -> log.debug("Generated tracking number: {} {}",
+                number.trackingNumber(), TraceContext.logArgument(context))));
+    }
+
+    private Mono<IssuedTrackingNumber> issue(String counterNamespace) {
+        return counterNamespace == null
+                ? trackingService.issueTrackingNumber()
+                : trackingService.issueTrackingNumber(counterNamespace);
+    }
+
+    private TrackingResponse respond(TrackingRequest trackingRequest, IssuedTrackingNumber issued) {
+        if (auditLog != null) {
+            auditLog.append(issued.counter(), System.currentTimeMillis(),
+                    IssuanceAuditLog.customerHash(trackingRequest.customerId),
+                    IssuanceAuditLog.countryPair(trackingRequest.originCountryId, trackingRequest.destinationCountryId));
+        }
+        return new TrackingResponse(issued.trackingNumber(), clock.now());
+    }
+
+    private void countValidationFailures(int fields) {
+        Counter[] counters = validationFailures;
+        if (counters == null) {
+            return;
+        }
+        for (int i = 0; i < counters.length; i++) {
+            if ((fields & (1 << i)) != 0) {
+                counters[i].increment();
+            }
+        }
     }
 }
@@ -0,0 +1,95 @@
+package com.teleport.tracking.app;
+
+import com.teleport.tracking.presentation.BatchTrackingRequest;
+import com.teleport.tracking.presentation.TrackingRequest;
+import com.teleport.tracking.presentation.TrackingRequestBody;
+import com.teleport.tracking.presentation.TrackingResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@Slf4j
+public class GetTrackingNumberBatchUseCase {
+
+    private final TrackingService trackingService;
+    private final TrackingRequestValidator validator;
+    private final ResponseClock clock;
+    private final int maxBatchSize;
+
+    @Autowired
+    public GetTrackingNumberBatchUseCase(TrackingService trackingService,
+                                         TrackingRequestValidator validator,
+                                         ResponseClock clock,
+                                         @Value("${tracking.batch.max-size:10000}") int maxBatchSize) {
+        this.trackingService = trackingService;
+        this.validator = validator;
+        this.clock = clock;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Mono<List<TrackingResponse>> generateTrackingNumbers(BatchTrackingRequest batch) {
+        int count = validate(batch);
+        return Mono.deferContextual(context -> trackingService.generateTrackingNumbers(count)
+                .map(ids -> {
+                    log.info("Generated {} tracking numbers from {} to {} {}", ids.size(), ids.get(0),
+                            ids.get(ids.size() - 1), TraceContext.logArgument(context));
+                    String createdAt = clock.now();
+                    List<TrackingResponse> responses = new ArrayList<>(ids.size());
+                    for (String id : ids) {
+                        responses.add(new TrackingResponse(id, createdAt));
+                    }
+                    return responses;
+                }));
+    }
+
+    /**
+     * @return the number of tracking numbers the batch asks for
+     */
+    private int validate(BatchTrackingRequest batch) {
+        List<TrackingRequestBody> requests = batch.getRequests();
+        boolean hasRequests = requests != null && !requests.isEmpty();
+        boolean hasCount = batch.getCount() != null;
+        if (hasRequests == hasCount) {
+            throw new ServerWebInputException("Provide either requests or count with metadata");
+        }
+        if (hasRequests) {
+            checkSize(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                validate(requests.get(i), "requests[" + i + "]: ");
+            }
+            return requests.size();
+        }
+        checkSize(batch.getCount());
+        if (batch.getMetadata() == null) {
+            throw new ServerWebInputException("metadata is required with count");
+        }
+        validate(batch.getMetadata(), "metadata: ");
+        return batch.getCount();
+    }
+
+    private void checkSize(int count) {
+        if (count < 1 || count > maxBatchSize) {
+            throw new ServerWebInputException("count must be between 1 and " + maxBatchSize);
+        }
+    }
+
+    private void validate(TrackingRequestBody body, String prefix) {
+        if (body == null) {
+            throw new ServerWebInputException(prefix + "request is required");
+        }
+        TrackingRequest trackingRequest;
+        try {
+            trackingRequest = body.toTrackingRequest();
+        } catch (IllegalArgumentException e) {
+            throw new ServerWebInputException(prefix + e.getMessage());
+        }
+        validator.requireValid(trackingRequest, prefix);
+    }
+}
@@ -0,0 +1,25 @@
+package com.teleport.tracking.app;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Remembers which counter was issued for a request fingerprint, so that a retried
+ * request gets the tracking number of the original instead of a new one.
+ */
+public interface IdempotencyStore {
+    long NONE = -1L;
+
+    /**
+     * Looks the fingerprint up locally, without blocking.
+     *
+     * @return the counter issued for it, or {@link #NONE}
+     */
+    long find(long fingerprint);
+
+    /**
+     * Records {@code counter} for the fingerprint unless another counter got there first.
+     *
+     * @return the counter that owns the fingerprint: {@code counter}, or the earlier one
+     */
+    Mono<Long> claim(long fingerprint, long counter);
+}
@@ -0,0 +1,24 @@
+package com.teleport.tracking.app;
+
+/**
+ * A tracking number request rejected for its input. Signalled instead of thrown,
+ * and without a stack trace, which would only ever point at the validator. One
+ * instance exists per combination of violations and is shared by every request
+ * with those violations, so suppressed exceptions are disabled as well.
+ */
+public class InvalidTrackingRequestException extends RuntimeException {
+
+    private final int invalidFields;
+
+    /**
+     * @param invalidFields bit mask of the {@link TrackingRequestValidator#FIELDS} that are invalid
+     */
+    public InvalidTrackingRequestException(String message, int invalidFields) {
+        super(message, null, false, false);
+        this.invalidFields = invalidFields;
+    }
+
+    public int getInvalidFields() {
+        return invalidFields;
+    }
+}
@@ -0,0 +1,48 @@
+package com.teleport.tracking.app;
+
+/**
+ * Receives one record for every tracking number handed out by
+ * {@code /next-tracking-number}. Implementations are called on the request path and
+ * must neither block nor allocate per record.
+ */
+public interface IssuanceAuditLog {
+
+    /**
+     * @param counter        the counter the tracking number was encoded from
+     * @param issuedAtMillis epoch milliseconds at which it was issued
+     * @param customerHash   {@link #customerHash(String)} of the customer id
+     * @param countryPair    {@link #countryPair(String, String)} of the route
+     */
+    void append(long counter, long issuedAtMillis, long customerHash, int countryPair);
+
+    /**
+     * 64-bit FNV-1a over the characters of {@code customerId}, or {@code 0} for
+     * {@code null}. Stable across instances and restarts.
+     */
+    static long customerHash(String customerId) {
+        if (customerId == null) {
+            return 0;
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < customerId.length(); i++) {
+            hash ^= customerId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Packs two two-letter country codes into four ASCII bytes, origin in the low
+     * half. A missing code is packed as zeros.
+     */
+    static int countryPair(String originCountryId, String destinationCountryId) {
+        return countryCode(originCountryId) | countryCode(destinationCountryId) << 16;
+    }
+
+    private static int countryCode(String code) {
+        if (code == null || code.length() != 2) {
+            return 0;
+        }
+        return (code.charAt(0) & 0xFF) | (code.charAt(1) & 0xFF) << 8;
+    }
+}
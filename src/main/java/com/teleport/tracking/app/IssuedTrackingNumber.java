@@ -0,0 +1,7 @@
+package com.teleport.tracking.app;
+
+/**
+ * A tracking number together with the counter it was encoded from.
+ */
+public record IssuedTrackingNumber(long counter, String trackingNumber) {
+}
@@ -0,0 +1,32 @@
+package com.teleport.tracking.app;
+
+import java.time.Duration;
+
+/**
+ * A request shed by {@link AdmissionControl} before any work was done for it.
+ * Signalled without a stack trace and shared between requests, like
+ * {@link InvalidTrackingRequestException}.
+ */
+public class RequestRejectedException extends RuntimeException {
+
+    private final String reason;
+    private final Duration retryAfter;
+
+    /**
+     * @param reason     why the request was shed, as reported in metrics
+     * @param retryAfter how long the client should wait before trying again
+     */
+    public RequestRejectedException(String message, String reason, Duration retryAfter) {
+        super(message, null, false, false);
+        this.reason = reason;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,20 @@
+package com.teleport.tracking.app;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Supplies the {@code created_at} of tracking number responses as an RFC 3339 string.
+ */
+public interface ResponseClock {
+
+    String now();
+
+    /**
+     * Formats the current time on every call, to the full precision of the system clock.
+     */
+    static ResponseClock precise() {
+        return () -> OffsetDateTime.now(ZoneOffset.UTC).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+    }
+}
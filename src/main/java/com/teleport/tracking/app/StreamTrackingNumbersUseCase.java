@@ -0,0 +1,67 @@
+package com.teleport.tracking.app;
+
+import com.teleport.tracking.presentation.TrackingResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Streams tracking numbers at the pace the client reads them. Numbers are taken a
+ * chunk at a time from the lease the provider holds, through
+ * {@link TrackingService#generateTrackingNumberChunk(int)}, so a stream costs no
+ * Redis round trips beyond the leases single requests would take too. A chunk is
+ * reserved as soon as the previous one has been handed downstream, so up to two
+ * chunks, the one being read and the next, are held on behalf of a slow or departed
+ * client.
+ */
+@Component
+@Slf4j
+public class StreamTrackingNumbersUseCase {
+
+    private final TrackingService trackingService;
+    private final ResponseClock clock;
+    private final int maxChunkSize;
+
+    @Autowired
+    public StreamTrackingNumbersUseCase(TrackingService trackingService,
+                                        ResponseClock clock,
+                                        @Value("${tracking.batch.max-size:10000}") int maxChunkSize) {
+        this.trackingService = trackingService;
+        this.clock = clock;
+        this.maxChunkSize = maxChunkSize;
+    }
+
+    /**
+     * @param chunkSize most tracking numbers reserved per call to the provider
+     * @param limit     total tracking numbers to emit, or {@code 0} to stream until cancelled
+     */
+    public Flux<TrackingResponse> streamTrackingNumbers(int chunkSize, long limit) {
+        if (chunkSize < 1 || chunkSize > maxChunkSize) {
+            throw new ServerWebInputException("chunk must be between 1 and " + maxChunkSize);
+        }
+        if (limit < 0) {
+            throw new ServerWebInputException("limit must not be negative");
+        }
+        long total = limit == 0 ? Long.MAX_VALUE : limit;
+        return Flux.deferContextual(context -> {
+            // a chunk may come out shorter than asked for, so count what was actually taken
+            AtomicLong remaining = new AtomicLong(total);
+            return Mono.defer(() -> trackingService.generateTrackingNumberChunk(
+                            (int) Math.min(chunkSize, remaining.get())))
+                    .doOnNext(ids -> remaining.addAndGet(-ids.size()))
+                    .repeat(() -> remaining.get() > 0)
+                    .concatMapIterable(Function.<List<String>>identity(), 1)
+                    .map(id -> new TrackingResponse(id, clock.now()))
+                    .doOnCancel(() -> log.info("Tracking number stream cancelled by client {}",
+                            TraceContext.logArgument(context)));
+        });
+    }
+}
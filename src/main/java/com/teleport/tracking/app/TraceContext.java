@@ -0,0 +1,42 @@
+package com.teleport.tracking.app;
+
+import net.logstash.logback.argument.StructuredArgument;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import static net.logstash.logback.argument.StructuredArguments.keyValue;
+
+/**
+ * The trace id of the request being served, carried in the Reactor {@link Context}
+ * rather than the thread-local MDC, so that it follows the request across threads
+ * without being copied on every signal. The logging web filter writes it; a log
+ * line that belongs to a request reads it back through
+ * {@link reactor.core.publisher.Mono#deferContextual} and appends
+ * {@link #logArgument}.
+ */
+public final class TraceContext {
+    public static final String KEY = "traceId";
+
+    private static final String NONE = "none";
+
+    private TraceContext() {
+    }
+
+    public static Context of(String traceId) {
+        return Context.of(KEY, traceId);
+    }
+
+    /**
+     * @return the trace id of the request, or {@code null} outside of one
+     */
+    public static String traceId(ContextView context) {
+        return context.getOrDefault(KEY, null);
+    }
+
+    /**
+     * The trace id as the structured argument {@value #KEY}, {@code none} outside of a request.
+     */
+    public static StructuredArgument logArgument(ContextView context) {
+        return keyValue(KEY, context.getOrDefault(KEY, NONE));
+    }
+}
@@ -0,0 +1,42 @@
+package com.teleport.tracking.app;
+
+import com.teleport.tracking.presentation.TrackingRequest;
+
+import java.util.Locale;
+
+/**
+ * Which request field, if any, picks the counter namespace a tracking number is
+ * issued from. Requests without that field are issued from the global counter.
+ */
+public enum TrackingNamespace {
+    NONE {
+        @Override
+        public String resolve(TrackingRequest request) {
+            return null;
+        }
+    },
+    CUSTOMER {
+        @Override
+        public String resolve(TrackingRequest request) {
+            return request.customerSlug == null ? null : "customer:" + request.customerSlug;
+        }
+    },
+    LANE {
+        @Override
+        public String resolve(TrackingRequest request) {
+            if (request.originCountryId == null || request.destinationCountryId == null) {
+                return null;
+            }
+            return "lane:" + request.originCountryId + "-" + request.destinationCountryId;
+        }
+    };
+
+    /**
+     * @return the namespace of {@code request}, or {@code null} for the global counter
+     */
+    public abstract String resolve(TrackingRequest request);
+
+    public static TrackingNamespace of(String key) {
+        return valueOf(key.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,49 @@
+package com.teleport.tracking.app;
+
+import com.teleport.tracking.presentation.TrackingRequest;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.util.List;
+
+/**
+ * Checks a {@link TrackingRequest} against the constraints declared on it.
+ * Selected with {@code tracking.validation.mode}.
+ */
+public interface TrackingRequestValidator {
+
+    /**
+     * Request fields by their parameter names, in declaration order; bit {@code i}
+     * of {@link #invalidFields} stands for {@code FIELDS.get(i)}.
+     */
+    List<String> FIELDS = List.of("origin_country_id", "destination_country_id", "weight", "created_at",
+            "customer_id", "customer_name", "customer_slug");
+
+    /**
+     * @return every violation message joined by {@code ". "}, or {@code null} if the request is valid
+     */
+    String validate(TrackingRequest trackingRequest);
+
+    /**
+     * @return a bit mask of the {@link #FIELDS} that violate a constraint, {@code 0} if the request is valid
+     */
+    int invalidFields(TrackingRequest trackingRequest);
+
+    /**
+     * @return the rejection of an invalid request, with every violation message, or
+     * {@code null} if the request is valid
+     */
+    default InvalidTrackingRequestException reject(TrackingRequest trackingRequest) {
+        String errorMsg = validate(trackingRequest);
+        return errorMsg == null ? null : new InvalidTrackingRequestException(errorMsg, invalidFields(trackingRequest));
+    }
+
+    /**
+     * @throws ServerWebInputException with every violation message, prefixed by {@code prefix}
+     */
+    default void requireValid(TrackingRequest trackingRequest, String prefix) {
+        String errorMsg = validate(trackingRequest);
+        if (errorMsg != null) {
+            throw new ServerWebInputException(prefix + errorMsg);
+        }
+    }
+}
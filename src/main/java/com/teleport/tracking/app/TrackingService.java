@@ -3,7 +3,37 @@ package com.teleport.tracking.app;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @Service
 public interface TrackingService {
     Mono<String> generateTrackingNumber();
+
+    /**
+     * Like {@link #generateTrackingNumber()}, also returning the counter behind the
+     * tracking number.
+     */
+    Mono<IssuedTrackingNumber> issueTrackingNumber();
+
+    /**
+     * Like {@link #issueTrackingNumber()}, but from the counter of {@code namespace}
+     * when namespaced counters are enabled.
+     */
+    Mono<IssuedTrackingNumber> issueTrackingNumber(String namespace);
+
+    /**
+     * The tracking number of a counter issued earlier.
+     */
+    IssuedTrackingNumber trackingNumberOf(long counter);
+
+    /**
+     * Generates {@code count} tracking numbers from one contiguous counter block.
+     */
+    Mono<List<String>> generateTrackingNumbers(int count);
+
+    /**
+     * Generates up to {@code max} tracking numbers from the counters the provider
+     * already holds; see {@link com.teleport.tracking.domain.TrackingNumberProvider#nextCounterChunk(int)}.
+     */
+    Mono<List<String>> generateTrackingNumberChunk(int max);
 }
@@ -0,0 +1,131 @@
+package com.teleport.tracking.domain;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.teleport.tracking.domain.TrackingServiceImpl.ALPHABETSET;
+
+/**
+ * Scrambles the counter with a keyed bijection on 64 bits and writes the result
+ * as fixed-width base 36 over {@link TrackingServiceImpl#ALPHABETSET}. Thirteen
+ * characters cover every 64-bit value. Apart from the returned string nothing is
+ * allocated, and {@link #decode(String)} recovers the counter.
+ * <p>
+ * The key must be the same on every instance: two instances with different keys
+ * can map different counters to the same tracking number.
+ */
+@Component
+@ConditionalOnProperty(name = "tracking.encoder.type", havingValue = "base36")
+public class Base36TrackingNumberEncoder implements TrackingNumberEncoder {
+    public static final int WIDTH = 13;
+    private static final byte[] DIGITS = ALPHABETSET.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+        }
+    }
+
+    private final long k0;
+    private final long k1;
+    private final long m0;
+    private final long m1;
+    private final long m0Inverse;
+    private final long m1Inverse;
+
+    @Autowired
+    public Base36TrackingNumberEncoder(@Value("${tracking.encoder.key:0x5DEECE66D2F1A3B7}") String key) {
+        this(Long.decode(key));
+    }
+
+    public Base36TrackingNumberEncoder(long key) {
+        long seed = key;
+        this.k0 = seed = splitMix(seed);
+        this.k1 = seed = splitMix(seed);
+        this.m0 = (seed = splitMix(seed)) | 1;
+        this.m1 = splitMix(seed) | 1;
+        this.m0Inverse = inverse(m0);
+        this.m1Inverse = inverse(m1);
+    }
+
+    @Override
+    public String encode(long counter) {
+        long x = scramble(counter);
+        byte[] buf = new byte[WIDTH];
+        // first digit as unsigned: floor(x / 36) == floor((x >>> 1) / 18)
+        long q = (x >>> 1) / 18;
+        buf[WIDTH - 1] = DIGITS[(int) (x - q * 36)];
+        for (int i = WIDTH - 2; i >= 0; i--) {
+            long next = q / 36;
+            buf[i] = DIGITS[(int) (q - next * 36)];
+            q = next;
+        }
+        return new String(buf, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code trackingNumber} was not produced by
+     *                                  an encoder with the same key
+     */
+    public long decode(String trackingNumber) {
+        if (trackingNumber.length() != WIDTH) {
+            throw new IllegalArgumentException("Tracking number must be " + WIDTH + " characters");
+        }
+        long x = 0;
+        for (int i = 0; i < WIDTH; i++) {
+            char c = trackingNumber.charAt(i);
+            int digit = c < 128 ? VALUES[c] : -1;
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid tracking number character: " + c);
+            }
+            if (Long.compareUnsigned(x, Long.divideUnsigned(-1L - digit, 36)) > 0) {
+                throw new IllegalArgumentException("Tracking number out of range");
+            }
+            x = x * 36 + digit;
+        }
+        return unscramble(x);
+    }
+
+    long scramble(long x) {
+        x ^= k0;
+        x *= m0;
+        x ^= x >>> 32;
+        x *= m1;
+        x ^= x >>> 29;
+        return x + k1;
+    }
+
+    long unscramble(long x) {
+        x -= k1;
+        x ^= (x >>> 29) ^ (x >>> 58);
+        x *= m1Inverse;
+        x ^= x >>> 32;
+        x *= m0Inverse;
+        return x ^ k0;
+    }
+
+    private static long splitMix(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Multiplicative inverse of an odd number modulo 2^64, by Newton iteration.
+     */
+    private static long inverse(long odd) {
+        long inv = odd;
+        for (int i = 0; i < 5; i++) {
+            inv *= 2 - odd * inv;
+        }
+        return inv;
+    }
+}
@@ -0,0 +1,7 @@
+package com.teleport.tracking.domain;
+
+/**
+ * A contiguous run of {@code size} counters starting at {@code start}.
+ */
+public record CounterBlock(long start, int size) {
+}
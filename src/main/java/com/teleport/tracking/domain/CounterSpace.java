@@ -0,0 +1,108 @@
+package com.teleport.tracking.domain;
+
+/**
+ * How the non-negative 63-bit counter space is divided between the ways counters
+ * are issued, so that no two of them can ever produce the same counter:
+ * <pre>
+ * 0 | 0 | 0 | 9-bit shard + 1, 0 for the unsharded key | 52-bit Redis counter
+ * 0 | 0 | 1 | 20-bit namespace | 41-bit counter of the namespace
+ * 0 | 1 | 10-bit node | 41-bit milliseconds since {@link #FALLBACK_EPOCH_MILLIS} | 11-bit sequence
+ * </pre>
+ * Every counter in the space encodes to at most 16 characters.
+ */
+public final class CounterSpace {
+
+    /**
+     * Set on counters issued by the Redis-independent fallback; Redis counters stay below it.
+     */
+    public static final long FALLBACK_FLAG = 1L << 62;
+    /**
+     * Set on counters issued from a customer or lane namespace.
+     */
+    public static final long NAMESPACE_FLAG = 1L << 61;
+    public static final int NAMESPACE_COUNTER_BITS = 41;
+    public static final int NAMESPACE_BITS = 20;
+    /**
+     * Namespace ids are {@code 1} to {@code MAX_NAMESPACES - 1}.
+     */
+    public static final int MAX_NAMESPACES = 1 << NAMESPACE_BITS;
+    public static final long NAMESPACE_COUNTER_LIMIT = 1L << NAMESPACE_COUNTER_BITS;
+    public static final int SHARD_COUNTER_BITS = 52;
+    public static final int SHARD_BITS = 9;
+    /**
+     * Shards {@code 0} to {@code MAX_SHARDS - 1} own the prefixes {@code 1} to {@code MAX_SHARDS}.
+     */
+    public static final int MAX_SHARDS = (1 << SHARD_BITS) - 1;
+    /**
+     * Each shard key, like the unsharded key, counts below this.
+     */
+    public static final long SHARD_COUNTER_LIMIT = 1L << SHARD_COUNTER_BITS;
+    public static final int SEQUENCE_BITS = 11;
+    public static final int TIME_BITS = 41;
+    public static final int NODE_BITS = 10;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    /**
+     * The time and sequence bits together, {@code milliseconds << SEQUENCE_BITS | sequence}.
+     */
+    public static final long TIMESTAMP_MASK = (1L << (TIME_BITS + SEQUENCE_BITS)) - 1;
+    /**
+     * 2025-01-01T00:00:00Z; the 41 time bits last until 2094.
+     */
+    public static final long FALLBACK_EPOCH_MILLIS = 1_735_689_600_000L;
+
+    private CounterSpace() {
+    }
+
+    /**
+     * The global counter for the value {@code local} of the key of {@code shard}.
+     */
+    public static long shardCounter(int shard, long local) {
+        return (long) (shard + 1) << SHARD_COUNTER_BITS | local;
+    }
+
+    /**
+     * @return the shard a Redis counter came from, or {@code -1} for the unsharded key
+     */
+    public static int shardOf(long counter) {
+        return (int) (counter >>> SHARD_COUNTER_BITS) - 1;
+    }
+
+    /**
+     * The global counter for the value {@code local} of the counter of namespace {@code id}.
+     */
+    public static long namespaceCounter(int id, long local) {
+        return NAMESPACE_FLAG | (long) id << NAMESPACE_COUNTER_BITS | local;
+    }
+
+    public static boolean isNamespaced(long counter) {
+        return (counter & (FALLBACK_FLAG | NAMESPACE_FLAG)) == NAMESPACE_FLAG;
+    }
+
+    public static int namespaceOf(long counter) {
+        return (int) (counter >>> NAMESPACE_COUNTER_BITS) & (MAX_NAMESPACES - 1);
+    }
+
+    public static boolean isFallback(long counter) {
+        return (counter & FALLBACK_FLAG) != 0;
+    }
+
+    /**
+     * @param nodeId    {@code 0} to {@link #MAX_NODE_ID}
+     * @param timestamp milliseconds since {@link #FALLBACK_EPOCH_MILLIS}, shifted left by
+     *                  {@link #SEQUENCE_BITS}, plus the sequence
+     */
+    public static long fallbackCounter(int nodeId, long timestamp) {
+        return FALLBACK_FLAG | (long) nodeId << (TIME_BITS + SEQUENCE_BITS) | timestamp;
+    }
+
+    public static int fallbackNodeId(long counter) {
+        return (int) (counter >>> (TIME_BITS + SEQUENCE_BITS)) & MAX_NODE_ID;
+    }
+
+    /**
+     * Epoch milliseconds at which a fallback counter was issued.
+     */
+    public static long fallbackIssuedAtMillis(long counter) {
+        return ((counter & TIMESTAMP_MASK) >>> SEQUENCE_BITS) + FALLBACK_EPOCH_MILLIS;
+    }
+}
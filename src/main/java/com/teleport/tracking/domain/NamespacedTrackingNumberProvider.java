@@ -0,0 +1,12 @@
+package com.teleport.tracking.domain;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Issues counters from per-namespace sequences, such as one per customer or one
+ * per lane, instead of the single global sequence of {@link TrackingNumberProvider}.
+ * Counters of different namespaces never collide with each other or with global counters.
+ */
+public interface NamespacedTrackingNumberProvider {
+    Mono<Long> nextCounter(String namespace);
+}
@@ -0,0 +1,25 @@
+package com.teleport.tracking.domain;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.sqids.Sqids;
+
+import java.util.Collections;
+
+import static com.teleport.tracking.domain.TrackingServiceImpl.ALPHABETSET;
+import static com.teleport.tracking.domain.TrackingServiceImpl.TRACKING_NUMBER_LENGTH;
+
+@Component
+@ConditionalOnProperty(name = "tracking.encoder.type", havingValue = "sqids", matchIfMissing = true)
+public class SqidsTrackingNumberEncoder implements TrackingNumberEncoder {
+
+    private final Sqids sqids = Sqids.builder()
+            .alphabet(ALPHABETSET)
+            .minLength(TRACKING_NUMBER_LENGTH)
+            .build();
+
+    @Override
+    public String encode(long counter) {
+        return sqids.encode(Collections.singletonList(counter));
+    }
+}
@@ -0,0 +1,9 @@
+package com.teleport.tracking.domain;
+
+/**
+ * Turns a unique counter into a tracking number matching {@code ^[A-Z0-9]{1,16}$}.
+ * Implementations must be injective, so distinct counters never share a number.
+ */
+public interface TrackingNumberEncoder {
+    String encode(long counter);
+}
@@ -1,7 +1,12 @@
 package com.teleport.tracking.domain;
 
 public class TrackingNumberGenerationException extends RuntimeException {
+    /**
+     * Wrapping a {@code cause} leaves out the stack trace of the wrapper, which
+     * only ever points at the operator that mapped the error; the cause has the one
+     * that matters.
+     */
     public TrackingNumberGenerationException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, true, cause == null);
     }
 }
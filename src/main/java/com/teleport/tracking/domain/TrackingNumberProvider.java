@@ -6,4 +6,20 @@ import reactor.core.publisher.Mono;
 @Service
 public interface TrackingNumberProvider {
     Mono<Long> nextCounter();
+
+    /**
+     * Reserves {@code n} contiguous counters in one step, so a batch never
+     * interleaves with counters handed out to single requests.
+     */
+    Mono<CounterBlock> nextCounters(int n);
+
+    /**
+     * Takes up to {@code max} contiguous counters from what the provider already
+     * holds, waiting for its next lease only once that is used up. Unlike
+     * {@link #nextCounters(int)} the block may come out shorter, so it never costs a
+     * round trip of its own.
+     */
+    default Mono<CounterBlock> nextCounterChunk(int max) {
+        return nextCounters(max);
+    }
 }
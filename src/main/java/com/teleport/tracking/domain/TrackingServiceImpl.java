@@ -1,33 +1,120 @@
 package com.teleport.tracking.domain;
 
+import com.teleport.tracking.app.IssuedTrackingNumber;
 import com.teleport.tracking.app.TrackingService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.sqids.Sqids;
 import reactor.core.publisher.Mono;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Service
-public class TrackingServiceImpl implements TrackingService {
+public class TrackingServiceImpl implements TrackingService, MeterBinder {
     public static final String ALPHABETSET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
     public static final int TRACKING_NUMBER_LENGTH = 16;
     private final TrackingNumberProvider trackingNumberProvider;
-
-    private final Sqids sqids = Sqids.builder()
-            .alphabet(ALPHABETSET)
-            .minLength(TRACKING_NUMBER_LENGTH)
-            .build();
+    private final TrackingNumberEncoder trackingNumberEncoder;
+    private final NamespacedTrackingNumberProvider namespacedProvider;
+    private volatile Timer encodeTimer;
 
     @Autowired
-    public TrackingServiceImpl(TrackingNumberProvider trackingNumberProvider) {
+    public TrackingServiceImpl(TrackingNumberProvider trackingNumberProvider, TrackingNumberEncoder trackingNumberEncoder,
+                               ObjectProvider<NamespacedTrackingNumberProvider> namespacedProvider) {
+        this(trackingNumberProvider, trackingNumberEncoder, namespacedProvider.getIfAvailable());
+    }
+
+    /**
+     * @param namespacedProvider issues namespaced counters, or {@code null} to issue every
+     *                           tracking number from {@code trackingNumberProvider}
+     */
+    public TrackingServiceImpl(TrackingNumberProvider trackingNumberProvider, TrackingNumberEncoder trackingNumberEncoder,
+                               NamespacedTrackingNumberProvider namespacedProvider) {
         this.trackingNumberProvider = trackingNumberProvider;
+        this.trackingNumberEncoder = trackingNumberEncoder;
+        this.namespacedProvider = namespacedProvider;
+    }
+
+    public TrackingServiceImpl(TrackingNumberProvider trackingNumberProvider, TrackingNumberEncoder trackingNumberEncoder) {
+        this(trackingNumberProvider, trackingNumberEncoder, (NamespacedTrackingNumberProvider) null);
+    }
+
+    public TrackingServiceImpl(TrackingNumberProvider trackingNumberProvider) {
+        this(trackingNumberProvider, new SqidsTrackingNumberEncoder());
     }
 
     @Override
     public Mono<String> generateTrackingNumber() {
         return trackingNumberProvider.nextCounter()
-            .map(count -> sqids.encode(Collections.singletonList(count)))
+            .map(this::encode)
+            .onErrorMap(ex -> new TrackingNumberGenerationException("Failed to generate tracking number", ex));
+    }
+
+    @Override
+    public Mono<IssuedTrackingNumber> issueTrackingNumber() {
+        return trackingNumberProvider.nextCounter()
+            .map(counter -> new IssuedTrackingNumber(counter, encode(counter)))
+            .onErrorMap(ex -> new TrackingNumberGenerationException("Failed to generate tracking number", ex));
+    }
+
+    @Override
+    public Mono<IssuedTrackingNumber> issueTrackingNumber(String namespace) {
+        if (namespace == null || namespacedProvider == null) {
+            return issueTrackingNumber();
+        }
+        return namespacedProvider.nextCounter(namespace)
+            .map(counter -> new IssuedTrackingNumber(counter, encode(counter)))
             .onErrorMap(ex -> new TrackingNumberGenerationException("Failed to generate tracking number", ex));
     }
-}
\ No newline at end of file
+
+    @Override
+    public IssuedTrackingNumber trackingNumberOf(long counter) {
+        return new IssuedTrackingNumber(counter, encode(counter));
+    }
+
+    @Override
+    public Mono<List<String>> generateTrackingNumbers(int count) {
+        return trackingNumberProvider.nextCounters(count)
+            .map(this::encodeBlock)
+            .onErrorMap(ex -> new TrackingNumberGenerationException("Failed to generate tracking numbers", ex));
+    }
+
+    @Override
+    public Mono<List<String>> generateTrackingNumberChunk(int max) {
+        return trackingNumberProvider.nextCounterChunk(max)
+            .map(this::encodeBlock)
+            .onErrorMap(ex -> new TrackingNumberGenerationException("Failed to generate tracking numbers", ex));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        encodeTimer = Timer.builder("tracking.encode")
+                .description("Time to encode one counter into a tracking number")
+                .tag("encoder", trackingNumberEncoder.getClass().getSimpleName())
+                .register(registry);
+    }
+
+    private List<String> encodeBlock(CounterBlock block) {
+        List<String> trackingNumbers = new ArrayList<>(block.size());
+        for (int i = 0; i < block.size(); i++) {
+            trackingNumbers.add(encode(block.start() + i));
+        }
+        return trackingNumbers;
+    }
+
+    private String encode(long counter) {
+        Timer timer = encodeTimer;
+        if (timer == null) {
+            return trackingNumberEncoder.encode(counter);
+        }
+        long start = System.nanoTime();
+        String trackingNumber = trackingNumberEncoder.encode(counter);
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return trackingNumber;
+    }
+}
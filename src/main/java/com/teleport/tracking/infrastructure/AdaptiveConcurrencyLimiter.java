@@ -0,0 +1,367 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.app.AdmissionControl;
+import com.teleport.tracking.app.RequestRejectedException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongSupplier;
+
+/**
+ * Caps the tracking numbers being generated at once with a limit that adapts
+ * additively up and multiplicatively down (AIMD): every generation that completes
+ * within {@code tracking.admission.latency-target} while the limit is at least half
+ * used raises it by {@code 1 / limit}, so by about one per limit's worth of
+ * requests, and a slower or failed one cuts it to three quarters, at most once per
+ * latency target. The limit stays between {@code min-limit} and {@code max-limit}.
+ * <p>
+ * A request over the limit waits in a queue of at most {@code queue-size} for up to
+ * {@code queue-timeout}, and is handed the permit of the generation that finishes
+ * next. A full queue or an expired wait sheds the request. So does finding both
+ * leases used up while the refresh replacing them has been running for longer than
+ * {@code lease-overdue}, unless the Redis outage fallback is serving; such a request
+ * would only join the waiters in {@link RedisTrackingNumberProvider}. Shed requests
+ * are answered {@code 503} with a {@code Retry-After} of {@code retry-after}.
+ * <p>
+ * Enabled with {@code tracking.admission.enabled=true}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "tracking.admission.enabled", havingValue = "true")
+public class AdaptiveConcurrencyLimiter implements AdmissionControl, MeterBinder {
+
+    static final String QUEUE_FULL = "queue_full";
+    static final String QUEUE_TIMEOUT = "queue_timeout";
+    static final String LEASE_OVERDUE = "lease_overdue";
+    private static final double BACKOFF = 0.75;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final int queueSize;
+    private final long queueTimeoutNanos;
+    private final BooleanSupplier starved;
+    private final Scheduler scheduler;
+    private final LongSupplier nanoTime;
+    private final RequestRejectedException queueFull;
+    private final RequestRejectedException queueTimedOut;
+    private final RequestRejectedException leaseOverdue;
+    private final AtomicLong limit;
+    private final AtomicLong lastDecrease;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Queue<Permit> waiters = new ConcurrentLinkedQueue<>();
+    private final LongAdder queueFullRejections = new LongAdder();
+    private final LongAdder queueTimeoutRejections = new LongAdder();
+    private final LongAdder leaseOverdueRejections = new LongAdder();
+
+    @Autowired
+    public AdaptiveConcurrencyLimiter(RedisTrackingNumberProvider redis,
+                                      FailoverTrackingNumberProvider failover,
+                                      @Value("${tracking.admission.initial-limit:64}") int initialLimit,
+                                      @Value("${tracking.admission.min-limit:8}") int minLimit,
+                                      @Value("${tracking.admission.max-limit:1024}") int maxLimit,
+                                      @Value("${tracking.admission.latency-target:50ms}") Duration latencyTarget,
+                                      @Value("${tracking.admission.queue-size:256}") int queueSize,
+                                      @Value("${tracking.admission.queue-timeout:100ms}") Duration queueTimeout,
+                                      @Value("${tracking.admission.lease-overdue:500ms}") Duration leaseOverdue,
+                                      @Value("${tracking.admission.retry-after:1s}") Duration retryAfter) {
+        this(initialLimit, minLimit, maxLimit, latencyTarget, queueSize, queueTimeout, retryAfter,
+                () -> !failover.isOnFallback() && redis.isStarved(leaseOverdue.toNanos()),
+                Schedulers.parallel(), System::nanoTime);
+    }
+
+    /**
+     * @param starved whether requests should be shed because no counters will be available soon
+     * @param scheduler expires queued requests
+     */
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyTarget,
+                               int queueSize, Duration queueTimeout, Duration retryAfter,
+                               BooleanSupplier starved, Scheduler scheduler, LongSupplier nanoTime) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit || queueSize < 0) {
+            throw new IllegalArgumentException(
+                    "Admission limits must satisfy 1 <= min-limit <= initial-limit <= max-limit and queue-size >= 0");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.queueSize = queueSize;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.starved = starved;
+        this.scheduler = scheduler;
+        this.nanoTime = nanoTime;
+        this.queueFull = new RequestRejectedException("Too many requests in progress", QUEUE_FULL, retryAfter);
+        this.queueTimedOut = new RequestRejectedException("Too many requests in progress", QUEUE_TIMEOUT, retryAfter);
+        this.leaseOverdue = new RequestRejectedException("Tracking numbers are temporarily unavailable",
+                LEASE_OVERDUE, retryAfter);
+        this.limit = new AtomicLong(Double.doubleToLongBits(initialLimit));
+        this.lastDecrease = new AtomicLong(nanoTime.getAsLong() - latencyTargetNanos);
+    }
+
+    @Override
+    public <T> Mono<T> admit(Mono<T> work) {
+        // once a permit has been handed out, usingWhen gives it back however the request ends
+        return Mono.usingWhen(Mono.<Permit>create(this::acquire), permit -> work,
+                permit -> Mono.fromRunnable(() -> permit.release(SignalType.ON_COMPLETE)),
+                (permit, error) -> Mono.fromRunnable(() -> permit.release(SignalType.ON_ERROR)),
+                permit -> Mono.fromRunnable(() -> permit.release(SignalType.CANCEL)));
+    }
+
+    /**
+     * Generations allowed at once right now.
+     */
+    public int getLimit() {
+        return (int) limitValue();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Requests waiting for a generation to finish.
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * Requests shed so far, for any reason.
+     */
+    public long getRejected() {
+        return queueFullRejections.sum() + queueTimeoutRejections.sum() + leaseOverdueRejections.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tracking.admission.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Tracking number generations allowed at once")
+                .register(registry);
+        Gauge.builder("tracking.admission.inflight", inFlight, AtomicInteger::get)
+                .description("Tracking number generations in progress")
+                .register(registry);
+        Gauge.builder("tracking.admission.queued", queued, AtomicInteger::get)
+                .description("Requests waiting for a generation to finish")
+                .register(registry);
+        rejectionCounter(registry, QUEUE_FULL, queueFullRejections);
+        rejectionCounter(registry, QUEUE_TIMEOUT, queueTimeoutRejections);
+        rejectionCounter(registry, LEASE_OVERDUE, leaseOverdueRejections);
+    }
+
+    private static void rejectionCounter(MeterRegistry registry, String reason, LongAdder count) {
+        FunctionCounter.builder("tracking.admission.rejected", count, LongAdder::sum)
+                .description("Requests shed by admission control, by reason")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    private void acquire(MonoSink<Permit> sink) {
+        if (starved.getAsBoolean()) {
+            leaseOverdueRejections.increment();
+            sink.error(leaseOverdue);
+            return;
+        }
+        Permit permit = new Permit(sink);
+        sink.onCancel(permit::cancel);
+        if (tryAcquire()) {
+            if (!permit.grant(Permit.NEW)) {
+                // cancelled before it got here
+                handOff();
+            }
+            return;
+        }
+        if (queued.incrementAndGet() > queueSize) {
+            queued.decrementAndGet();
+            queueFullRejections.increment();
+            sink.error(queueFull);
+            return;
+        }
+        if (!permit.state.compareAndSet(Permit.NEW, Permit.WAITING)) {
+            queued.decrementAndGet();
+            return;
+        }
+        // the deadline is set before the permit can be granted, so that granting can always dispose it
+        permit.deadline = scheduler.schedule(permit, queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        waiters.offer(permit);
+        dispatch();
+    }
+
+    private boolean tryAcquire() {
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= limitValue()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Adjusts the limit to how the generation went and passes its permit on.
+     */
+    private void release(long started, SignalType signal) {
+        long now = nanoTime.getAsLong();
+        if (signal == SignalType.ON_ERROR || (signal == SignalType.ON_COMPLETE && now - started > latencyTargetNanos)) {
+            decrease(now);
+        } else if (signal == SignalType.ON_COMPLETE && inFlight.get() * 2 >= limitValue()) {
+            // raising an idle limit would only let the next burst through unchecked
+            updateLimit(current -> Math.min(maxLimit, current + 1 / current));
+        }
+        handOff();
+    }
+
+    /**
+     * Passes a permit the caller holds on to the next waiter, or gives it back.
+     */
+    private void handOff() {
+        if (!grantNext()) {
+            inFlight.decrementAndGet();
+            dispatch();
+        }
+    }
+
+    private void decrease(long now) {
+        long last = lastDecrease.get();
+        if (now - last < latencyTargetNanos || !lastDecrease.compareAndSet(last, now)) {
+            return;
+        }
+        double reduced = updateLimit(current -> Math.max(minLimit, current * BACKOFF));
+        log.debug("Admission limit lowered to {}", (int) reduced);
+    }
+
+    /**
+     * Hands free permits to waiters. Runs after every waiter is queued and after every
+     * permit is given back, so that neither can miss the other.
+     */
+    private void dispatch() {
+        while (!waiters.isEmpty() && tryAcquire()) {
+            if (!grantNext()) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Passes a permit the caller holds on to the longest waiting request.
+     *
+     * @return {@code false} if nobody is waiting and the caller still holds the permit
+     */
+    private boolean grantNext() {
+        Permit waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.grant(Permit.WAITING)) {
+                queued.decrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double limitValue() {
+        return Double.longBitsToDouble(limit.get());
+    }
+
+    private double updateLimit(DoubleUnaryOperator update) {
+        for (;;) {
+            long current = limit.get();
+            double next = update.applyAsDouble(Double.longBitsToDouble(current));
+            if (limit.compareAndSet(current, Double.doubleToLongBits(next))) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * One request's claim on a slot, from acquiring it until it is given back. The
+     * state decides the race between granting, the queue deadline, cancellation and
+     * release, so that a granted permit is given back exactly once.
+     */
+    private final class Permit implements Runnable {
+        static final int NEW = 0;
+        static final int WAITING = 1;
+        static final int GRANTED = 2;
+        static final int RELEASED = 3;
+        static final int LEFT = 4;
+
+        private final MonoSink<Permit> sink;
+        private final AtomicInteger state = new AtomicInteger(NEW);
+        private volatile Disposable deadline;
+        private long started;
+
+        private Permit(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+
+        boolean grant(int expected) {
+            // only the one thread that took this permit off the queue, or acquired it, grants it
+            started = nanoTime.getAsLong();
+            if (!state.compareAndSet(expected, GRANTED)) {
+                return false;
+            }
+            Disposable timer = deadline;
+            if (timer != null) {
+                timer.dispose();
+            }
+            // dropped by the sink if the request is cancelled meanwhile; cancel() then releases
+            sink.success(this);
+            return true;
+        }
+
+        void release(SignalType signal) {
+            if (state.compareAndSet(GRANTED, RELEASED)) {
+                AdaptiveConcurrencyLimiter.this.release(started, signal);
+            }
+        }
+
+        /**
+         * The queue deadline.
+         */
+        @Override
+        public void run() {
+            if (leave()) {
+                queueTimeoutRejections.increment();
+                sink.error(queueTimedOut);
+            }
+        }
+
+        void cancel() {
+            if (!state.compareAndSet(NEW, LEFT) && !leave()) {
+                release(SignalType.CANCEL);
+            }
+        }
+
+        private boolean leave() {
+            if (!state.compareAndSet(WAITING, LEFT)) {
+                return false;
+            }
+            queued.decrementAndGet();
+            waiters.remove(this);
+            return true;
+        }
+    }
+}
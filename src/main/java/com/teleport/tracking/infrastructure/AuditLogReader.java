@@ -0,0 +1,87 @@
+package com.teleport.tracking.infrastructure;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Decodes the segments written by {@link MappedIssuanceAuditLog}. Slots that were
+ * reserved but never completed, e.g. because the process died mid-write, are
+ * skipped.
+ * <p>
+ * From the command line, prints one tab-separated line per record of a segment file
+ * or of every segment in a directory:
+ * <pre>
+ * ./gradlew readAuditLog -Paudit.path=audit
+ * </pre>
+ */
+public final class AuditLogReader {
+
+    public record AuditRecord(long counter, long issuedAtMillis, long customerHash,
+                              String originCountryId, String destinationCountryId) {
+    }
+
+    private AuditLogReader() {
+    }
+
+    /**
+     * Passes every complete record under {@code path}, a segment file or a directory
+     * of segments, to {@code consumer}, in segment and slot order.
+     */
+    public static void read(Path path, Consumer<AuditRecord> consumer) throws IOException {
+        List<Path> segments = Files.isDirectory(path) ? MappedIssuanceAuditLog.segments(path) : List.of(path);
+        for (Path segment : segments) {
+            readSegment(segment, consumer);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: AuditLogReader <segment file or directory>");
+            System.exit(2);
+        }
+        PrintStream out = System.out;
+        out.println("counter\tissued_at\tcustomer_hash\torigin_country_id\tdestination_country_id");
+        read(Path.of(args[0]), record -> out.printf("%d\t%s\t%016x\t%s\t%s%n", record.counter(),
+                Instant.ofEpochMilli(record.issuedAtMillis()), record.customerHash(),
+                record.originCountryId(), record.destinationCountryId()));
+    }
+
+    private static void readSegment(Path segment, Consumer<AuditRecord> consumer) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < MappedIssuanceAuditLog.HEADER_SIZE
+                || buffer.getLong(0) != MappedIssuanceAuditLog.MAGIC
+                || buffer.getInt(8) != MappedIssuanceAuditLog.VERSION
+                || buffer.getInt(12) != MappedIssuanceAuditLog.RECORD_SIZE) {
+            throw new IOException("Not an audit segment: " + segment);
+        }
+        int recordSize = MappedIssuanceAuditLog.RECORD_SIZE;
+        for (int offset = MappedIssuanceAuditLog.HEADER_SIZE; offset + recordSize <= buffer.limit(); offset += recordSize) {
+            if (buffer.getInt(offset + 28) != MappedIssuanceAuditLog.COMMITTED) {
+                continue;
+            }
+            int countryPair = buffer.getInt(offset + 24);
+            consumer.accept(new AuditRecord(buffer.getLong(offset), buffer.getLong(offset + 8),
+                    buffer.getLong(offset + 16), countryCode(countryPair), countryCode(countryPair >>> 16)));
+        }
+    }
+
+    private static String countryCode(int packed) {
+        if ((packed & 0xFFFF) == 0) {
+            return "";
+        }
+        return new String(new char[]{(char) (packed & 0xFF), (char) ((packed >>> 8) & 0xFF)});
+    }
+}
@@ -0,0 +1,75 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.app.ResponseClock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Formats the response timestamp once per tick of the configured precision and
+ * hands the same string to every response in that tick, instead of running the
+ * formatter for each of them. In {@code precise} mode every call is formatted.
+ * <p>
+ * Configured with {@code tracking.clock.precision}: {@code seconds}, {@code millis}
+ * or {@code precise}.
+ */
+@Component
+public class CachedResponseClock implements ResponseClock {
+
+    public enum Precision {
+        SECONDS(1000),
+        MILLIS(1),
+        PRECISE(0);
+
+        private final long tickMillis;
+
+        Precision(long tickMillis) {
+            this.tickMillis = tickMillis;
+        }
+    }
+
+    private final Precision precision;
+    private final Clock clock;
+    private volatile Tick last = new Tick(Long.MIN_VALUE, null);
+
+    @Autowired
+    public CachedResponseClock(@Value("${tracking.clock.precision:millis}") String precision) {
+        this(Precision.valueOf(precision.toUpperCase(Locale.ROOT)), Clock.systemUTC());
+    }
+
+    public CachedResponseClock(Precision precision, Clock clock) {
+        this.precision = precision;
+        this.clock = clock.withZone(ZoneOffset.UTC);
+    }
+
+    @Override
+    public String now() {
+        if (precision == Precision.PRECISE) {
+            return OffsetDateTime.now(clock).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        }
+        long tick = clock.millis() / precision.tickMillis;
+        Tick cached = last;
+        if (cached.tick == tick) {
+            return cached.text;
+        }
+        // racing threads may format the same tick twice; both produce the same string
+        String text = OffsetDateTime.ofInstant(Instant.ofEpochMilli(tick * precision.tickMillis), ZoneOffset.UTC)
+                .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        last = new Tick(tick, text);
+        return text;
+    }
+
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    private record Tick(long tick, String text) {
+    }
+}
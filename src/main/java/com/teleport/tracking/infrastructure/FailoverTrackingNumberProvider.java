@@ -0,0 +1,181 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.app.TraceContext;
+import com.teleport.tracking.domain.CounterBlock;
+import com.teleport.tracking.domain.TrackingNumberGenerationException;
+import com.teleport.tracking.domain.TrackingNumberProvider;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * The provider the service issues from: the Redis-leased provider, striped in
+ * {@code tracking.provider.mode=striped}, and, with {@code tracking.fallback.enabled},
+ * the {@link SnowflakeTrackingNumberProvider} while Redis is out.
+ * <p>
+ * The first request the leased provider fails switches every following request to
+ * the fallback. While on the fallback, one request per {@code probe-interval} also
+ * asks the leased provider for a counter in the background, and the first success
+ * switches back. The fallback serves for at most {@code max-duration}, after which
+ * requests fail again until Redis returns. Both switches are a compare-and-set on
+ * one timestamp; requests never wait on each other.
+ */
+@Service
+@Primary
+@Slf4j
+public class FailoverTrackingNumberProvider implements TrackingNumberProvider, MeterBinder {
+
+    private static final long LEASED = Long.MIN_VALUE;
+
+    private final TrackingNumberProvider leased;
+    private final TrackingNumberProvider fallback;
+    private final long probeIntervalNanos;
+    private final long maxDurationNanos;
+    private final AtomicLong fallbackSince = new AtomicLong(LEASED);
+    private final AtomicLong nextProbe = new AtomicLong();
+    private final LongAdder fallbackIssued = new LongAdder();
+    private final LongAdder switchovers = new LongAdder();
+
+    @Autowired
+    public FailoverTrackingNumberProvider(RedisTrackingNumberProvider redis,
+                                          ObjectProvider<StripedTrackingNumberProvider> striped,
+                                          ObjectProvider<SnowflakeTrackingNumberProvider> fallback,
+                                          @Value("${tracking.fallback.probe-interval:1s}") Duration probeInterval,
+                                          @Value("${tracking.fallback.max-duration:10m}") Duration maxDuration) {
+        this(striped.getIfAvailable(() -> redis), fallback.getIfAvailable(), probeInterval, maxDuration);
+    }
+
+    /**
+     * @param fallback the provider to switch to, or {@code null} to always use {@code leased}
+     */
+    public FailoverTrackingNumberProvider(TrackingNumberProvider leased, TrackingNumberProvider fallback,
+                                          Duration probeInterval, Duration maxDuration) {
+        this.leased = leased;
+        this.fallback = fallback;
+        this.probeIntervalNanos = probeInterval.toNanos();
+        this.maxDurationNanos = maxDuration.toNanos();
+    }
+
+    @Override
+    public Mono<Long> nextCounter() {
+        if (fallback == null) {
+            return leased.nextCounter();
+        }
+        long since = fallbackSince.get();
+        if (since == LEASED) {
+            return leased.nextCounter().onErrorResume(ex -> Mono.deferContextual(context -> {
+                switchToFallback(ex, context);
+                return fromFallback(fallback.nextCounter());
+            }));
+        }
+        probe(since);
+        return fromFallback(fallback.nextCounter());
+    }
+
+    @Override
+    public Mono<CounterBlock> nextCounters(int n) {
+        return nextBlock(provider -> provider.nextCounters(n));
+    }
+
+    @Override
+    public Mono<CounterBlock> nextCounterChunk(int max) {
+        return nextBlock(provider -> provider.nextCounterChunk(max));
+    }
+
+    public boolean isOnFallback() {
+        return fallbackSince.get() != LEASED;
+    }
+
+    /**
+     * Requests served by the fallback provider.
+     */
+    public long getFallbackIssued() {
+        return fallbackIssued.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (fallback == null) {
+            return;
+        }
+        Gauge.builder("tracking.fallback.active", this, provider -> provider.isOnFallback() ? 1 : 0)
+                .description("1 while tracking numbers are issued without Redis")
+                .register(registry);
+        FunctionCounter.builder("tracking.fallback.issued", fallbackIssued, LongAdder::sum)
+                .description("Requests served by the fallback provider")
+                .register(registry);
+        FunctionCounter.builder("tracking.fallback.switchovers", switchovers, LongAdder::sum)
+                .description("Switches from the Redis-leased provider to the fallback")
+                .register(registry);
+    }
+
+    private Mono<CounterBlock> nextBlock(Function<TrackingNumberProvider, Mono<CounterBlock>> request) {
+        if (fallback == null) {
+            return request.apply(leased);
+        }
+        long since = fallbackSince.get();
+        if (since == LEASED) {
+            return request.apply(leased).onErrorResume(ex -> Mono.deferContextual(context -> {
+                switchToFallback(ex, context);
+                return fromFallback(request.apply(fallback));
+            }));
+        }
+        probe(since);
+        return fromFallback(request.apply(fallback));
+    }
+
+    private void switchToFallback(Throwable cause, ContextView context) {
+        long now = System.nanoTime();
+        if (fallbackSince.compareAndSet(LEASED, now)) {
+            nextProbe.set(now + probeIntervalNanos);
+            switchovers.increment();
+            log.warn("Leased provider failed, issuing from the fallback provider {}",
+                    TraceContext.logArgument(context), cause);
+        }
+    }
+
+    private <T> Mono<T> fromFallback(Mono<T> counters) {
+        long since = fallbackSince.get();
+        if (since != LEASED && System.nanoTime() - since > maxDurationNanos) {
+            return Mono.error(new TrackingNumberGenerationException(
+                    "Redis unavailable for longer than the fallback may serve", null));
+        }
+        fallbackIssued.increment();
+        return counters;
+    }
+
+    /**
+     * Starts a background request to the leased provider if a probe is due; the
+     * counter it returns is not handed out.
+     */
+    private void probe(long since) {
+        long now = System.nanoTime();
+        long due = nextProbe.get();
+        if (now - due < 0 || !nextProbe.compareAndSet(due, now + probeIntervalNanos)) {
+            return;
+        }
+        leased.nextCounter().subscribe(counter -> switchBack(since),
+                ex -> log.debug("Leased provider still failing: {}", ex.toString()));
+    }
+
+    private void switchBack(long since) {
+        if (fallbackSince.compareAndSet(since, LEASED)) {
+            log.info("Leased provider recovered after {} ms, switching back",
+                    (System.nanoTime() - since) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.teleport.tracking.infrastructure;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded map from 64-bit fingerprint to counter whose entries expire
+ * {@code ttlMillis} after they were written. Each entry is three adjacent
+ * {@code long}s (key, value and write time) of one array, so entries cost no
+ * objects and a lookup usually touches a single cache line.
+ * <p>
+ * The table is split into independently locked stripes. Each key may live in one of
+ * {@link #PROBES} neighbouring slots of its stripe; when all of them are taken by
+ * live entries, the oldest is overwritten. The cache therefore never grows beyond
+ * its capacity and forgets the oldest entries first, roughly.
+ */
+final class FingerprintCache {
+    static final long NONE = -1L;
+    static final int PROBES = 8;
+    private static final int MAX_STRIPES = 64;
+    private static final int ENTRY = 3;
+    private static final int VALUE = 1;
+    private static final int WRITTEN = 2;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    FingerprintCache(int capacity, long ttlMillis, LongSupplier clock) {
+        if (capacity < PROBES) {
+            throw new IllegalArgumentException("Fingerprint cache capacity must be at least " + PROBES);
+        }
+        int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, capacity / (PROBES * 8))));
+        int slots = Integer.highestOneBit(capacity / stripeCount - 1) << 1;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(slots);
+        }
+        this.stripeMask = stripeCount - 1;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the live counter of {@code fingerprint}, or {@link #NONE}
+     */
+    long get(long fingerprint) {
+        long hash = mix(fingerprint);
+        Stripe stripe = stripes[(int) (hash >>> 32) & stripeMask];
+        long now = clock.getAsLong();
+        synchronized (stripe) {
+            int slot = stripe.find(fingerprint, (int) hash, now, ttlMillis);
+            return slot < 0 ? NONE : stripe.table[slot + VALUE];
+        }
+    }
+
+    /**
+     * Stores {@code counter} unless a live counter is already stored for {@code fingerprint}.
+     *
+     * @return the counter already stored, or {@link #NONE} if {@code counter} was stored
+     */
+    long putIfAbsent(long fingerprint, long counter) {
+        return put(fingerprint, counter, false);
+    }
+
+    /**
+     * Stores {@code counter}, replacing whatever was stored for {@code fingerprint}.
+     */
+    void put(long fingerprint, long counter) {
+        put(fingerprint, counter, true);
+    }
+
+    int capacity() {
+        return stripes.length * (stripes[0].mask + 1);
+    }
+
+    private long put(long fingerprint, long counter, boolean replace) {
+        long hash = mix(fingerprint);
+        Stripe stripe = stripes[(int) (hash >>> 32) & stripeMask];
+        long now = clock.getAsLong();
+        synchronized (stripe) {
+            int slot = stripe.find(fingerprint, (int) hash, now, ttlMillis);
+            if (slot >= 0 && !replace) {
+                return stripe.table[slot + VALUE];
+            }
+            if (slot < 0) {
+                slot = stripe.victim((int) hash, now, ttlMillis);
+            }
+            stripe.table[slot] = fingerprint;
+            stripe.table[slot + VALUE] = counter;
+            stripe.table[slot + WRITTEN] = now;
+            return NONE;
+        }
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * Slots of {@link #ENTRY} longs: the key, then {@link #VALUE}, then {@link #WRITTEN},
+     * which is {@code 0} in a free slot. Methods take and return the index of a slot's key.
+     */
+    private static final class Stripe {
+        final long[] table;
+        final int mask;
+
+        Stripe(int slots) {
+            table = new long[slots * ENTRY];
+            mask = slots - 1;
+        }
+
+        int find(long key, int hash, long now, long ttl) {
+            for (int i = 0; i < PROBES; i++) {
+                int slot = ((hash + i) & mask) * ENTRY;
+                long written = table[slot + WRITTEN];
+                if (written != 0 && table[slot] == key && now - written < ttl) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * The first free or expired slot for {@code hash}, or else the oldest.
+         */
+        int victim(int hash, long now, long ttl) {
+            int oldest = (hash & mask) * ENTRY;
+            for (int i = 0; i < PROBES; i++) {
+                int slot = ((hash + i) & mask) * ENTRY;
+                long written = table[slot + WRITTEN];
+                if (written == 0 || now - written >= ttl) {
+                    return slot;
+                }
+                if (written < table[oldest + WRITTEN]) {
+                    oldest = slot;
+                }
+            }
+            return oldest;
+        }
+    }
+}
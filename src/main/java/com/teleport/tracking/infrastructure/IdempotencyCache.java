@@ -0,0 +1,109 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.app.IdempotencyStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the counters issued for recent request fingerprints in a local
+ * {@link FingerprintCache} for {@code tracking.idempotency.ttl}.
+ * <p>
+ * With {@code tracking.idempotency.redis.enabled}, every new fingerprint is also
+ * claimed in Redis with {@code SET NX}, so that a retry landing on another instance
+ * gets the original tracking number too. The retry still leases a counter of its
+ * own before it finds out, which is then burned. If Redis cannot be reached, the
+ * claim falls back to the local cache alone.
+ * <p>
+ * Enabled with {@code tracking.idempotency.enabled=true}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "tracking.idempotency.enabled", havingValue = "true")
+public class IdempotencyCache implements IdempotencyStore, MeterBinder {
+
+    static final String KEY_PREFIX = "tracking:idempotency:";
+
+    private final FingerprintCache cache;
+    private final RedisService redisService;
+    private final Duration ttl;
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder redisFailures = new LongAdder();
+
+    @Autowired
+    public IdempotencyCache(RedisService redisService,
+                            @Value("${tracking.idempotency.capacity:1048576}") int capacity,
+                            @Value("${tracking.idempotency.ttl:10m}") Duration ttl,
+                            @Value("${tracking.idempotency.redis.enabled:false}") boolean redis) {
+        this(redis ? redisService : null, capacity, ttl, System::currentTimeMillis);
+    }
+
+    /**
+     * @param redisService claims fingerprints across instances, or {@code null} for the local cache only
+     */
+    IdempotencyCache(RedisService redisService, int capacity, Duration ttl, LongSupplier clockMillis) {
+        this.cache = new FingerprintCache(capacity, ttl.toMillis(), clockMillis);
+        this.redisService = redisService;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public long find(long fingerprint) {
+        return cache.get(fingerprint);
+    }
+
+    @Override
+    public Mono<Long> claim(long fingerprint, long counter) {
+        long earlier = cache.putIfAbsent(fingerprint, counter);
+        if (earlier != NONE) {
+            conflicts.increment();
+            return Mono.just(earlier);
+        }
+        if (redisService == null) {
+            return Mono.just(counter);
+        }
+        String key = KEY_PREFIX + Long.toHexString(fingerprint);
+        return redisService.setIfAbsent(key, Long.toString(counter), ttl)
+                .flatMap(claimed -> claimed
+                        ? Mono.just(counter)
+                        : redisService.get(key).map(Long::parseLong).defaultIfEmpty(counter))
+                .doOnNext(owner -> {
+                    if (owner != counter) {
+                        conflicts.increment();
+                        cache.put(fingerprint, owner);
+                    }
+                })
+                .onErrorResume(ex -> {
+                    redisFailures.increment();
+                    log.debug("Idempotency claim in Redis failed, keeping the local claim", ex);
+                    return Mono.just(counter);
+                });
+    }
+
+    /**
+     * Claims that found the fingerprint already taken by an earlier counter.
+     */
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tracking.idempotency.conflicts", conflicts, LongAdder::sum)
+                .description("Concurrent duplicates resolved to the counter issued first")
+                .register(registry);
+        FunctionCounter.builder("tracking.idempotency.redis.failures", redisFailures, LongAdder::sum)
+                .description("Fingerprints claimed locally only because Redis failed")
+                .register(registry);
+    }
+}
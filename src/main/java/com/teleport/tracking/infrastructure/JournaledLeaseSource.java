@@ -0,0 +1,178 @@
+package com.teleport.tracking.infrastructure;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Leases ranges from Redis as {@link RedisLeaseSource} does, but hands them to the
+ * provider in steps of {@code tracking.journal.step} counters and records in a
+ * local {@link LeaseJournal} how far it got before releasing each step. A restarted
+ * instance resumes the unissued rest of its Redis lease from the journal instead of
+ * leasing a new one.
+ * <p>
+ * Each step costs one fsync, which the provider's prefetch keeps off the request
+ * path. A killed process loses at most the steps held by the provider, about two
+ * steps, instead of whole leases; a clean shutdown gives those back as well.
+ * <p>
+ * Enabled with {@code tracking.journal.enabled=true}. The journal belongs to one
+ * instance: give every pod its own {@code tracking.journal.path} on a volume that
+ * survives restarts.
+ */
+@Component
+@Primary
+@Slf4j
+@ConditionalOnProperty(name = "tracking.journal.enabled", havingValue = "true")
+public class JournaledLeaseSource implements LeaseSource, MeterBinder {
+
+    private static final long MAX_JOURNAL_SIZE = 64 * 1024;
+
+    private final LeaseSource redis;
+    private final LeaseJournal journal;
+    private final long step;
+    private final AtomicLong recovered = new AtomicLong();
+    private long rangeStart;
+    private long mark;
+    private long end;
+    private long reservations;
+    // the reservation whose record was appended last, guarded by journal
+    private long journaled;
+
+    @Autowired
+    public JournaledLeaseSource(RedisLeaseSource redis,
+                                @Value("${tracking.journal.path:journal/lease.journal}") String path,
+                                @Value("${tracking.journal.step:1000}") long step) {
+        this(redis, Path.of(path), step);
+    }
+
+    public JournaledLeaseSource(LeaseSource redis, Path path, long step) {
+        if (step < 1) {
+            throw new IllegalArgumentException("Journal step must be positive");
+        }
+        this.redis = redis;
+        this.step = step;
+        try {
+            this.journal = new LeaseJournal(path, MAX_JOURNAL_SIZE);
+            long[] state = journal.recover();
+            if (state != null && state[0] < state[1]) {
+                rangeStart = mark = state[0];
+                end = state[1];
+                recovered.addAndGet(end - mark);
+                log.info("Resuming lease [{}, {}) from journal {}", mark, end, path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open lease journal " + path, e);
+        }
+    }
+
+    @Override
+    public Mono<LeaseRange> lease(long size) {
+        return Mono.defer(() -> {
+            synchronized (this) {
+                if (mark < end) {
+                    return reserve();
+                }
+            }
+            return redis.lease(size).flatMap(range -> {
+                synchronized (this) {
+                    rangeStart = mark = range.start();
+                    end = range.end();
+                    return reserve();
+                }
+            });
+        });
+    }
+
+    /**
+     * Blocks bypass the journal: they go to the caller whole and are never released.
+     */
+    @Override
+    public Mono<LeaseRange> leaseExactly(long n) {
+        return redis.lease(n);
+    }
+
+    /**
+     * Takes back {@code unissued} if it ends where the next step would start, so
+     * that the journal written on shutdown points at it.
+     */
+    @Override
+    public synchronized boolean release(LeaseRange unissued) {
+        if (unissued.end() != mark || unissued.start() < rangeStart || unissued.size() <= 0) {
+            return false;
+        }
+        mark = unissued.start();
+        recovered.addAndGet(unissued.size());
+        return true;
+    }
+
+    /**
+     * Counters resumed from the journal or given back on shutdown rather than burned.
+     */
+    public long getRecovered() {
+        return recovered.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tracking.ids.recovered", recovered, AtomicLong::get)
+                .description("Leased counters resumed from the lease journal instead of being burned")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        synchronized (journal) {
+            try {
+                journal.rewrite(mark, end);
+                journaled = Long.MAX_VALUE;
+                log.info("Journaled unissued lease [{}, {})", mark, end);
+            } finally {
+                journal.close();
+            }
+        }
+    }
+
+    /**
+     * Moves the mark past the next step and returns the step once the new mark is on
+     * disk. Should the write fail, the step is skipped rather than reused.
+     */
+    private Mono<LeaseRange> reserve() {
+        long from = mark;
+        long to = Math.min(end, from + step);
+        long rangeEnd = end;
+        long reservation = ++reservations;
+        mark = to;
+        return Mono.fromCallable(() -> {
+            append(reservation, to, rangeEnd);
+            return new LeaseRange(from, to);
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Appends the record of {@code reservation} unless a later reservation got its
+     * record to the journal first. Recovery takes the last record, and the later one
+     * already lies past this step.
+     */
+    private void append(long reservation, long mark, long end) throws IOException {
+        synchronized (journal) {
+            if (reservation > journaled) {
+                journal.append(mark, end);
+                journaled = reservation;
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.teleport.tracking.infrastructure;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An immutable {@code [start, end)} range of counters leased from Redis, with its
+ * own issuing cursor. The cursor may run past {@code end} once the lease is
+ * exhausted; those values are never handed out, so nothing is burned.
+ */
+final class Lease {
+    static final long NONE = -1L;
+    static final Lease EMPTY = new Lease(0, 0, 1.0);
+
+    final long start;
+    final long end;
+    final long prefetchAt;
+    private final AtomicLong cursor;
+
+    Lease(long start, long end, double prefetchThreshold) {
+        this.start = start;
+        this.end = end;
+        this.prefetchAt = start + (long) ((end - start) * prefetchThreshold);
+        this.cursor = new PaddedCursor(start);
+    }
+
+    /**
+     * @return the next counter of this lease, or {@link #NONE} once it is exhausted
+     */
+    long tryNext() {
+        long value = cursor.getAndIncrement();
+        return value < end ? value : NONE;
+    }
+
+    /**
+     * Carves up to {@code max} counters off the front of this lease.
+     *
+     * @return the carved sub-lease, or {@code null} once this lease is exhausted
+     */
+    Lease tryTake(long max) {
+        for (;;) {
+            long from = cursor.get();
+            if (from >= end) {
+                return null;
+            }
+            long to = Math.min(end, from + max);
+            if (cursor.compareAndSet(from, to)) {
+                return new Lease(from, to, 1.0);
+            }
+        }
+    }
+
+    /**
+     * Carves exactly {@code n} counters off the front of this lease.
+     *
+     * @return the first counter carved, or {@link #NONE} if fewer than {@code n} are left
+     */
+    long tryTakeExactly(long n) {
+        for (;;) {
+            long from = cursor.get();
+            if (from + n > end) {
+                return NONE;
+            }
+            if (cursor.compareAndSet(from, from + n)) {
+                return from;
+            }
+        }
+    }
+
+    boolean contains(long value) {
+        return start <= value && value < end;
+    }
+
+    long size() {
+        return end - start;
+    }
+
+    long remaining() {
+        return Math.max(0, end - cursor.get());
+    }
+
+    /**
+     * Keeps a hot cursor off the cache line of whatever is allocated next to it,
+     * so stripes drawing from neighbouring leases do not contend.
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedCursor extends AtomicLong {
+        private long p1, p2, p3, p4, p5, p6, p7;
+
+        private PaddedCursor(long initialValue) {
+            super(initialValue);
+        }
+    }
+}
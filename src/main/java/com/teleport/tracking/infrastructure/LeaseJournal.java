@@ -0,0 +1,144 @@
+package com.teleport.tracking.infrastructure;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only file of {@code (mark, end)} records, each saying that the counters
+ * {@code [mark, end)} of the current Redis lease have not been handed out yet.
+ * Every record is forced to disk before the counters below its mark are issued.
+ * <p>
+ * Records are {@value #RECORD_SIZE} bytes, little-endian: mark, end, a magic number
+ * and a CRC32C of the first 20 bytes, so a torn write at the tail is recognised and
+ * cut off. Recovery takes the last intact record, so the caller must append records
+ * in the order it reserved their counters. Ranges need not grow from one lease to the
+ * next: after a shard failover the next lease may come from a shard with a lower
+ * prefix than the last one.
+ * <p>
+ * The file is compacted to a single record once it reaches {@code maxSize} bytes.
+ * A sibling {@code .lock} file keeps a second process from using the same journal.
+ */
+final class LeaseJournal implements Closeable {
+
+    static final int RECORD_SIZE = 24;
+    static final int MAGIC = 0x314E4A4C; // "LJN1"
+
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final FileChannel channel;
+    private final long maxSize;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32C crc = new CRC32C();
+
+    LeaseJournal(Path file, long maxSize) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.maxSize = Math.max(maxSize, 2 * RECORD_SIZE);
+        this.lockChannel = FileChannel.open(file.resolveSibling(file.getFileName() + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null;
+        }
+        this.lock = acquired;
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Lease journal " + file + " is in use by another process");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Reads the journal back and drops a torn record at its tail.
+     *
+     * @return {@code {mark, end}} of the last record, or {@code null} if there is none
+     */
+    synchronized long[] recover() throws IOException {
+        long[] last = null;
+        long position = 0;
+        long size = channel.size();
+        while (position + RECORD_SIZE <= size) {
+            record.clear();
+            while (record.hasRemaining()) {
+                if (channel.read(record, position + record.position()) < 0) {
+                    break;
+                }
+            }
+            if (record.hasRemaining() || record.getInt(16) != MAGIC || record.getInt(20) != checksum()) {
+                break;
+            }
+            last = new long[]{record.getLong(0), record.getLong(8)};
+            position += RECORD_SIZE;
+        }
+        if (position < size) {
+            channel.truncate(position);
+            channel.force(true);
+        }
+        return last;
+    }
+
+    /**
+     * Appends a record and forces it to disk.
+     */
+    synchronized void append(long mark, long end) throws IOException {
+        long position = channel.size();
+        if (position + RECORD_SIZE > maxSize) {
+            rewrite(mark, end);
+            return;
+        }
+        write(mark, end, position);
+        channel.force(false);
+    }
+
+    /**
+     * Replaces the whole journal with one record. Unlike {@link #append}, the record
+     * may move the mark back.
+     */
+    synchronized void rewrite(long mark, long end) throws IOException {
+        channel.truncate(0);
+        channel.force(true);
+        write(mark, end, 0);
+        channel.force(true);
+    }
+
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            lock.release();
+            lockChannel.close();
+        }
+    }
+
+    private void write(long mark, long end, long position) throws IOException {
+        record.clear();
+        record.putLong(0, mark).putLong(8, end).putInt(16, MAGIC).putInt(20, checksum());
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+    }
+
+    private int checksum() {
+        crc.reset();
+        crc.update(record.array(), 0, 20);
+        return (int) crc.getValue();
+    }
+}
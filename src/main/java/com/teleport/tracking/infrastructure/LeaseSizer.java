@@ -0,0 +1,114 @@
+package com.teleport.tracking.infrastructure;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Decides how many counters to lease from Redis on each refresh. In adaptive mode
+ * the size follows an exponentially weighted moving average of the issuance rate,
+ * so that a lease lasts roughly {@code targetDuration}: quiet pods hold small
+ * ranges and busy pods go to Redis less often.
+ */
+@Component
+public class LeaseSizer implements MeterBinder {
+
+    private final boolean adaptive;
+    private final long minSize;
+    private final long maxSize;
+    private final double targetSeconds;
+    private final double windowSeconds;
+
+    private volatile long currentSize;
+    private volatile double issueRate;
+    private volatile double refreshRate;
+    private long lastSampleNanos;
+    private long lastIssued;
+    private boolean sampled;
+
+    @Autowired
+    public LeaseSizer(@Value("${tracking.lease.batch-size:10000}") long initialSize,
+                      @Value("${tracking.lease.adaptive.enabled:true}") boolean adaptive,
+                      @Value("${tracking.lease.adaptive.target-duration:2s}") Duration targetDuration,
+                      @Value("${tracking.lease.adaptive.min-size:1000}") long minSize,
+                      @Value("${tracking.lease.adaptive.max-size:100000}") long maxSize,
+                      @Value("${tracking.lease.adaptive.window:10s}") Duration window) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("Invalid lease size bounds [" + minSize + ", " + maxSize + "]");
+        }
+        this.adaptive = adaptive;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetSeconds = targetDuration.toNanos() / 1e9;
+        this.windowSeconds = window.toNanos() / 1e9;
+        this.currentSize = adaptive ? clamp(initialSize) : initialSize;
+    }
+
+    /**
+     * A sizer that always leases {@code size} counters.
+     */
+    public static LeaseSizer fixed(long size) {
+        return new LeaseSizer(size, false, Duration.ofSeconds(2), 1, Math.max(1, size), Duration.ofSeconds(10));
+    }
+
+    /**
+     * Records a refresh and returns the size of the lease to fetch for it.
+     *
+     * @param nowNanos    {@link System#nanoTime()} at the refresh
+     * @param issuedTotal counters handed out by the provider so far
+     */
+    public synchronized long nextSize(long nowNanos, long issuedTotal) {
+        if (sampled) {
+            double elapsed = (nowNanos - lastSampleNanos) / 1e9;
+            if (elapsed > 0) {
+                double alpha = 1 - Math.exp(-elapsed / windowSeconds);
+                issueRate += alpha * ((issuedTotal - lastIssued) / elapsed - issueRate);
+                refreshRate += alpha * (1 / elapsed - refreshRate);
+                if (adaptive) {
+                    currentSize = clamp(Math.round(issueRate * targetSeconds));
+                }
+            }
+        }
+        sampled = true;
+        lastSampleNanos = nowNanos;
+        lastIssued = issuedTotal;
+        return currentSize;
+    }
+
+    public long getCurrentSize() {
+        return currentSize;
+    }
+
+    /**
+     * Smoothed number of counters issued per second.
+     */
+    public double getIssueRate() {
+        return issueRate;
+    }
+
+    /**
+     * Smoothed number of Redis lease refreshes per second.
+     */
+    public double getRefreshRate() {
+        return refreshRate;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tracking.lease.size", this, LeaseSizer::getCurrentSize)
+                .description("Number of counters requested from Redis per lease")
+                .register(registry);
+        Gauge.builder("tracking.lease.refresh.rate", this, LeaseSizer::getRefreshRate)
+                .description("Redis lease refreshes per second")
+                .register(registry);
+    }
+
+    private long clamp(long size) {
+        return Math.max(minSize, Math.min(maxSize, size));
+    }
+}
@@ -0,0 +1,42 @@
+package com.teleport.tracking.infrastructure;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Where {@link RedisTrackingNumberProvider} gets the counter ranges it issues from.
+ */
+public interface LeaseSource {
+
+    /**
+     * Leases a range of fresh counters, {@code size} of them unless the source hands
+     * out smaller steps.
+     */
+    Mono<LeaseRange> lease(long size);
+
+    /**
+     * Leases a range of exactly {@code n} fresh counters, for a caller that needs them
+     * in one block.
+     */
+    default Mono<LeaseRange> leaseExactly(long n) {
+        return lease(n);
+    }
+
+    /**
+     * Offers back counters that were leased but will not be issued, newest range
+     * first, when the provider shuts down.
+     *
+     * @return {@code true} if the source will lease them again, {@code false} if they are burned
+     */
+    default boolean release(LeaseRange unissued) {
+        return false;
+    }
+
+    /**
+     * The counters {@code [start, end)}.
+     */
+    record LeaseRange(long start, long end) {
+        public long size() {
+            return end - start;
+        }
+    }
+}
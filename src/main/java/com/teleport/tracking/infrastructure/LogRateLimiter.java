@@ -0,0 +1,65 @@
+package com.teleport.tracking.infrastructure;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lets at most {@code maxPerSecond} log lines through per one-second window.
+ * The window and the count in it share one {@link AtomicLong}, so a permit is a
+ * single CAS and nothing is allocated.
+ */
+public class LogRateLimiter {
+
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long SECOND = 1_000_000_000L;
+
+    private final long maxPerSecond;
+    private final LongSupplier nanoTime;
+    private final long origin;
+    private final AtomicLong window = new AtomicLong();
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * @param maxPerSecond lines allowed per second; {@code 0} or less lets everything through
+     */
+    public LogRateLimiter(long maxPerSecond) {
+        this(maxPerSecond, System::nanoTime);
+    }
+
+    LogRateLimiter(long maxPerSecond, LongSupplier nanoTime) {
+        this.maxPerSecond = Math.min(maxPerSecond, COUNT_MASK);
+        this.nanoTime = nanoTime;
+        this.origin = nanoTime.getAsLong();
+    }
+
+    public boolean tryAcquire() {
+        if (maxPerSecond <= 0) {
+            return true;
+        }
+        long second = (nanoTime.getAsLong() - origin) / SECOND;
+        for (;;) {
+            long current = window.get();
+            long next;
+            if (current >>> COUNT_BITS != second) {
+                next = (second << COUNT_BITS) | 1;
+            } else if ((current & COUNT_MASK) < maxPerSecond) {
+                next = current + 1;
+            } else {
+                suppressed.increment();
+                return false;
+            }
+            if (window.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Lines refused so far.
+     */
+    public long getSuppressed() {
+        return suppressed.sum();
+    }
+}
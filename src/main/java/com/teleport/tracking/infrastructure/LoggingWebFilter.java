@@ -1,50 +1,148 @@
 package com.teleport.tracking.infrastructure;
 
+import com.teleport.tracking.app.TraceContext;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.extern.slf4j.Slf4j;
-import org.slf4j.MDC;
-import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
-import java.util.UUID;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
 
+import static net.logstash.logback.argument.StructuredArguments.keyValue;
+
+/**
+ * Gives every request a trace id, taken from {@value #TRACE_ID_HEADER} or
+ * generated, and writes the access log. The trace id is put in the Reactor
+ * {@link reactor.util.context.Context} through {@link TraceContext} rather than in
+ * the thread-local MDC; access log lines and the error lines of the request read
+ * it from there and carry it as the structured argument {@value #TRACE_ID_KEY}.
+ * <p>
+ * {@code tracking.logging.access.mode} picks one {@code combined} line per request
+ * with the status and latency, the {@code split} request and response lines, or
+ * {@code off}. Successful requests are sampled at
+ * {@code tracking.logging.access.sample-rate}; failed ones are always eligible.
+ * {@code tracking.logging.access.max-per-second} caps the lines written.
+ */
 @Component
 @Slf4j
-public class LoggingWebFilter implements WebFilter {
-    public static final String TRACE_ID_KEY = "traceId";
+public class LoggingWebFilter implements WebFilter, MeterBinder {
+    public static final String TRACE_ID_KEY = TraceContext.KEY;
     public static final String TRACE_ID_HEADER = "X-Trace-Id";
 
+    public enum Mode {
+        COMBINED, SPLIT, OFF
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Mode mode;
+    private final double sampleRate;
+    private final LogRateLimiter rateLimiter;
+
+    @Autowired
+    public LoggingWebFilter(@Value("${tracking.logging.access.mode:combined}") String mode,
+                            @Value("${tracking.logging.access.sample-rate:1.0}") double sampleRate,
+                            @Value("${tracking.logging.access.max-per-second:0}") long maxPerSecond) {
+        this(Mode.valueOf(mode.toUpperCase(Locale.ROOT)), sampleRate, new LogRateLimiter(maxPerSecond));
+    }
+
+    public LoggingWebFilter(Mode mode, double sampleRate, LogRateLimiter rateLimiter) {
+        this.mode = mode;
+        this.sampleRate = sampleRate;
+        this.rateLimiter = rateLimiter;
+    }
+
+    public LoggingWebFilter() {
+        this(Mode.COMBINED, 1.0, new LogRateLimiter(0));
+    }
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-        String method = exchange.getRequest().getMethod().name();
-        String path = exchange.getRequest().getURI().toString();
         String traceId = resolveOrGenerateTraceId(exchange);
-        MDC.put(TRACE_ID_KEY, traceId);
-        logRequest(method, path);
+        Mono<Void> filtered = chain.filter(exchange).contextWrite(TraceContext.of(traceId));
+        if (mode == Mode.OFF || !log.isInfoEnabled()) {
+            return filtered;
+        }
+        if (mode == Mode.SPLIT) {
+            if (!sampled() || !rateLimiter.tryAcquire()) {
+                return filtered;
+            }
+            ServerHttpRequest request = exchange.getRequest();
+            String method = request.getMethod().name();
+            String path = request.getURI().toString();
+            log.info("Incoming request: {} {} {}", method, path, keyValue(TRACE_ID_KEY, traceId));
+            return filtered.doOnSuccess(aVoid -> log.info("Outgoing response: {} {} - Path: {} {}",
+                    method, status(exchange), path, keyValue(TRACE_ID_KEY, traceId)));
+        }
+        long start = System.nanoTime();
+        return filtered.doFinally(signal -> logAccess(exchange, traceId, start, signal));
+    }
 
-        ServerHttpResponse originalResponse = exchange.getResponse();
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tracking.access.log.suppressed", rateLimiter, LogRateLimiter::getSuppressed)
+                .description("Access log lines dropped by the rate limit")
+                .register(registry);
+    }
+
+    /**
+     * A random 128-bit id as 32 hex digits, the W3C trace-context format. Not
+     * cryptographically strong, which a trace id does not need.
+     */
+    static String generateTraceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] chars = new char[32];
+        toHex(random.nextLong(), chars, 0);
+        toHex(random.nextLong(), chars, 16);
+        return new String(chars);
+    }
 
-        return chain.filter(exchange)
-            .doOnSuccess(aVoid -> {
-                int status = originalResponse.getStatusCode() != null ? originalResponse.getStatusCode().value() : 0;
-                logResponse(method, path, status);
-                MDC.remove(TRACE_ID_KEY);
-            })
-            .doOnError(e -> MDC.remove(TRACE_ID_KEY));
+    private static void toHex(long value, char[] chars, int offset) {
+        for (int i = offset + 15; i >= offset; i--) {
+            chars[i] = HEX[(int) value & 0xF];
+            value >>>= 4;
+        }
     }
+
     private String resolveOrGenerateTraceId(ServerWebExchange exchange) {
         String traceId = exchange.getRequest().getHeaders().getFirst(TRACE_ID_HEADER);
-        return (traceId == null || traceId.isEmpty()) ? UUID.randomUUID().toString() : traceId;
+        return (traceId == null || traceId.isEmpty()) ? generateTraceId() : traceId;
+    }
+
+    private void logAccess(ServerWebExchange exchange, String traceId, long start, SignalType signal) {
+        int status = signal == SignalType.ON_ERROR ? 500 : status(exchange);
+        boolean failed = status >= 500;
+        if ((!failed && !sampled()) || !rateLimiter.tryAcquire()) {
+            return;
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        long micros = (System.nanoTime() - start) / 1_000;
+        log.info("{} {} {} {}.{} ms{} {}", request.getMethod().name(), request.getURI(), status,
+                micros / 1_000, fraction(micros % 1_000), signal == SignalType.CANCEL ? " (cancelled)" : "",
+                keyValue(TRACE_ID_KEY, traceId));
+    }
+
+    private static String fraction(long micros) {
+        return micros < 10 ? "00" + micros : micros < 100 ? "0" + micros : Long.toString(micros);
     }
 
-    private void logRequest(String method, String path) {
-        log.info("Incoming request: {} {}", method, path);
+    private boolean sampled() {
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
     }
 
-    private void logResponse(String method, String path, int status) {
-        log.info("Outgoing response: {} {} - Path: {}", method,status, path);
+    private static int status(ServerWebExchange exchange) {
+        HttpStatusCode statusCode = exchange.getResponse().getStatusCode();
+        return statusCode != null ? statusCode.value() : 0;
     }
 }
@@ -0,0 +1,214 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.app.IssuanceAuditLog;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Appends issued tracking numbers as fixed-size binary records to memory-mapped
+ * segment files in {@code tracking.audit.directory}. Writers reserve a slot with one
+ * atomic increment and fill it with plain stores, so appending neither locks nor
+ * allocates; only the thread that finds a segment full takes a lock, to map the
+ * next one. Decode the files with {@link AuditLogReader}.
+ * <p>
+ * Each segment starts with a {@value #HEADER_SIZE}-byte header (magic, version,
+ * record size, creation time) followed by {@value #RECORD_SIZE}-byte little-endian
+ * records:
+ * <pre>
+ *  0  long  counter
+ *  8  long  issued at, epoch milliseconds
+ * 16  long  customer hash, see {@link IssuanceAuditLog#customerHash(String)}
+ * 24  int   country pair, see {@link IssuanceAuditLog#countryPair(String, String)}
+ * 28  int   {@link #COMMITTED} once the record is complete
+ * </pre>
+ * Records reach the page cache, not the disk: they survive a crash of the process
+ * but not of the machine. Segments are forced on shutdown.
+ * <p>
+ * Enabled with {@code tracking.audit.enabled=true}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "tracking.audit.enabled", havingValue = "true")
+public class MappedIssuanceAuditLog implements IssuanceAuditLog, MeterBinder {
+
+    static final long MAGIC = 0x54494455414B5254L; // "TRKAUDIT" read as little-endian bytes
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 32;
+    static final int COMMITTED = 0x31435254; // "TRC1"
+    static final Pattern SEGMENT_NAME = Pattern.compile("issued-(\\d{12})\\.bin");
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final LongAdder dropped = new LongAdder();
+    private volatile Segment current;
+    private long recordsInClosedSegments;
+
+    @Autowired
+    public MappedIssuanceAuditLog(@Value("${tracking.audit.directory:audit}") String directory,
+                                  @Value("${tracking.audit.segment-size:64MB}") DataSize segmentSize) {
+        this(Path.of(directory), (int) Math.min(Integer.MAX_VALUE - HEADER_SIZE, segmentSize.toBytes() - HEADER_SIZE) / RECORD_SIZE);
+    }
+
+    public MappedIssuanceAuditLog(Path directory, int recordsPerSegment) {
+        if (recordsPerSegment < 1) {
+            throw new IllegalArgumentException("Audit segments must hold at least one record");
+        }
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        try {
+            Files.createDirectories(directory);
+            this.current = open(lastSegmentIndex(directory) + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open audit log in " + directory, e);
+        }
+    }
+
+    @Override
+    public void append(long counter, long issuedAtMillis, long customerHash, int countryPair) {
+        for (;;) {
+            Segment segment = current;
+            if (segment == null) {
+                dropped.increment();
+                return;
+            }
+            int slot = segment.nextSlot.getAndIncrement();
+            if (slot < segment.capacity) {
+                segment.write(slot, counter, issuedAtMillis, customerHash, countryPair);
+                return;
+            }
+            roll(segment);
+        }
+    }
+
+    /**
+     * Records appended since startup.
+     */
+    public synchronized long getRecords() {
+        Segment segment = current;
+        return recordsInClosedSegments + (segment == null ? 0 : Math.min(segment.nextSlot.get(), segment.capacity));
+    }
+
+    /**
+     * Records lost because the next segment could not be created.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tracking.audit.records", this, MappedIssuanceAuditLog::getRecords)
+                .description("Issued tracking numbers written to the audit log")
+                .register(registry);
+        FunctionCounter.builder("tracking.audit.dropped", this, MappedIssuanceAuditLog::getDropped)
+                .description("Issued tracking numbers the audit log failed to record")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        Segment segment = current;
+        current = null;
+        if (segment != null) {
+            segment.buffer.force();
+            recordsInClosedSegments += Math.min(segment.nextSlot.get(), segment.capacity);
+        }
+    }
+
+    static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> SEGMENT_NAME.matcher(file.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long lastSegmentIndex(Path directory) throws IOException {
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        Matcher matcher = SEGMENT_NAME.matcher(segments.get(segments.size() - 1).getFileName().toString());
+        matcher.matches();
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private synchronized void roll(Segment full) {
+        if (current != full) {
+            return;
+        }
+        recordsInClosedSegments += full.capacity;
+        try {
+            current = open(full.index + 1);
+        } catch (IOException e) {
+            current = null;
+            log.error("Cannot create audit segment {} in {}, audit log disabled", full.index + 1, directory, e);
+        }
+    }
+
+    private Segment open(long index) throws IOException {
+        Path path = directory.resolve(String.format("issued-%012d.bin", index));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) recordsPerSegment * RECORD_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putLong(0, MAGIC);
+            buffer.putInt(8, VERSION);
+            buffer.putInt(12, RECORD_SIZE);
+            buffer.putLong(16, System.currentTimeMillis());
+            log.info("Opened audit segment {}", path);
+            return new Segment(index, buffer, recordsPerSegment);
+        }
+    }
+
+    private static final class Segment {
+        final long index;
+        final MappedByteBuffer buffer;
+        final int capacity;
+        final AtomicInteger nextSlot = new AtomicInteger();
+
+        Segment(long index, MappedByteBuffer buffer, int capacity) {
+            this.index = index;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+
+        void write(int slot, long counter, long issuedAtMillis, long customerHash, int countryPair) {
+            int offset = HEADER_SIZE + slot * RECORD_SIZE;
+            buffer.putLong(offset, counter);
+            buffer.putLong(offset + 8, issuedAtMillis);
+            buffer.putLong(offset + 16, customerHash);
+            buffer.putInt(offset + 24, countryPair);
+            INT.setRelease(buffer, offset + 28, COMMITTED);
+        }
+    }
+}
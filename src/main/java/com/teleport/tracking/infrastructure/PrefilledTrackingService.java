@@ -0,0 +1,285 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.app.IssuedTrackingNumber;
+import com.teleport.tracking.app.TrackingService;
+import com.teleport.tracking.domain.CounterBlock;
+import com.teleport.tracking.domain.CounterSpace;
+import com.teleport.tracking.domain.TrackingNumberProvider;
+import com.teleport.tracking.domain.TrackingServiceImpl;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Serves single tracking numbers from a ring of numbers encoded ahead of time, so
+ * that the request thread only dequeues. A producer on its own thread carves chunks
+ * of up to {@code tracking.prefill.chunk-size} counters off the provider's current
+ * lease, encodes them and tops the ring up to a target fill level whenever a
+ * request finds it below half of that. Chunks go through the lease like single
+ * requests do, so the standby lease is used and no chunk costs a Redis round trip
+ * of its own.
+ * <p>
+ * The target follows an exponentially weighted moving average of the dequeue rate,
+ * so that the ring holds about {@code tracking.prefill.target-duration} of requests,
+ * between {@code tracking.prefill.min-size} and {@code tracking.prefill.capacity}.
+ * A request that finds the ring empty is served by {@link TrackingServiceImpl}
+ * directly. The first fill starts when the application is ready. Numbers still
+ * in the ring at shutdown are never issued; they are reported as burned.
+ * <p>
+ * Namespaced numbers, batches and streams are not prefilled. Enabled with
+ * {@code tracking.prefill.enabled=true}.
+ */
+@Service
+@Primary
+@Slf4j
+@ConditionalOnProperty(name = "tracking.prefill.enabled", havingValue = "true")
+public class PrefilledTrackingService implements TrackingService, MeterBinder {
+
+    private static final double WINDOW_SECONDS = 1.0;
+
+    private final TrackingService delegate;
+    private final TrackingNumberProvider provider;
+    private final LongConsumer burn;
+    private final SpmcRingBuffer<IssuedTrackingNumber> ring;
+    private final int minSize;
+    private final int chunkSize;
+    private final double targetSeconds;
+    private final Scheduler scheduler;
+    private final LongSupplier nanoTime;
+    private final AtomicBoolean filling = new AtomicBoolean();
+    private final LongAdder served = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private volatile int target;
+    private volatile boolean closed;
+    // touched only by the fill that holds filling
+    private double rate;
+    private long lastSampleNanos;
+    private long lastServed;
+
+    @Autowired
+    public PrefilledTrackingService(TrackingServiceImpl delegate,
+                                    TrackingNumberProvider provider,
+                                    RedisTrackingNumberProvider redis,
+                                    @Value("${tracking.prefill.capacity:65536}") int capacity,
+                                    @Value("${tracking.prefill.min-size:1024}") int minSize,
+                                    @Value("${tracking.prefill.target-duration:100ms}") Duration targetDuration,
+                                    @Value("${tracking.prefill.chunk-size:256}") int chunkSize) {
+        this(delegate, provider, redis::burn, capacity, minSize, targetDuration, chunkSize,
+                Schedulers.newSingle("tracking-prefill", true), System::nanoTime);
+    }
+
+    /**
+     * @param burn receives the number of leased counters dropped at shutdown
+     */
+    PrefilledTrackingService(TrackingService delegate, TrackingNumberProvider provider, LongConsumer burn,
+                             int capacity, int minSize, Duration targetDuration, int chunkSize,
+                             Scheduler scheduler, LongSupplier nanoTime) {
+        if (chunkSize < 1 || minSize < chunkSize || capacity < minSize) {
+            throw new IllegalArgumentException("Prefill sizes must satisfy 1 <= chunk-size <= min-size <= capacity");
+        }
+        this.delegate = delegate;
+        this.provider = provider;
+        this.burn = burn;
+        this.ring = new SpmcRingBuffer<>(capacity);
+        this.minSize = minSize;
+        this.chunkSize = chunkSize;
+        this.targetSeconds = targetDuration.toNanos() / 1e9;
+        this.scheduler = scheduler;
+        this.nanoTime = nanoTime;
+        this.target = minSize;
+        this.lastSampleNanos = nanoTime.getAsLong();
+    }
+
+    /**
+     * Starts filling the ring once the application is ready to serve, so that no
+     * lease is taken while the context is still starting, or for one that fails to.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        requestFill();
+    }
+
+    @Override
+    public Mono<String> generateTrackingNumber() {
+        return issueTrackingNumber().map(IssuedTrackingNumber::trackingNumber);
+    }
+
+    @Override
+    public Mono<IssuedTrackingNumber> issueTrackingNumber() {
+        IssuedTrackingNumber issued = ring.poll();
+        if (ring.size() < target / 2) {
+            requestFill();
+        }
+        if (issued == null) {
+            misses.increment();
+            return delegate.issueTrackingNumber();
+        }
+        served.increment();
+        return Mono.just(issued);
+    }
+
+    @Override
+    public Mono<IssuedTrackingNumber> issueTrackingNumber(String namespace) {
+        return namespace == null ? issueTrackingNumber() : delegate.issueTrackingNumber(namespace);
+    }
+
+    @Override
+    public IssuedTrackingNumber trackingNumberOf(long counter) {
+        return delegate.trackingNumberOf(counter);
+    }
+
+    @Override
+    public Mono<List<String>> generateTrackingNumbers(int count) {
+        return delegate.generateTrackingNumbers(count);
+    }
+
+    @Override
+    public Mono<List<String>> generateTrackingNumberChunk(int max) {
+        return delegate.generateTrackingNumberChunk(max);
+    }
+
+    public int getSize() {
+        return ring.size();
+    }
+
+    /**
+     * Fill level the producer currently tops the ring up to.
+     */
+    public int getTarget() {
+        return target;
+    }
+
+    /**
+     * Requests that found the ring empty and were encoded on the request thread.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tracking.prefill.size", this, PrefilledTrackingService::getSize)
+                .description("Encoded tracking numbers ready in the ring")
+                .register(registry);
+        Gauge.builder("tracking.prefill.target", this, PrefilledTrackingService::getTarget)
+                .description("Fill level the prefill producer aims for")
+                .register(registry);
+        FunctionCounter.builder("tracking.prefill.misses", misses, LongAdder::sum)
+                .description("Requests that found the prefill ring empty")
+                .register(registry);
+        FunctionCounter.builder("tracking.prefill.discarded", discarded, LongAdder::sum)
+                .description("Encoded tracking numbers dropped from the ring at shutdown")
+                .register(registry);
+    }
+
+    /**
+     * Stops the producer and accounts for the numbers left in the ring.
+     */
+    @PreDestroy
+    void shutdown() {
+        long leased = 0;
+        long dropped = 0;
+        // a block being enqueued either completes before the drain or sees closed
+        synchronized (ring) {
+            closed = true;
+            for (IssuedTrackingNumber issued = ring.poll(); issued != null; issued = ring.poll()) {
+                dropped++;
+                if (!CounterSpace.isFallback(issued.counter())) {
+                    leased++;
+                }
+            }
+        }
+        scheduler.dispose();
+        discarded.add(dropped);
+        burn.accept(leased);
+        if (dropped > 0) {
+            log.info("Shutting down with {} prefilled tracking numbers unissued", dropped);
+        }
+    }
+
+    private void requestFill() {
+        if (!closed && filling.compareAndSet(false, true)) {
+            scheduler.schedule(this::fill);
+        }
+    }
+
+    /**
+     * Fetches one chunk, encodes it into the ring and goes on with the next until the
+     * ring reaches the target. Runs on the prefill thread, one chunk at a time.
+     */
+    private void fill() {
+        int size = ring.size();
+        resize();
+        int room = Math.min(target, ring.capacity()) - size;
+        if (closed || room < chunkSize) {
+            filling.set(false);
+            return;
+        }
+        provider.nextCounterChunk(chunkSize)
+                .publishOn(scheduler)
+                .subscribe(this::enqueue, error -> {
+                    filling.set(false);
+                    log.warn("Prefill could not fetch counters; requests are encoded directly until it can", error);
+                }, () -> {
+                    if (closed) {
+                        filling.set(false);
+                    } else {
+                        fill();
+                    }
+                });
+    }
+
+    private void enqueue(CounterBlock block) {
+        synchronized (ring) {
+            for (int i = 0; i < block.size(); i++) {
+                long counter = block.start() + i;
+                if (closed || !ring.offer(delegate.trackingNumberOf(counter))) {
+                    // the ring had room for the block, so only shutdown gets here
+                    if (!CounterSpace.isFallback(counter)) {
+                        burn.accept(block.size() - i);
+                    }
+                    discarded.add(block.size() - i);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the target towards {@code rate * targetDuration}.
+     */
+    private void resize() {
+        long now = nanoTime.getAsLong();
+        long total = served.sum() + misses.sum();
+        double elapsed = (now - lastSampleNanos) / 1e9;
+        if (elapsed <= 0) {
+            return;
+        }
+        double alpha = 1 - Math.exp(-elapsed / WINDOW_SECONDS);
+        rate += alpha * ((total - lastServed) / elapsed - rate);
+        lastSampleNanos = now;
+        lastServed = total;
+        target = (int) Math.max(minSize, Math.min(ring.capacity(), Math.round(rate * targetSeconds)));
+    }
+}
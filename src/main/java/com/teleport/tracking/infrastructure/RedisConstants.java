@@ -2,5 +2,6 @@ package com.teleport.tracking.infrastructure;
 
 public class RedisConstants {
     public static final long BATCH_SIZE = 10000L;
+    public static final double PREFETCH_THRESHOLD = 0.5;
     public static final String TRACKING_COUNTER_KEY = "tracking:counter";
 }
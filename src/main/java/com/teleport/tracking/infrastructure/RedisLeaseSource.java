@@ -0,0 +1,195 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.domain.CounterSpace;
+import com.teleport.tracking.domain.TrackingNumberGenerationException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.teleport.tracking.infrastructure.RedisConstants.TRACKING_COUNTER_KEY;
+
+/**
+ * Leases every range straight from Redis with one {@code INCRBY}.
+ * <p>
+ * By default all instances share {@value RedisConstants#TRACKING_COUNTER_KEY}. With
+ * {@code tracking.redis.shards=K} the counter is spread over the keys
+ * {@code tracking:counter:{0}} to {@code tracking:counter:{K-1}}; the hash tags put
+ * each key in its own Redis Cluster slot. Each shard key owns its own prefix of the
+ * counter space ({@link CounterSpace#shardCounter}), so the keys never need to agree
+ * with each other or with the unsharded key.
+ * <p>
+ * An instance leases from the shard its {@code tracking.redis.instance-id} hashes to
+ * on a consistent-hash ring, so changing {@code K} moves only about {@code 1/K} of
+ * the instances. If that shard fails, the instance moves on to the next shard on the
+ * ring and tries its own shard again after {@link #HOME_RETRY_NANOS}.
+ */
+@Component
+@Slf4j
+public class RedisLeaseSource implements LeaseSource, MeterBinder {
+
+    static final int VIRTUAL_NODES = 64;
+    static final long HOME_RETRY_NANOS = 30_000_000_000L;
+
+    private final RedisService redisService;
+    private final String[] keys;
+    private final int[] shardOrder;
+    private final AtomicInteger current = new AtomicInteger();
+    private final LongAdder failovers = new LongAdder();
+    private volatile long homeRetryAt;
+
+    @Autowired
+    public RedisLeaseSource(RedisService redisService,
+                            @Value("${tracking.redis.shards:0}") int shards,
+                            @Value("${tracking.redis.instance-id:${HOSTNAME:}}") String instanceId) {
+        if (shards < 0 || shards > CounterSpace.MAX_SHARDS) {
+            throw new IllegalArgumentException("tracking.redis.shards must be between 0 and " + CounterSpace.MAX_SHARDS);
+        }
+        this.redisService = redisService;
+        if (shards == 0) {
+            this.keys = new String[]{TRACKING_COUNTER_KEY};
+            this.shardOrder = new int[]{-1};
+            return;
+        }
+        this.keys = new String[shards];
+        for (int s = 0; s < shards; s++) {
+            keys[s] = shardKey(s);
+        }
+        String id = instanceId == null || instanceId.isBlank() ? UUID.randomUUID().toString() : instanceId;
+        this.shardOrder = shardOrder(id, shards);
+        log.info("Instance {} leases from shard {} of {}", id, shardOrder[0], shards);
+    }
+
+    public RedisLeaseSource(RedisService redisService) {
+        this(redisService, 0, null);
+    }
+
+    static String shardKey(int shard) {
+        return TRACKING_COUNTER_KEY + ":{" + shard + "}";
+    }
+
+    @Override
+    public Mono<LeaseRange> lease(long size) {
+        if (shardOrder[0] < 0) {
+            return redisService.incrementCounterWithDelta(TRACKING_COUNTER_KEY, size)
+                    .flatMap(end -> {
+                        if (end >= CounterSpace.SHARD_COUNTER_LIMIT) {
+                            // past it the counters would run into the prefix of shard 0
+                            return Mono.<LeaseRange>error(new TrackingNumberGenerationException(
+                                    "Counter " + TRACKING_COUNTER_KEY + " is exhausted", null));
+                        }
+                        return Mono.just(new LeaseRange(end - size + 1, end + 1));
+                    });
+        }
+        int start = current.get();
+        if (start != 0 && System.nanoTime() - homeRetryAt >= 0) {
+            start = 0;
+        }
+        return leaseFromShard(start, start, size);
+    }
+
+    /**
+     * The shard this instance leases from at the moment, or {@code -1} when unsharded.
+     */
+    public int getShard() {
+        return shardOrder[current.get()];
+    }
+
+    /**
+     * Shards in the order this instance tries them: its own first, then its siblings
+     * clockwise on the ring.
+     */
+    int[] getShardOrder() {
+        return shardOrder.clone();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tracking.redis.shard", this, RedisLeaseSource::getShard)
+                .description("Counter shard this instance leases from, -1 when unsharded")
+                .register(registry);
+        FunctionCounter.builder("tracking.redis.shard.failovers", failovers, LongAdder::sum)
+                .description("Leases that moved on to a sibling shard")
+                .register(registry);
+    }
+
+    private Mono<LeaseRange> leaseFromShard(int index, int first, long size) {
+        int shard = shardOrder[index];
+        return redisService.incrementCounterWithDelta(keys[shard], size)
+                .flatMap(end -> {
+                    if (end >= CounterSpace.SHARD_COUNTER_LIMIT) {
+                        return Mono.<LeaseRange>error(new TrackingNumberGenerationException(
+                                "Counter shard " + shard + " is exhausted", null));
+                    }
+                    int previous = current.getAndSet(index);
+                    if (index != 0 && (previous != index || first != index)) {
+                        homeRetryAt = System.nanoTime() + HOME_RETRY_NANOS;
+                    }
+                    return Mono.just(new LeaseRange(CounterSpace.shardCounter(shard, end - size + 1),
+                            CounterSpace.shardCounter(shard, end) + 1));
+                })
+                .onErrorResume(ex -> {
+                    int next = (index + 1) % shardOrder.length;
+                    if (next == first) {
+                        return Mono.error(ex);
+                    }
+                    failovers.increment();
+                    log.warn("Lease from counter shard {} failed, trying shard {}", shard, shardOrder[next], ex);
+                    return leaseFromShard(next, first, size);
+                });
+    }
+
+    /**
+     * Walks the ring clockwise from the instance's position and lists every shard in
+     * the order it is first met.
+     */
+    static int[] shardOrder(String instanceId, int shards) {
+        long[] points = new long[shards * VIRTUAL_NODES];
+        for (int s = 0; s < shards; s++) {
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                // low bits carry the shard so that sorting the points keeps it
+                points[s * VIRTUAL_NODES + v] = (mix((long) s << 32 | v) & ~0x1FFL) | s;
+            }
+        }
+        Arrays.sort(points);
+        long position = mix(hash(instanceId)) & ~0x1FFL;
+        int at = Arrays.binarySearch(points, position);
+        at = at >= 0 ? at : -at - 1;
+        int[] order = new int[shards];
+        boolean[] seen = new boolean[shards];
+        for (int i = 0, found = 0; found < shards; i++) {
+            int shard = (int) (points[(at + i) % points.length] & 0x1FF);
+            if (!seen[shard]) {
+                seen[shard] = true;
+                order[found++] = shard;
+            }
+        }
+        return order;
+    }
+
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
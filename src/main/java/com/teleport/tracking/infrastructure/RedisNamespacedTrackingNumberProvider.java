@@ -0,0 +1,272 @@
+package com.teleport.tracking.infrastructure;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.teleport.tracking.domain.CounterSpace;
+import com.teleport.tracking.domain.NamespacedTrackingNumberProvider;
+import com.teleport.tracking.domain.TrackingNumberGenerationException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gives every namespace its own Redis counter and its own local lease of
+ * {@code tracking.namespace.lease-size} counters from it.
+ * <p>
+ * A namespace is registered in Redis on first use under a dense id, which places its
+ * counters in their own part of the counter space ({@link CounterSpace#namespaceCounter}).
+ * Leases are held in a W-TinyLFU cache of at most {@code tracking.namespace.max-active}
+ * namespaces, so thousands of tenants cost a bounded amount of heap. A lease evicted
+ * for size or after {@code tracking.namespace.idle-timeout} without use is closed and
+ * its unissued rest given back to Redis, which works as long as no other instance has
+ * leased from that namespace since; otherwise the rest is burned.
+ * <p>
+ * Namespaces have no prefetch: the request that finds its lease empty waits for the
+ * next one, and concurrent requests of the namespace share that round trip.
+ */
+@Component
+@Slf4j
+@ConditionalOnExpression("'${tracking.namespace.key:none}' != 'none'")
+public class RedisNamespacedTrackingNumberProvider implements NamespacedTrackingNumberProvider, MeterBinder {
+
+    static final String NAMESPACE_IDS_KEY = "tracking:namespace:ids";
+    static final String NAMESPACE_KEY_PREFIX = "tracking:namespace:";
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+
+    private final RedisService redisService;
+    private final long leaseSize;
+    private final Cache<String, Namespace> namespaces;
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder burned = new LongAdder();
+
+    @Autowired
+    public RedisNamespacedTrackingNumberProvider(RedisService redisService,
+                                                 @Value("${tracking.namespace.lease-size:1000}") long leaseSize,
+                                                 @Value("${tracking.namespace.max-active:10000}") long maxActive,
+                                                 @Value("${tracking.namespace.idle-timeout:5m}") Duration idleTimeout) {
+        this(redisService, leaseSize, maxActive, idleTimeout, ForkJoinPool.commonPool(), Ticker.systemTicker());
+    }
+
+    RedisNamespacedTrackingNumberProvider(RedisService redisService, long leaseSize, long maxActive, Duration idleTimeout,
+                                          Executor executor, Ticker ticker) {
+        if (leaseSize < 1) {
+            throw new IllegalArgumentException("Namespace lease size must be positive");
+        }
+        this.redisService = redisService;
+        this.leaseSize = leaseSize;
+        this.namespaces = Caffeine.newBuilder()
+                .maximumSize(maxActive)
+                .expireAfterAccess(idleTimeout)
+                .executor(executor)
+                .ticker(ticker)
+                .<String, Namespace>evictionListener((name, namespace, cause) -> {
+                    evictions.increment();
+                    close(namespace).subscribe();
+                })
+                .build();
+    }
+
+    @Override
+    public Mono<Long> nextCounter(String name) {
+        return Mono.defer(() -> {
+            Namespace namespace = namespaces.get(name, Namespace::new);
+            long value = namespace.lease.tryNext();
+            if (value != Lease.NONE) {
+                return Mono.just(value);
+            }
+            // a namespace evicted meanwhile refills nothing, and the retry finds its successor
+            return refill(namespace).then(nextCounter(name));
+        });
+    }
+
+    /**
+     * Namespaces currently holding a lease or an id.
+     */
+    public long getActive() {
+        return namespaces.estimatedSize();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Counters of evicted leases given back to Redis.
+     */
+    public long getReleased() {
+        return released.sum();
+    }
+
+    /**
+     * Counters of evicted leases Redis could not take back.
+     */
+    public long getBurned() {
+        return burned.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("tracking.namespace.active", this, RedisNamespacedTrackingNumberProvider::getActive)
+                .description("Namespaces with a cached lease")
+                .register(registry);
+        FunctionCounter.builder("tracking.namespace.evictions", evictions, LongAdder::sum)
+                .description("Namespace leases evicted from the cache")
+                .register(registry);
+        FunctionCounter.builder("tracking.namespace.ids.released", released, LongAdder::sum)
+                .description("Counters of evicted namespace leases given back to Redis")
+                .register(registry);
+        FunctionCounter.builder("tracking.namespace.ids.burned", burned, LongAdder::sum)
+                .description("Counters of evicted namespace leases that were never issued")
+                .register(registry);
+    }
+
+    /**
+     * Runs pending evictions; the cache otherwise does so as it is used.
+     */
+    void cleanUp() {
+        namespaces.cleanUp();
+    }
+
+    /**
+     * Gives the leases of all cached namespaces back to Redis where it still can.
+     */
+    @PreDestroy
+    void shutdown() {
+        List<Mono<Void>> releases = new ArrayList<>();
+        for (Namespace namespace : namespaces.asMap().values()) {
+            releases.add(close(namespace));
+        }
+        namespaces.invalidateAll();
+        try {
+            Flux.merge(releases).then().block(SHUTDOWN_TIMEOUT);
+        } catch (RuntimeException e) {
+            log.warn("Could not release all namespace leases on shutdown", e);
+        }
+    }
+
+    /**
+     * Fetches the next lease of {@code namespace} unless it still has counters, it was
+     * evicted, or another request is already fetching it.
+     */
+    private Mono<Void> refill(Namespace namespace) {
+        synchronized (namespace) {
+            if (namespace.closed || namespace.lease.remaining() > 0) {
+                return Mono.empty();
+            }
+            if (namespace.pending == null) {
+                // cleared before waiters are signalled, so that none of them sees a finished fetch
+                namespace.pending = fetch(namespace)
+                        .doOnTerminate(() -> {
+                            synchronized (namespace) {
+                                namespace.pending = null;
+                            }
+                        })
+                        .cache();
+            }
+            return namespace.pending;
+        }
+    }
+
+    private Mono<Void> fetch(Namespace namespace) {
+        Mono<Integer> id = namespace.id > 0 ? Mono.just(namespace.id) : register(namespace.name);
+        return id.flatMap(nsId -> redisService.incrementCounterWithDelta(counterKey(nsId), leaseSize)
+                .flatMap(top -> {
+                    if (top >= CounterSpace.NAMESPACE_COUNTER_LIMIT) {
+                        return Mono.error(new TrackingNumberGenerationException(
+                                "Counter of namespace " + namespace.name + " is exhausted", null));
+                    }
+                    Lease lease = new Lease(CounterSpace.namespaceCounter(nsId, top - leaseSize + 1),
+                            CounterSpace.namespaceCounter(nsId, top) + 1, 1.0);
+                    synchronized (namespace) {
+                        namespace.id = nsId;
+                        if (!namespace.closed) {
+                            namespace.lease = lease;
+                            namespace.top = top;
+                            return Mono.<Void>empty();
+                        }
+                    }
+                    return release(nsId, top, lease);
+                }));
+    }
+
+    /**
+     * Looks up the id of {@code name}, or assigns it the next free one. Two instances
+     * registering the same namespace at once agree on whichever id was stored first.
+     */
+    private Mono<Integer> register(String name) {
+        String key = NAMESPACE_KEY_PREFIX + name;
+        return redisService.get(key)
+                .switchIfEmpty(Mono.defer(() -> redisService.incrementCounterWithDelta(NAMESPACE_IDS_KEY, 1)
+                        .flatMap(id -> {
+                            if (id >= CounterSpace.MAX_NAMESPACES) {
+                                return Mono.error(new TrackingNumberGenerationException(
+                                        "No namespace ids left for " + name, null));
+                            }
+                            return redisService.setIfAbsent(key, Long.toString(id))
+                                    .flatMap(set -> set ? Mono.just(Long.toString(id)) : redisService.get(key));
+                        })))
+                .map(Integer::parseInt);
+    }
+
+    /**
+     * Stops {@code namespace} from issuing and gives the unissued rest of its lease back.
+     */
+    private Mono<Void> close(Namespace namespace) {
+        Lease rest;
+        int id;
+        long top;
+        synchronized (namespace) {
+            namespace.closed = true;
+            Lease lease = namespace.lease;
+            rest = lease.tryTake(lease.size());
+            id = namespace.id;
+            top = namespace.top;
+        }
+        return rest == null ? Mono.empty() : release(id, top, rest);
+    }
+
+    private Mono<Void> release(int id, long top, Lease rest) {
+        long count = rest.size();
+        long localStart = rest.start & (CounterSpace.NAMESPACE_COUNTER_LIMIT - 1);
+        return redisService.releaseCounterTail(counterKey(id), top, top + 1 - localStart)
+                .onErrorReturn(false)
+                .doOnNext(ok -> (ok ? released : burned).add(count))
+                .then();
+    }
+
+    static String counterKey(int id) {
+        return NAMESPACE_KEY_PREFIX + "{" + id + "}:counter";
+    }
+
+    private static final class Namespace {
+        final String name;
+        volatile Lease lease = Lease.EMPTY;
+        // guarded by this
+        int id;
+        long top;
+        boolean closed;
+        Mono<Void> pending;
+
+        Namespace(String name) {
+            this.name = name;
+        }
+    }
+}
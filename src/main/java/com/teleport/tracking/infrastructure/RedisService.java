@@ -5,25 +5,67 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.List;
+
 @Service
 public class RedisService {
 
+    private static final RedisScript<Long> RELEASE_TAIL = RedisScript.of(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DECRBY', KEYS[1], ARGV[2]) end return -1",
+            Long.class);
+
     @Autowired
     public RedisService(ReactiveRedisConnectionFactory factory) {
-        ReactiveStringRedisTemplate template = new ReactiveStringRedisTemplate(factory);
-        this.valueOps = template.opsForValue();
+        this(new ReactiveStringRedisTemplate(factory));
     }
 
+    private final ReactiveStringRedisTemplate template;
     private final ReactiveValueOperations<String, String> valueOps;
 
+    public RedisService(ReactiveStringRedisTemplate template) {
+        this.template = template;
+        this.valueOps = template.opsForValue();
+    }
+
     public RedisService(ReactiveValueOperations<String, String> valueOps) {
+        this.template = null;
         this.valueOps = valueOps;
     }
 
     public Mono<Long> incrementCounterWithDelta(String key, long delta) {
         return valueOps.increment(key, delta);
     }
-}
\ No newline at end of file
+
+    public Mono<String> get(String key) {
+        return valueOps.get(key);
+    }
+
+    public Mono<Boolean> setIfAbsent(String key, String value) {
+        return valueOps.setIfAbsent(key, value);
+    }
+
+    public Mono<Boolean> setIfAbsent(String key, String value, Duration timeout) {
+        return valueOps.setIfAbsent(key, value, timeout);
+    }
+
+    /**
+     * Gives back the last {@code delta} counters of {@code key} if it still stands at
+     * {@code expected}, that is if nobody incremented it since.
+     *
+     * @return whether the counters were given back
+     */
+    public Mono<Boolean> releaseCounterTail(String key, long expected, long delta) {
+        if (template == null) {
+            return Mono.just(false);
+        }
+        return template.execute(RELEASE_TAIL, List.of(key), List.of(Long.toString(expected), Long.toString(delta)))
+                .next()
+                .map(result -> result == expected - delta)
+                .defaultIfEmpty(false);
+    }
+}
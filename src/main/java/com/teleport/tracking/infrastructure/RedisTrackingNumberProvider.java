@@ -1,33 +1,79 @@
 package com.teleport.tracking.infrastructure;
 
+import com.teleport.tracking.domain.CounterBlock;
 import com.teleport.tracking.domain.TrackingNumberGenerationException;
 import com.teleport.tracking.domain.TrackingNumberProvider;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
-import static com.teleport.tracking.infrastructure.RedisConstants.TRACKING_COUNTER_KEY;
-
+/**
+ * Hands out counters from a range leased from Redis, through a {@link LeaseSource}. Once the active lease is
+ * {@code prefetchThreshold} used, the next lease is fetched in the background and
+ * kept on standby, so the switch-over when the active lease runs out does not
+ * wait on Redis.
+ * <p>
+ * The hot path is a single {@code getAndIncrement} on the active {@link Lease}.
+ * Callers that find both leases empty are queued and completed directly by the
+ * refresh; all lease switching and waiter completion happens in {@link #drain()},
+ * which only one thread runs at a time.
+ */
 @Service
 @Slf4j
-public class RedisTrackingNumberProvider implements TrackingNumberProvider {
+public class RedisTrackingNumberProvider implements TrackingNumberProvider, MeterBinder {
+
+    private final LeaseSource leaseSource;
+    private final AtomicReference<Lease> active = new AtomicReference<>(Lease.EMPTY);
+    private final AtomicReference<Lease> standby = new AtomicReference<>();
+    private final AtomicBoolean fetching = new AtomicBoolean(false);
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger parked = new AtomicInteger();
+    private final AtomicInteger drainWip = new AtomicInteger();
+    private final AtomicReference<Throwable> refreshError = new AtomicReference<>();
+    private final AtomicLong retired = new AtomicLong();
+    private final LongAdder refreshStalls = new LongAdder();
+    private final LongAdder burned = new LongAdder();
+    private final LeaseSizer leaseSizer;
+    private final double prefetchThreshold;
+    private volatile long refreshStarted;
+    private volatile Timer refreshSuccess;
+    private volatile Timer refreshFailure;
+
+    @Autowired
+    public RedisTrackingNumberProvider(LeaseSource leaseSource,
+                                       LeaseSizer leaseSizer,
+                                       @Value("${tracking.lease.prefetch-threshold:0.5}") double prefetchThreshold) {
+        this.leaseSource = leaseSource;
+        this.leaseSizer = leaseSizer;
+        this.prefetchThreshold = prefetchThreshold;
+    }
 
-    private final AtomicLong nextValue = new AtomicLong(0);
-    private final AtomicLong rangeEnd = new AtomicLong(0);
-    private final RedisService redisService;
-    private final AtomicBoolean refreshing = new AtomicBoolean(false);
-    private final Long batchSize;
+    public RedisTrackingNumberProvider(RedisService redisService, LeaseSizer leaseSizer, double prefetchThreshold) {
+        this(new RedisLeaseSource(redisService), leaseSizer, prefetchThreshold);
+    }
 
     public RedisTrackingNumberProvider(RedisService redisService, Long batchSize) {
-        this.redisService = redisService;
-        this.batchSize = batchSize;
+        this(redisService, LeaseSizer.fixed(batchSize), RedisConstants.PREFETCH_THRESHOLD);
     }
 
-    @Autowired
     public RedisTrackingNumberProvider(RedisService redisService) {
         this(redisService, RedisConstants.BATCH_SIZE);
     }
@@ -35,39 +81,374 @@ public class RedisTrackingNumberProvider implements TrackingNumberProvider {
     @Override
     public Mono<Long> nextCounter() {
         return Mono.defer(() -> {
-            long current = nextValue.getAndIncrement();
-            if (current < rangeEnd.get()) {
-                return Mono.just(current);
+            long value = tryNext();
+            if (value != Lease.NONE) {
+                return Mono.just(value);
+            }
+            return Mono.create(sink -> park(new SingleWaiter(sink), sink));
+        });
+    }
+
+    /**
+     * Takes the block from the active lease when it still has room for it, and
+     * otherwise leases a dedicated range of exactly {@code n} from the lease source, leaving the
+     * rest of the active lease to single requests.
+     */
+    @Override
+    public Mono<CounterBlock> nextCounters(int n) {
+        return Mono.defer(() -> {
+            Lease lease = active.get();
+            long start = lease.tryTakeExactly(n);
+            if (start != Lease.NONE) {
+                if (start <= lease.prefetchAt && lease.prefetchAt < start + n) {
+                    requestRefresh();
+                }
+                return Mono.just(new CounterBlock(start, n));
+            }
+            return leaseSource.leaseExactly(n)
+                    .map(range -> {
+                        retired.addAndGet(n);
+                        return new CounterBlock(range.start(), n);
+                    });
+        });
+    }
+
+    /**
+     * Carves the chunk off the active lease, switching to the standby lease and
+     * waiting for the next one as single requests do.
+     */
+    @Override
+    public Mono<CounterBlock> nextCounterChunk(int max) {
+        return nextChunk(max).map(chunk -> new CounterBlock(chunk.start, (int) chunk.size()));
+    }
+
+    /**
+     * Carves up to {@code max} counters off the active lease without waiting.
+     *
+     * @return the carved chunk, or {@code null} if the active lease is exhausted
+     */
+    Lease tryNextChunk(long max) {
+        Lease lease = active.get();
+        Lease chunk = lease.tryTake(max);
+        if (chunk != null && chunk.contains(lease.prefetchAt)) {
+            requestRefresh();
+        }
+        return chunk;
+    }
+
+    /**
+     * Like {@link #tryNextChunk(long)}, but waits for the next lease if both the
+     * active and the standby lease are empty.
+     */
+    Mono<Lease> nextChunk(long max) {
+        return Mono.defer(() -> {
+            Lease chunk = tryNextChunk(max);
+            if (chunk != null) {
+                return Mono.just(chunk);
+            }
+            return Mono.create(sink -> park(new ChunkWaiter(sink, max), sink));
+        });
+    }
+
+    /**
+     * Number of callers that found both the active and the standby lease empty
+     * and had to wait for a Redis round trip. Stays flat in steady state.
+     */
+    public long getRefreshStalls() {
+        return refreshStalls.sum();
+    }
+
+    /**
+     * Counters leased from Redis that will never be issued: the unused rest of a
+     * lease that was dropped, or of the leases held when the provider shuts down.
+     */
+    public long getBurned() {
+        return burned.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("tracking.lease.refresh.stalls", refreshStalls, LongAdder::sum)
+                .description("Requests that had to wait for a Redis range refresh")
+                .register(registry);
+        FunctionCounter.builder("tracking.ids.burned", burned, LongAdder::sum)
+                .description("Leased counters that were never issued")
+                .register(registry);
+        Gauge.builder("tracking.lease.remaining", this, RedisTrackingNumberProvider::remaining)
+                .description("Counters left in the active and standby leases")
+                .register(registry);
+        Gauge.builder("tracking.lease.waiters", parked, AtomicInteger::get)
+                .description("Requests parked until the next lease arrives")
+                .register(registry);
+        refreshFailure = Timer.builder("tracking.lease.refresh")
+                .description("Time to lease a range from the lease source")
+                .tag("outcome", "failure")
+                .register(registry);
+        refreshSuccess = Timer.builder("tracking.lease.refresh")
+                .description("Time to lease a range from the lease source")
+                .tag("outcome", "success")
+                .register(registry);
+    }
+
+    /**
+     * Counters left in the active and standby leases; what would be burned if the
+     * provider stopped now.
+     */
+    long remaining() {
+        Lease next = standby.get();
+        return active.get().remaining() + (next == null ? 0 : next.remaining());
+    }
+
+    /**
+     * Whether both leases are used up and the refresh that replaces them has been
+     * running for more than {@code overdueNanos}, so that a new request could only
+     * join the waiters.
+     */
+    boolean isStarved(long overdueNanos) {
+        return fetching.get() && remaining() == 0 && System.nanoTime() - refreshStarted > overdueNanos;
+    }
+
+    /**
+     * Records counters carved off a lease by another component that will not be issued.
+     */
+    void burn(long count) {
+        burned.add(count);
+    }
+
+    /**
+     * Closes the standby and active leases to further issuance and offers what is
+     * left of them back to the lease source, newest first; whatever it does not take
+     * back is burned.
+     */
+    @PreDestroy
+    void shutdown() {
+        long unissued = 0;
+        long released = 0;
+        for (Lease lease : new Lease[]{standby.get(), active.get()}) {
+            Lease rest = lease == null ? null : lease.tryTake(lease.size());
+            if (rest == null) {
+                continue;
             }
-            if (refreshing.compareAndSet(false, true)) {
-                return refreshRange()
-                        .doOnError(ex -> {
-                            refreshing.set(false);
-                            throw (TrackingNumberGenerationException) ex;
-                        })
-                        .doFinally(signal -> refreshing.set(false))
-                        .then(Mono.fromSupplier(() -> nextValue.getAndIncrement()));
+            unissued += rest.size();
+            if (leaseSource.release(new LeaseSource.LeaseRange(rest.start, rest.end))) {
+                released += rest.size();
             } else {
-                return Mono.defer(() -> {
-                    if (nextValue.get() < rangeEnd.get()) {
-                        return Mono.just(nextValue.getAndIncrement());
+                burned.add(rest.size());
+            }
+        }
+        if (unissued > 0) {
+            log.info("Shutting down with {} leased counters unissued, {} of them released", unissued, released);
+        }
+    }
+
+    private long tryNext() {
+        Lease lease = active.get();
+        long value = lease.tryNext();
+        if (value == lease.prefetchAt) {
+            requestRefresh();
+        }
+        return value;
+    }
+
+    private void park(Waiter waiter, MonoSink<?> sink) {
+        sink.onCancel(() -> waiter.cancelled = true);
+        parked.incrementAndGet();
+        waiters.offer(waiter);
+        drain();
+    }
+
+    private void drain() {
+        if (drainWip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        for (;;) {
+            Waiter waiter;
+            while ((waiter = waiters.peek()) != null) {
+                if (waiter.cancelled) {
+                    waiters.poll();
+                    parked.decrementAndGet();
+                    continue;
+                }
+                if (!waiter.take(this)) {
+                    Throwable error = refreshError.getAndSet(null);
+                    if (error != null) {
+                        failWaiters(error);
+                    } else {
+                        requestRefresh();
                     }
-                    return Mono.delay(java.time.Duration.ofMillis(5))
-                            .flatMap(tick -> nextCounter());
-                });
+                    break;
+                }
+                waiters.poll();
+                parked.decrementAndGet();
+                waiter.complete();
             }
-        });
+            if (waiter == null) {
+                // Nobody left to report a failed refresh to; the next waiter retries instead.
+                refreshError.set(null);
+            }
+            missed = drainWip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Only called from {@link #drain()}, so promoting the standby lease never races
+     * with another promotion.
+     *
+     * @return {@code false} if both the active and the standby lease are empty
+     */
+    private boolean promoteStandby() {
+        Lease next = standby.getAndSet(null);
+        if (next == null) {
+            return false;
+        }
+        Lease previous = active.getAndSet(next);
+        retired.addAndGet(previous.size());
+        burned.add(previous.remaining());
+        log.debug("switched to lease [{}, {})", next.start, next.end);
+        return true;
+    }
+
+    private void failWaiters(Throwable error) {
+        TrackingNumberGenerationException ex = error instanceof TrackingNumberGenerationException tnge
+                ? tnge
+                : new TrackingNumberGenerationException("Failed to refresh tracking number range", error);
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            parked.decrementAndGet();
+            waiter.fail(ex);
+        }
     }
 
-    private Mono<Void> refreshRange() {
-        return redisService.incrementCounterWithDelta(TRACKING_COUNTER_KEY, batchSize)
-                .doOnNext(newEnd -> {
-                    long start = newEnd - batchSize + 1;
-                    nextValue.set(start);
-                    rangeEnd.set(newEnd + 1);
-                    log.info("set nextValue to {} and rangeEnd to {}", start, newEnd + 1);
-                })
-                .then();
+    private void requestRefresh() {
+        if (standby.get() != null || !fetching.compareAndSet(false, true)) {
+            return;
+        }
+        // No other fetch can complete while we hold the flag, so a standby lease seen
+        // here was installed before we took it.
+        if (standby.get() != null) {
+            fetching.set(false);
+            return;
+        }
+        long started = System.nanoTime();
+        refreshStarted = started;
+        long size = leaseSizer.nextSize(started, issuedCount());
+        leaseSource.lease(size)
+                .subscribe(range -> onLeaseFetched(range, started), ex -> onFetchFailed(ex, started));
     }
 
-}
\ No newline at end of file
+    /**
+     * Counters handed out so far: every retired lease in full, plus what has been
+     * taken from the active one.
+     */
+    private long issuedCount() {
+        Lease lease = active.get();
+        return retired.get() + lease.size() - lease.remaining();
+    }
+
+    private void onLeaseFetched(LeaseSource.LeaseRange range, long started) {
+        record(refreshSuccess, started);
+        refreshStalls.add(parked.get());
+        standby.set(new Lease(range.start(), range.end(), prefetchThreshold));
+        fetching.set(false);
+        drain();
+    }
+
+    private void onFetchFailed(Throwable ex, long started) {
+        record(refreshFailure, started);
+        fetching.set(false);
+        if (parked.get() == 0) {
+            // A failed background prefetch; the caller that exhausts the active lease retries.
+            log.warn("Background range prefetch failed", ex);
+            return;
+        }
+        refreshError.set(ex);
+        drain();
+    }
+
+    private static void record(Timer timer, long started) {
+        if (timer != null) {
+            timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private abstract static class Waiter {
+        volatile boolean cancelled;
+
+        /**
+         * Reserves what this waiter asked for, promoting the standby lease as needed.
+         *
+         * @return {@code false} if nothing is left to reserve from
+         */
+        abstract boolean take(RedisTrackingNumberProvider provider);
+
+        abstract void complete();
+
+        abstract void fail(Throwable error);
+    }
+
+    private static final class SingleWaiter extends Waiter {
+        private final MonoSink<Long> sink;
+        private long value;
+
+        private SingleWaiter(MonoSink<Long> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        boolean take(RedisTrackingNumberProvider provider) {
+            do {
+                value = provider.tryNext();
+                if (value != Lease.NONE) {
+                    return true;
+                }
+            } while (provider.promoteStandby());
+            return false;
+        }
+
+        @Override
+        void complete() {
+            sink.success(value);
+        }
+
+        @Override
+        void fail(Throwable error) {
+            sink.error(error);
+        }
+    }
+
+    private static final class ChunkWaiter extends Waiter {
+        private final MonoSink<Lease> sink;
+        private final long max;
+        private Lease chunk;
+
+        private ChunkWaiter(MonoSink<Lease> sink, long max) {
+            this.sink = sink;
+            this.max = max;
+        }
+
+        @Override
+        boolean take(RedisTrackingNumberProvider provider) {
+            do {
+                chunk = provider.tryNextChunk(max);
+                if (chunk != null) {
+                    return true;
+                }
+            } while (provider.promoteStandby());
+            return false;
+        }
+
+        @Override
+        void complete() {
+            sink.success(chunk);
+        }
+
+        @Override
+        void fail(Throwable error) {
+            sink.error(error);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.domain.CounterBlock;
+import com.teleport.tracking.domain.CounterSpace;
+import com.teleport.tracking.domain.TrackingNumberGenerationException;
+import com.teleport.tracking.domain.TrackingNumberProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Issues counters without Redis from this node's partition of the fallback space
+ * in {@link CounterSpace}: node id, then milliseconds, then an 11-bit sequence.
+ * Because time sits directly above the sequence, the timestamp and sequence form
+ * one number, and a block of counters can run on into the following milliseconds
+ * and stay contiguous.
+ * <p>
+ * The last timestamp handed out is a single {@link AtomicLong} that only moves
+ * forward, so counters never repeat within the process, even if the wall clock
+ * steps back. Issuing faster than 2048 per millisecond borrows from the coming
+ * milliseconds, up to {@value #MAX_BORROW_MILLIS} ms ahead of the clock; beyond
+ * that requests fail rather than run further ahead of what a restarted instance
+ * would resume from.
+ * <p>
+ * Every instance needs its own {@code tracking.fallback.node-id}.
+ */
+@Component
+@ConditionalOnProperty(name = "tracking.fallback.enabled", havingValue = "true")
+public class SnowflakeTrackingNumberProvider implements TrackingNumberProvider {
+
+    static final long MAX_BORROW_MILLIS = 1_000;
+
+    private final int nodeId;
+    private final LongSupplier clock;
+    private final AtomicLong last = new AtomicLong();
+
+    @Autowired
+    public SnowflakeTrackingNumberProvider(@Value("${tracking.fallback.node-id:-1}") int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    SnowflakeTrackingNumberProvider(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > CounterSpace.MAX_NODE_ID) {
+            throw new IllegalArgumentException("tracking.fallback.node-id must be between 0 and "
+                    + CounterSpace.MAX_NODE_ID + ", was " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<Long> nextCounter() {
+        return Mono.defer(() -> {
+            long timestamp = reserve(1);
+            return timestamp < 0
+                    ? Mono.error(exhausted())
+                    : Mono.just(CounterSpace.fallbackCounter(nodeId, timestamp));
+        });
+    }
+
+    @Override
+    public Mono<CounterBlock> nextCounters(int n) {
+        return Mono.defer(() -> {
+            long timestamp = reserve(n);
+            return timestamp < 0
+                    ? Mono.error(exhausted())
+                    : Mono.just(new CounterBlock(CounterSpace.fallbackCounter(nodeId, timestamp), n));
+        });
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @return the first of {@code n} consecutive timestamps, or {@code -1} if they
+     * would run too far ahead of the clock
+     */
+    private long reserve(int n) {
+        long millis = clock.getAsLong() - CounterSpace.FALLBACK_EPOCH_MILLIS;
+        long floor = millis << CounterSpace.SEQUENCE_BITS;
+        long ceiling = Math.min(CounterSpace.TIMESTAMP_MASK, (millis + MAX_BORROW_MILLIS) << CounterSpace.SEQUENCE_BITS);
+        for (;;) {
+            long current = last.get();
+            long start = Math.max(current + 1, floor);
+            long end = start + n - 1;
+            if (end > ceiling) {
+                return -1;
+            }
+            if (last.compareAndSet(current, end)) {
+                return start;
+            }
+        }
+    }
+
+    private static TrackingNumberGenerationException exhausted() {
+        return new TrackingNumberGenerationException("Fallback tracking number rate exceeded", null);
+    }
+}
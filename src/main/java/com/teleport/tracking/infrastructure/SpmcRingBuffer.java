@@ -0,0 +1,64 @@
+package com.teleport.tracking.infrastructure;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded ring buffer with one producer and any number of consumers. The
+ * producer publishes by advancing {@code tail}; consumers claim an element by
+ * advancing {@code head} with a compare-and-set. A consumer that read a slot before
+ * losing the race retries, so it never returns an element that was already taken
+ * or a slot the producer has since reused: the producer only reuses slots behind
+ * {@code head}.
+ */
+final class SpmcRingBuffer<E> {
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    SpmcRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Producer only.
+     *
+     * @return {@code false} if the buffer is full
+     */
+    boolean offer(E element) {
+        long t = tail.get();
+        if (t - head.get() > mask) {
+            return false;
+        }
+        slots.lazySet((int) t & mask, element);
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * @return the oldest element, or {@code null} if the buffer is empty
+     */
+    E poll() {
+        for (;;) {
+            long h = head.get();
+            if (h >= tail.get()) {
+                return null;
+            }
+            E element = slots.get((int) h & mask);
+            if (head.compareAndSet(h, h + 1)) {
+                return element;
+            }
+        }
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,135 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.domain.CounterBlock;
+import com.teleport.tracking.domain.TrackingNumberProvider;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Spreads issuance over per-thread stripes so that threads do not all hit the
+ * cursor of one shared lease. Each stripe draws from its own chunk carved from the
+ * Redis lease held by {@link RedisTrackingNumberProvider}; a stripe that runs dry
+ * refills from the shared lease, or steals single counters from its siblings while
+ * the next Redis lease is on its way. Every counter still comes from exactly one
+ * lease cursor, so uniqueness is global.
+ * <p>
+ * Enabled with {@code tracking.provider.mode=striped}, in which case
+ * {@link FailoverTrackingNumberProvider} issues from it instead of the Redis provider.
+ */
+@Service
+@ConditionalOnProperty(name = "tracking.provider.mode", havingValue = "striped")
+public class StripedTrackingNumberProvider implements TrackingNumberProvider {
+
+    private final RedisTrackingNumberProvider source;
+    private final AtomicReferenceArray<Lease> stripes;
+    private final Queue<Lease> spareChunks = new ConcurrentLinkedQueue<>();
+    private final int mask;
+    private final long chunkSize;
+
+    @Autowired
+    public StripedTrackingNumberProvider(RedisTrackingNumberProvider source,
+                                         @Value("${tracking.provider.stripes:0}") int stripes,
+                                         @Value("${tracking.provider.stripe-chunk-size:256}") long chunkSize) {
+        this.source = source;
+        int count = Integer.highestOneBit(Math.max(1, stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.stripes = new AtomicReferenceArray<>(count);
+        for (int i = 0; i < count; i++) {
+            this.stripes.set(i, Lease.EMPTY);
+        }
+        this.mask = count - 1;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public Mono<Long> nextCounter() {
+        return Mono.defer(() -> {
+            int index = stripeIndex();
+            long value = stripes.get(index).tryNext();
+            if (value != Lease.NONE) {
+                return Mono.just(value);
+            }
+            Lease chunk = spareChunks.poll();
+            if (chunk == null) {
+                chunk = source.tryNextChunk(chunkSize);
+            }
+            if (chunk != null) {
+                return Mono.just(install(index, chunk));
+            }
+            value = steal(index);
+            if (value != Lease.NONE) {
+                return Mono.just(value);
+            }
+            return source.nextChunk(chunkSize).map(next -> install(index, next));
+        });
+    }
+
+    @Override
+    public Mono<CounterBlock> nextCounters(int n) {
+        return source.nextCounters(n);
+    }
+
+    @Override
+    public Mono<CounterBlock> nextCounterChunk(int max) {
+        return source.nextCounterChunk(max);
+    }
+
+    /**
+     * Counters still sitting in stripes and spare chunks are lost with this
+     * instance; report them as burned.
+     */
+    @PreDestroy
+    void shutdown() {
+        long unissued = 0;
+        for (int i = 0; i < stripes.length(); i++) {
+            unissued += stripes.get(i).remaining();
+        }
+        for (Lease chunk : spareChunks) {
+            unissued += chunk.remaining();
+        }
+        source.burn(unissued);
+    }
+
+    int stripeCount() {
+        return mask + 1;
+    }
+
+    private int stripeIndex() {
+        long id = Thread.currentThread().threadId();
+        return (int) (id ^ (id >>> 16)) & mask;
+    }
+
+    /**
+     * Takes the first counter of a fresh chunk and makes the rest available to the
+     * stripe. If another thread refilled the stripe first, the chunk is parked as a
+     * spare for the next refill rather than dropped.
+     */
+    private long install(int index, Lease chunk) {
+        long value = chunk.tryNext();
+        if (chunk.remaining() == 0) {
+            return value;
+        }
+        Lease current = stripes.get(index);
+        if (current.remaining() > 0 || !stripes.compareAndSet(index, current, chunk)) {
+            spareChunks.offer(chunk);
+        }
+        return value;
+    }
+
+    private long steal(int index) {
+        for (int i = 1; i <= mask; i++) {
+            long value = stripes.get((index + i) & mask).tryNext();
+            if (value != Lease.NONE) {
+                return value;
+            }
+        }
+        return Lease.NONE;
+    }
+}
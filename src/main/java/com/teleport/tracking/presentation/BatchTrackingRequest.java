@@ -0,0 +1,22 @@
+package com.teleport.tracking.presentation;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Either a list of {@code requests}, one tracking number each, or a {@code count}
+ * of tracking numbers sharing one set of {@code metadata}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTrackingRequest {
+    private Integer count;
+    private TrackingRequestBody metadata;
+    private List<TrackingRequestBody> requests;
+}
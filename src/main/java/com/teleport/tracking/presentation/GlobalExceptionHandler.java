@@ -1,37 +1,170 @@
 package com.teleport.tracking.presentation;
 
+import com.teleport.tracking.app.InvalidTrackingRequestException;
+import com.teleport.tracking.app.RequestRejectedException;
+import com.teleport.tracking.app.TraceContext;
 import com.teleport.tracking.domain.TrackingNumberGenerationException;
+import com.teleport.tracking.infrastructure.LogRateLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.extern.slf4j.Slf4j;
+import net.logstash.logback.argument.StructuredArgument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
 
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Turns exceptions into error responses, counted by their {@code code}. Logging is
+ * limited to {@code tracking.logging.errors.max-per-second} lines per code, so that
+ * a burst of bad requests or a Redis outage does not turn into a burst of log
+ * lines, and a flood of bad requests cannot use up the lines of a Redis outage.
+ * Each line carries the {@code traceId} of its request.
+ */
 @Slf4j
 @RestControllerAdvice
-public class GlobalExceptionHandler {
+public class GlobalExceptionHandler implements MeterBinder {
+
+    private final LogRateLimiter badRequestLog;
+    private final LogRateLimiter generationErrorLog;
+    private final LogRateLimiter internalErrorLog;
+    private final LogRateLimiter rejectionLog;
+    private final LongAdder badRequests = new LongAdder();
+    private final LongAdder generationErrors = new LongAdder();
+    private final LongAdder internalErrors = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    @Autowired
+    public GlobalExceptionHandler(@Value("${tracking.logging.errors.max-per-second:10}") long maxPerSecond) {
+        this(() -> new LogRateLimiter(maxPerSecond));
+    }
+
+    /**
+     * @param rateLimiters makes the log rate limiter of each error code
+     */
+    public GlobalExceptionHandler(Supplier<LogRateLimiter> rateLimiters) {
+        this.badRequestLog = rateLimiters.get();
+        this.generationErrorLog = rateLimiters.get();
+        this.internalErrorLog = rateLimiters.get();
+        this.rejectionLog = rateLimiters.get();
+    }
+
+    public GlobalExceptionHandler() {
+        this(() -> new LogRateLimiter(0));
+    }
+
+    /**
+     * Reads the trace id of the failed request from the Reactor context, where the
+     * logging web filter put it, so that the error line carries it.
+     */
+    @ExceptionHandler(Exception.class)
+    public Mono<ResponseEntity<ErrorResponse>> handleException(Exception ex) {
+        return Mono.deferContextual(context -> Mono.just(handle(ex, context)));
+    }
+
+    /**
+     * Picks the handler below for {@code ex}, logging without a trace id.
+     */
+    public ResponseEntity<ErrorResponse> handle(Exception ex) {
+        return handle(ex, Context.empty());
+    }
+
+    /**
+     * Picks the handler below for {@code ex}, for annotated controllers and for
+     * handlers outside of annotated dispatch alike.
+     *
+     * @param context the Reactor context of the request, whose trace id goes on the log line
+     */
+    public ResponseEntity<ErrorResponse> handle(Exception ex, ContextView context) {
+        StructuredArgument traceId = TraceContext.logArgument(context);
+        if (ex instanceof TrackingNumberGenerationException generation) {
+            return handleTrackingNumberGenerationException(generation, traceId);
+        }
+        if (ex instanceof ServerWebInputException || ex instanceof IllegalArgumentException
+                || ex instanceof InvalidTrackingRequestException) {
+            return handleWebInputException(ex, traceId);
+        }
+        if (ex instanceof RequestRejectedException rejected) {
+            return handleRequestRejectedException(rejected, traceId);
+        }
+        return handleGenericException(ex, traceId);
+    }
 
-    @ExceptionHandler(TrackingNumberGenerationException.class)
-    public ResponseEntity<ErrorResponse> handleTrackingNumberGenerationException(TrackingNumberGenerationException ex) {
-        log.error("Tracking number generation error", ex);
+    private ResponseEntity<ErrorResponse> handleTrackingNumberGenerationException(TrackingNumberGenerationException ex,
+                                                                                   StructuredArgument traceId) {
+        generationErrors.increment();
+        if (generationErrorLog.tryAcquire()) {
+            log.error("Tracking number generation error {}", traceId, ex);
+        }
         ErrorResponse error = new ErrorResponse("TRACKING_NUMBER_ERROR", ex.getMessage());
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
     }
 
-    @ExceptionHandler({ServerWebInputException.class, IllegalArgumentException.class})
-    public ResponseEntity<ErrorResponse> handleWebInputException(ServerWebInputException ex) {
-        log.warn("Bad request: {}", ex.getReason());
-        ErrorResponse error = new ErrorResponse("BAD_REQUEST", ex.getReason());
+    private ResponseEntity<ErrorResponse> handleWebInputException(Exception ex, StructuredArgument traceId) {
+        String reason = ex instanceof ServerWebInputException input ? input.getReason() : ex.getMessage();
+        badRequests.increment();
+        if (badRequestLog.tryAcquire()) {
+            log.warn("Bad request: {} {}", reason, traceId);
+        }
+        ErrorResponse error = new ErrorResponse("BAD_REQUEST", reason);
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
-    @ExceptionHandler(Exception.class)
-    public ResponseEntity<ErrorResponse> handleGenericException(Exception ex) {
-        log.error("Unhandled exception", ex);
+
+    /**
+     * A request shed before any work was done for it; the client may retry after {@code Retry-After} seconds.
+     */
+    private ResponseEntity<ErrorResponse> handleRequestRejectedException(RequestRejectedException ex,
+                                                                         StructuredArgument traceId) {
+        rejections.increment();
+        if (rejectionLog.tryAcquire()) {
+            log.warn("Request shed: {} ({}) {}", ex.getMessage(), ex.getReason(), traceId);
+        }
+        long retryAfterSeconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        ErrorResponse error = new ErrorResponse("SERVICE_UNAVAILABLE", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                .body(error);
+    }
+
+    private ResponseEntity<ErrorResponse> handleGenericException(Exception ex, StructuredArgument traceId) {
+        internalErrors.increment();
+        if (internalErrorLog.tryAcquire()) {
+            log.error("Unhandled exception {}", traceId, ex);
+        }
         ErrorResponse error = new ErrorResponse("INTERNAL_ERROR", "An unexpected error occurred");
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
     }
 
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        errorCounters(registry, "BAD_REQUEST", badRequests, badRequestLog);
+        errorCounters(registry, "TRACKING_NUMBER_ERROR", generationErrors, generationErrorLog);
+        errorCounters(registry, "INTERNAL_ERROR", internalErrors, internalErrorLog);
+        errorCounters(registry, "SERVICE_UNAVAILABLE", rejections, rejectionLog);
+    }
+
+    private static void errorCounters(MeterRegistry registry, String code, LongAdder count, LogRateLimiter log) {
+        FunctionCounter.builder("tracking.errors", count, LongAdder::sum)
+                .description("Error responses by code")
+                .tag("code", code)
+                .register(registry);
+        FunctionCounter.builder("tracking.errors.log.suppressed", log, LogRateLimiter::getSuppressed)
+                .description("Error log lines dropped by tracking.logging.errors.max-per-second, by code")
+                .tag("code", code)
+                .register(registry);
+    }
+
     public static class ErrorResponse {
         private String code;
         private String message;
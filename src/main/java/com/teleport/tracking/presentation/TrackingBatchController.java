@@ -0,0 +1,28 @@
+package com.teleport.tracking.presentation;
+
+import com.teleport.tracking.app.GetTrackingNumberBatchUseCase;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/tracking-numbers")
+public class TrackingBatchController {
+
+    GetTrackingNumberBatchUseCase getTrackingNumberBatchUseCase;
+
+    @Autowired
+    public TrackingBatchController(GetTrackingNumberBatchUseCase getTrackingNumberBatchUseCase) {
+        this.getTrackingNumberBatchUseCase = getTrackingNumberBatchUseCase;
+    }
+
+    @PostMapping("/batch")
+    public Mono<List<TrackingResponse>> batch(@RequestBody BatchTrackingRequest request) {
+        return getTrackingNumberBatchUseCase.generateTrackingNumbers(request);
+    }
+}
@@ -0,0 +1,131 @@
+package com.teleport.tracking.presentation;
+
+import com.teleport.tracking.app.GetNextTrackingNumberUseCase;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@code GET /next-tracking-number} as a handler function, for
+ * {@code tracking.http.mode=functional}. The raw query string is read once, left to
+ * right, straight into the seven request fields, instead of going through a query
+ * parameter map and an argument resolver per parameter.
+ * <p>
+ * Behaves like {@link TrackingController}: parameters are decoded the way WebFlux
+ * decodes them, a repeated parameter is joined with commas, the first missing one
+ * in declaration order is reported, and errors get the bodies of
+ * {@link GlobalExceptionHandler}.
+ */
+public class TrackingHandler {
+
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String[] PARAMETERS = {
+            "origin_country_id", "destination_country_id", "weight", "created_at",
+            "customer_id", "customer_name", "customer_slug"
+    };
+
+    private final GetNextTrackingNumberUseCase getNextTrackingNumberUseCase;
+    private final GlobalExceptionHandler exceptionHandler;
+
+    public TrackingHandler(GetNextTrackingNumberUseCase getNextTrackingNumberUseCase,
+                           GlobalExceptionHandler exceptionHandler) {
+        this.getNextTrackingNumberUseCase = getNextTrackingNumberUseCase;
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    public Mono<ServerResponse> next(ServerRequest request) {
+        return Mono.defer(() -> {
+                    TrackingRequest req = parse(request.uri().getRawQuery());
+                    String idempotencyKey = request.headers().firstHeader(IDEMPOTENCY_KEY);
+                    return getNextTrackingNumberUseCase.generateTrackingNumber(req, idempotencyKey);
+                })
+                .flatMap(response -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(response))
+                .onErrorResume(Exception.class, this::error);
+    }
+
+    /**
+     * @throws ServerWebInputException if a parameter is missing, with the message WebFlux gives
+     */
+    static TrackingRequest parse(String rawQuery) {
+        String[] values = new String[PARAMETERS.length];
+        int length = rawQuery == null ? 0 : rawQuery.length();
+        int start = 0;
+        while (start < length) {
+            int end = rawQuery.indexOf('&', start);
+            if (end < 0) {
+                end = length;
+            }
+            int eq = rawQuery.indexOf('=', start);
+            int nameEnd = eq < 0 || eq > end ? end : eq;
+            // a parameter without '=' has no value, as in the query parameter map
+            int index = nameEnd > start && nameEnd < end ? indexOf(rawQuery, start, nameEnd) : -1;
+            if (index >= 0) {
+                String value = decode(rawQuery, nameEnd + 1, end);
+                values[index] = values[index] == null ? value : values[index] + "," + value;
+            }
+            start = end + 1;
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                throw new ServerWebInputException("Required query parameter '" + PARAMETERS[i] + "' is not present.");
+            }
+        }
+        return TrackingRequest.fromRequest(values[0], values[1], values[2], values[3], values[4], values[5], values[6]);
+    }
+
+    private Mono<ServerResponse> error(Exception ex) {
+        return Mono.deferContextual(context -> {
+            ResponseEntity<GlobalExceptionHandler.ErrorResponse> entity = exceptionHandler.handle(ex, context);
+            return ServerResponse.status(entity.getStatusCode())
+                    .headers(headers -> headers.addAll(entity.getHeaders()))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(entity.getBody());
+        });
+    }
+
+    /**
+     * @return the index in {@link #PARAMETERS} of the name at {@code query[from, to)}, or {@code -1}
+     */
+    private static int indexOf(String query, int from, int to) {
+        String name = null;
+        for (int i = from; i < to; i++) {
+            char c = query.charAt(i);
+            if (c == '%' || c == '+') {
+                name = decode(query, from, to);
+                break;
+            }
+        }
+        for (int i = 0; i < PARAMETERS.length; i++) {
+            String parameter = PARAMETERS[i];
+            boolean matches = name != null
+                    ? parameter.equals(name)
+                    : parameter.length() == to - from && query.regionMatches(from, parameter, 0, to - from);
+            if (matches) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decodes {@code query[from, to)} like WebFlux decodes query parameters, keeping
+     * the raw text if it is not valid percent-encoding.
+     */
+    private static String decode(String query, int from, int to) {
+        String raw = query.substring(from, to);
+        if (raw.indexOf('%') < 0 && raw.indexOf('+') < 0) {
+            return raw;
+        }
+        try {
+            return URLDecoder.decode(raw, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            return raw;
+        }
+    }
+}
@@ -1,26 +1,40 @@
 package com.teleport.tracking.presentation;
 
 import jakarta.validation.constraints.*;
-import lombok.AllArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeParseException;
 
-@AllArgsConstructor
+/**
+ * Request metadata for one tracking number. {@link #fromRequest} only scans
+ * {@code weight} and {@code created_at} for well-formedness; the
+ * {@link BigDecimal} and {@link OffsetDateTime} are built on first access, since
+ * the request path never reads them after validation.
+ */
 public class TrackingRequest {
+    private static final int WEIGHT_PLAIN = 1;
+    private static final int WEIGHT_BELOW_MINIMUM = 1 << 1;
+    private static final int WEIGHT_EXCEEDS_DIGITS = 1 << 2;
+    private static final BigDecimal MIN_WEIGHT = new BigDecimal("0.001");
+    private static final int MAX_INTEGER_DIGITS = 10;
+    private static final int MAX_FRACTION_DIGITS = 3;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
     @Pattern(regexp = "^[A-Z]{2}$", message = "origin_country_id must be ISO 3166-1 uppercase alpha-2")
     public String originCountryId;
 
     @Pattern(regexp = "^[A-Z]{2}$", message = "destination_country_id must be ISO 3166-1 uppercase alpha-2")
     public String destinationCountryId;
 
-    @DecimalMin(value = "0.001", inclusive = true, message = "weight too low, must be at least 0.001")
-    @Digits(integer = 10, fraction = 3, message = "weight can be up to 3 decimal places")
-    public BigDecimal weight;
+    private final String weightText;
+    private BigDecimal weight;
+    private final boolean weightBelowMinimum;
+    private final boolean weightExceedsDigits;
 
-    @NotNull(message = "created_at is required")
-    public OffsetDateTime createdAt;
+    private final String createdAtText;
+    private OffsetDateTime createdAt;
 
     @NotBlank(message = "customer_id is required")
     @Pattern(regexp = "^[0-9a-fA-F]{8}\\-[0-9a-fA-F]{4}\\-[0-9a-fA-F]{4}\\-[0-9a-fA-F]{4}\\-[0-9a-fA-F]{12}$",
@@ -33,6 +47,51 @@ public class TrackingRequest {
     @Pattern(regexp = "^[a-z0-9]+(-[a-z0-9]+)*$", message = "customer_slug must be kebab-case")
     public String customerSlug;
 
+    public TrackingRequest(
+            String originCountryId,
+            String destinationCountryId,
+            BigDecimal weight,
+            OffsetDateTime createdAt,
+            String customerId,
+            String customerName,
+            String customerSlug
+    ) {
+        this.originCountryId = originCountryId;
+        this.destinationCountryId = destinationCountryId;
+        this.weightText = null;
+        this.weight = weight;
+        this.weightBelowMinimum = weight != null && weight.compareTo(MIN_WEIGHT) < 0;
+        // same arithmetic as Hibernate's @Digits check: no trailing zero stripping for BigDecimal
+        this.weightExceedsDigits = weight != null
+                && (weight.precision() - weight.scale() > MAX_INTEGER_DIGITS || Math.max(weight.scale(), 0) > MAX_FRACTION_DIGITS);
+        this.createdAtText = null;
+        this.createdAt = createdAt;
+        this.customerId = customerId;
+        this.customerName = customerName;
+        this.customerSlug = customerSlug;
+    }
+
+    private TrackingRequest(
+            String originCountryId,
+            String destinationCountryId,
+            String weightText,
+            int weightFlags,
+            String createdAtText,
+            String customerId,
+            String customerName,
+            String customerSlug
+    ) {
+        this.originCountryId = originCountryId;
+        this.destinationCountryId = destinationCountryId;
+        this.weightText = weightText;
+        this.weightBelowMinimum = (weightFlags & WEIGHT_BELOW_MINIMUM) != 0;
+        this.weightExceedsDigits = (weightFlags & WEIGHT_EXCEEDS_DIGITS) != 0;
+        this.createdAtText = createdAtText;
+        this.customerId = customerId;
+        this.customerName = customerName;
+        this.customerSlug = customerSlug;
+    }
+
     public static TrackingRequest fromRequest(
             String originCountryId,
             String destinationCountryId,
@@ -42,30 +101,264 @@ public class TrackingRequest {
             String customerName,
             String customerSlug
     ) {
-        BigDecimal weight;
-        try {
-            weight = new BigDecimal(weightStr);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException( "Invalid weight");
+        if (weightStr == null) {
+            throw new InvalidValueException("Invalid weight");
         }
-        OffsetDateTime createdAt;
-        try {
-            if (createdAtStr != null) {
-                if(createdAtStr.contains(" "))
-                    createdAtStr = createdAtStr.replace(" ", "+");
-                createdAt = OffsetDateTime.parse(createdAtStr);
-            } else createdAt = null;
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException("Invalid created_at");
+        int weightFlags = scanWeight(weightStr);
+        if (weightFlags != 0 && (createdAtStr == null || isRfc3339(createdAtStr))) {
+            return new TrackingRequest(originCountryId, destinationCountryId, weightStr, weightFlags, createdAtStr,
+                    customerId, customerName, customerSlug);
         }
+        // anything the scanners do not recognise goes through the full parsers,
+        // which decide whether it is valid and throw the usual errors
         return new TrackingRequest(
                 originCountryId,
                 destinationCountryId,
-                weight,
-                createdAt,
+                parseWeight(weightStr),
+                createdAtStr == null ? null : parseCreatedAt(createdAtStr),
                 customerId,
                 customerName,
                 customerSlug
         );
     }
+
+    @DecimalMin(value = "0.001", inclusive = true, message = "weight too low, must be at least 0.001")
+    @Digits(integer = 10, fraction = 3, message = "weight can be up to 3 decimal places")
+    public BigDecimal getWeight() {
+        if (weight == null && weightText != null) {
+            weight = new BigDecimal(weightText);
+        }
+        return weight;
+    }
+
+    @NotNull(message = "created_at is required")
+    public OffsetDateTime getCreatedAt() {
+        if (createdAt == null && createdAtText != null) {
+            createdAt = OffsetDateTime.parse(createdAtText.replace(" ", "+"));
+        }
+        return createdAt;
+    }
+
+    /**
+     * Outcome of the {@code @DecimalMin} check on {@link #getWeight()}, without building the {@link BigDecimal}.
+     */
+    public boolean weightBelowMinimum() {
+        return weightBelowMinimum;
+    }
+
+    /**
+     * Outcome of the {@code @Digits} check on {@link #getWeight()}, without building the {@link BigDecimal}.
+     */
+    public boolean weightExceedsDigits() {
+        return weightExceedsDigits;
+    }
+
+    /**
+     * Whether {@link #getCreatedAt()} is non-null, without building the {@link OffsetDateTime}.
+     */
+    public boolean hasCreatedAt() {
+        return createdAt != null || createdAtText != null;
+    }
+
+    /**
+     * 64-bit FNV-1a over every field as it was received, so that a retried request has
+     * the same fingerprint as the original without parsing {@code weight} or {@code created_at}.
+     */
+    public long fingerprint() {
+        long hash = FNV_OFFSET_BASIS;
+        hash = fingerprint(hash, originCountryId);
+        hash = fingerprint(hash, destinationCountryId);
+        hash = fingerprint(hash, weightText != null ? weightText : weight == null ? null : weight.toPlainString());
+        hash = fingerprint(hash, createdAtText != null ? createdAtText : createdAt == null ? null : createdAt.toString());
+        hash = fingerprint(hash, customerId);
+        hash = fingerprint(hash, customerName);
+        return fingerprint(hash, customerSlug);
+    }
+
+    /**
+     * Fingerprint of an {@code Idempotency-Key} chosen by the customer, kept apart
+     * from the same key chosen by another customer.
+     */
+    public static long fingerprint(String customerId, String idempotencyKey) {
+        return fingerprint(fingerprint(FNV_OFFSET_BASIS, customerId), idempotencyKey);
+    }
+
+    private static long fingerprint(long hash, String field) {
+        if (field != null) {
+            for (int i = 0; i < field.length(); i++) {
+                hash ^= field.charAt(i);
+                hash *= FNV_PRIME;
+            }
+        }
+        // separator, so that moving characters between adjacent fields changes the hash
+        hash ^= field == null ? 0xFFFE : 0xFFFF;
+        return hash * FNV_PRIME;
+    }
+
+    private static BigDecimal parseWeight(String weightStr) {
+        try {
+            return new BigDecimal(weightStr);
+        } catch (NumberFormatException e) {
+            throw new InvalidValueException("Invalid weight");
+        }
+    }
+
+    private static OffsetDateTime parseCreatedAt(String createdAtStr) {
+        try {
+            return OffsetDateTime.parse(createdAtStr.replace(" ", "+"));
+        } catch (DateTimeParseException e) {
+            throw new InvalidValueException("Invalid created_at");
+        }
+    }
+
+    /**
+     * Scans a plain decimal ({@code [+-]?digits[.digits]}) and works out what the
+     * {@code @DecimalMin} and {@code @Digits} checks would say about its
+     * {@link BigDecimal}: the precision is the digit count without leading zeros,
+     * and the scale is the number of fraction digits.
+     *
+     * @return {@code 0} if the text is not a plain decimal, otherwise {@link #WEIGHT_PLAIN}
+     * with the violated constraint flags
+     */
+    private static int scanWeight(String s) {
+        int length = s.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (s.charAt(0) == '+' || s.charAt(0) == '-')) {
+            negative = s.charAt(0) == '-';
+            i = 1;
+        }
+        int digits = 0;
+        int significant = 0;
+        int fraction = -1;
+        boolean atLeastMinimum = false;
+        for (; i < length; i++) {
+            char c = s.charAt(i);
+            if (c == '.') {
+                if (fraction >= 0) {
+                    return 0;
+                }
+                fraction = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            digits++;
+            if (fraction >= 0) {
+                fraction++;
+            }
+            if (c != '0') {
+                // a non-zero integer digit or one of the first three fraction digits makes it >= 0.001
+                atLeastMinimum |= fraction <= MAX_FRACTION_DIGITS;
+                significant++;
+            } else if (significant > 0) {
+                significant++;
+            }
+        }
+        if (digits == 0) {
+            return 0;
+        }
+        int scale = Math.max(fraction, 0);
+        int precision = Math.max(significant, 1);
+        int flags = WEIGHT_PLAIN;
+        if (negative || !atLeastMinimum) {
+            flags |= WEIGHT_BELOW_MINIMUM;
+        }
+        if (precision - scale > MAX_INTEGER_DIGITS || scale > MAX_FRACTION_DIGITS) {
+            flags |= WEIGHT_EXCEEDS_DIGITS;
+        }
+        return flags;
+    }
+
+    /**
+     * Accepts the usual RFC 3339 shape, {@code yyyy-MM-ddTHH:mm[:ss[.fraction]](Z|[+-]HH:mm)}
+     * with a space standing in for a {@code +} that was not URL-encoded, and checks
+     * every field's range, so that whatever it accepts {@link OffsetDateTime#parse}
+     * accepts too. Other forms the ISO parser allows are left to the parser.
+     */
+    private static boolean isRfc3339(String s) {
+        int length = s.length();
+        if (length < 17 || s.charAt(4) != '-' || s.charAt(7) != '-' || s.charAt(10) != 'T' || s.charAt(13) != ':') {
+            return false;
+        }
+        int year = digits(s, 0, 4);
+        int month = digits(s, 5, 2);
+        int day = digits(s, 8, 2);
+        int hour = digits(s, 11, 2);
+        int minute = digits(s, 14, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return false;
+        }
+        int i = 16;
+        if (s.charAt(i) == ':') {
+            int second = i + 3 <= length ? digits(s, i + 1, 2) : -1;
+            if (second < 0 || second > 59) {
+                return false;
+            }
+            i += 3;
+            if (i < length && s.charAt(i) == '.') {
+                int start = ++i;
+                while (i < length && s.charAt(i) >= '0' && s.charAt(i) <= '9') {
+                    i++;
+                }
+                if (i == start || i - start > 9) {
+                    return false;
+                }
+            }
+        }
+        if (i == length - 1) {
+            return s.charAt(i) == 'Z';
+        }
+        if (i != length - 6) {
+            return false;
+        }
+        char sign = s.charAt(i);
+        if ((sign != '+' && sign != '-' && sign != ' ') || s.charAt(i + 3) != ':') {
+            return false;
+        }
+        int offsetHours = digits(s, i + 1, 2);
+        int offsetMinutes = digits(s, i + 4, 2);
+        return offsetHours >= 0 && offsetMinutes >= 0 && offsetMinutes <= 59
+                && (offsetHours < 18 || (offsetHours == 18 && offsetMinutes == 0));
+    }
+
+    /**
+     * @return the value of {@code count} ASCII digits at {@code from}, or {@code -1} if any is not a digit
+     */
+    private static int digits(String s, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /**
+     * An unparsable weight or {@code created_at}. Malformed requests are common enough
+     * that filling in a stack trace, always the same one, is not worth it.
+     */
+    private static final class InvalidValueException extends IllegalArgumentException {
+        InvalidValueException(String message) {
+            super(message);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package com.teleport.tracking.presentation;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * JSON form of the {@code /next-tracking-number} query parameters, used by the
+ * batch endpoint.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrackingRequestBody {
+    @Schema(example = "MY")
+    private String origin_country_id;
+    @Schema(example = "ID")
+    private String destination_country_id;
+    @Schema(example = "2.211")
+    private String weight;
+    @Schema(example = "2018-11-20T19:29:32+08:00")
+    private String created_at;
+    @Schema(example = "4dcccfe6-fc76-4adc-84d0-067982c24805")
+    private String customer_id;
+    @Schema(example = "RedBox Logistics")
+    private String customer_name;
+    @Schema(example = "redbox-logistics")
+    private String customer_slug;
+
+    public TrackingRequest toTrackingRequest() {
+        return TrackingRequest.fromRequest(
+                origin_country_id, destination_country_id, weight, created_at, customer_id, customer_name, customer_slug
+        );
+    }
+}
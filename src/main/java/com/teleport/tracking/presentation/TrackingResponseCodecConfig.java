@@ -0,0 +1,27 @@
+package com.teleport.tracking.presentation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * Registers {@link TrackingResponseEncoder} ahead of the Jackson encoder. Set
+ * {@code tracking.http.encoder=jackson} to serialize responses with Jackson again.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tracking.http.encoder", havingValue = "template", matchIfMissing = true)
+public class TrackingResponseCodecConfig implements WebFluxConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    public TrackingResponseCodecConfig(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.customCodecs().register(new TrackingResponseEncoder(objectMapper));
+    }
+}
@@ -0,0 +1,167 @@
+package com.teleport.tracking.presentation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link TrackingResponse} as JSON straight into a buffer of the exact size,
+ * from constant byte templates around the two field values, instead of going
+ * through Jackson's serializers. The {@code created_at} bytes are kept for as long
+ * as the {@link com.teleport.tracking.app.ResponseClock} hands out the same string,
+ * which the cached clock does for a whole tick.
+ * <p>
+ * The output is byte for byte what Jackson writes. Values that would need escaping
+ * or are not ASCII, which tracking numbers and timestamps never are, are handed to
+ * Jackson instead.
+ */
+public class TrackingResponseEncoder implements Encoder<TrackingResponse> {
+
+    private static final List<MimeType> MIME_TYPES = List.of(MediaType.APPLICATION_JSON);
+    private static final byte[] PREFIX = "{\"tracking_number\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SEPARATOR = "\",\"created_at\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+    private static final int TEMPLATE_LENGTH = PREFIX.length + SEPARATOR.length + SUFFIX.length;
+
+    private final ObjectMapper objectMapper;
+    private volatile CreatedAt lastCreatedAt = new CreatedAt(null, null);
+
+    /**
+     * @param objectMapper serializes responses the templates cannot represent
+     */
+    public TrackingResponseEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return TrackingResponse.class.isAssignableFrom(elementType.toClass())
+                && (mimeType == null || MediaType.APPLICATION_JSON.isCompatibleWith(mimeType));
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends TrackingResponse> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        if (inputStream instanceof Mono<? extends TrackingResponse> mono) {
+            return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+        }
+        // a JSON array, as Jackson writes a Flux for application/json
+        return Flux.from(inputStream)
+                .collectList()
+                .map(values -> encodeArray(values, bufferFactory))
+                .flux();
+    }
+
+    @Override
+    public DataBuffer encodeValue(TrackingResponse value, DataBufferFactory bufferFactory,
+                                  ResolvableType valueType, MimeType mimeType, Map<String, Object> hints) {
+        String trackingNumber = value.getTracking_number();
+        byte[] createdAt = createdAtBytes(value.getCreated_at());
+        if (createdAt == null || !isPlain(trackingNumber)) {
+            return bufferFactory.wrap(serialize(value));
+        }
+        DataBuffer buffer = bufferFactory.allocateBuffer(TEMPLATE_LENGTH + trackingNumber.length() + createdAt.length);
+        write(buffer, trackingNumber, createdAt);
+        return buffer;
+    }
+
+    private DataBuffer encodeArray(List<? extends TrackingResponse> values, DataBufferFactory bufferFactory) {
+        int capacity = 2;
+        for (TrackingResponse value : values) {
+            capacity += TEMPLATE_LENGTH + 1 + length(value.getTracking_number()) + length(value.getCreated_at());
+        }
+        DataBuffer buffer = bufferFactory.allocateBuffer(capacity);
+        buffer.write((byte) '[');
+        for (int i = 0; i < values.size(); i++) {
+            TrackingResponse value = values.get(i);
+            if (i > 0) {
+                buffer.write((byte) ',');
+            }
+            String trackingNumber = value.getTracking_number();
+            byte[] createdAt = createdAtBytes(value.getCreated_at());
+            if (createdAt == null || !isPlain(trackingNumber)) {
+                buffer.write(serialize(value));
+            } else {
+                write(buffer, trackingNumber, createdAt);
+            }
+        }
+        buffer.write((byte) ']');
+        return buffer;
+    }
+
+    private static void write(DataBuffer buffer, String trackingNumber, byte[] createdAt) {
+        buffer.write(PREFIX);
+        buffer.write(trackingNumber, StandardCharsets.US_ASCII);
+        buffer.write(SEPARATOR);
+        buffer.write(createdAt);
+        buffer.write(SUFFIX);
+    }
+
+    /**
+     * @return the ASCII bytes of {@code text}, or {@code null} if it cannot go into the template
+     */
+    private byte[] createdAtBytes(String text) {
+        CreatedAt cached = lastCreatedAt;
+        if (cached.text == text && text != null) {
+            return cached.bytes;
+        }
+        if (!isPlain(text)) {
+            return null;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        lastCreatedAt = new CreatedAt(text, bytes);
+        return bytes;
+    }
+
+    private byte[] serialize(TrackingResponse value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException ex) {
+            throw new EncodingException("JSON encoding error: " + ex.getOriginalMessage(), ex);
+        }
+    }
+
+    /**
+     * Whether {@code text} is printable ASCII that JSON does not escape.
+     */
+    private static boolean isPlain(String text) {
+        if (text == null) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x20 || c > 0x7E || c == '"' || c == '\\') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Bytes {@code text} takes when plain; the buffer grows for the rare value that is not.
+     */
+    private static int length(String text) {
+        return text == null ? 4 : text.length();
+    }
+
+    private record CreatedAt(String text, byte[] bytes) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.teleport.tracking.presentation;
+
+import com.teleport.tracking.app.GetNextTrackingNumberUseCase;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Serves {@code /next-tracking-number} from {@link TrackingHandler} instead of
+ * {@link TrackingController}, with {@code tracking.http.mode=functional}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tracking.http.mode", havingValue = "functional")
+public class TrackingRouterConfig {
+
+    @Bean
+    public RouterFunction<ServerResponse> trackingRoutes(GetNextTrackingNumberUseCase getNextTrackingNumberUseCase,
+                                                         GlobalExceptionHandler exceptionHandler) {
+        TrackingHandler handler = new TrackingHandler(getNextTrackingNumberUseCase, exceptionHandler);
+        return RouterFunctions.route(RequestPredicates.GET("/next-tracking-number"), handler::next);
+    }
+}
@@ -0,0 +1,32 @@
+package com.teleport.tracking.presentation;
+
+import com.teleport.tracking.app.StreamTrackingNumbersUseCase;
+import io.swagger.v3.oas.annotations.Parameter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+@RestController
+@RequestMapping("/tracking-numbers")
+public class TrackingStreamController {
+
+    StreamTrackingNumbersUseCase streamTrackingNumbersUseCase;
+
+    @Autowired
+    public TrackingStreamController(StreamTrackingNumbersUseCase streamTrackingNumbersUseCase) {
+        this.streamTrackingNumbersUseCase = streamTrackingNumbersUseCase;
+    }
+
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<TrackingResponse> stream(
+            @Parameter(description = "Tracking numbers reserved per chunk", example = "256")
+            @RequestParam(name = "chunk", defaultValue = "256") int chunk,
+            @Parameter(description = "Total tracking numbers to emit; 0 streams until the client disconnects", example = "0")
+            @RequestParam(name = "limit", defaultValue = "0") long limit) {
+        return streamTrackingNumbersUseCase.streamTrackingNumbers(chunk, limit);
+    }
+}
@@ -0,0 +1,152 @@
+package com.teleport.tracking.app;
+
+import com.teleport.tracking.presentation.TrackingRequest;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledTrackingRequestValidatorTest {
+
+    private static final String[] COUNTRIES = {null, "MY", "ID", "my", "M", "MYS", "", "M1", "\u00C0B", "MY\n", " MY"};
+    private static final String[] WEIGHTS = {null, "2.211", "0.001", "0.0010", "0.0005", "0", "0.000", "-1", "-0.001",
+            "1.2300", "1E+3", "1E-4", "12345678901", "1234567890", "1234567890.123", "9999999999.9999", "00001.5", "1E+10"};
+    private static final OffsetDateTime[] CREATED_ATS = {null, OffsetDateTime.parse("2018-11-20T19:29:32+08:00")};
+    private static final String[] CUSTOMER_IDS = {null, "", "   ", "\t\n", "4dcccfe6-fc76-4adc-84d0-067982c24805",
+            "4DCCCFE6-FC76-4ADC-84D0-067982C24805", "4dcccfe6-fc76-4adc-84d0-067982c2480", "4dcccfe6-fc76-4adc-84d0-067982c248055",
+            "4dcccfe6fc76-4adc-84d0-067982c24805-", "gdcccfe6-fc76-4adc-84d0-067982c24805", " 4dcccfe6-fc76-4adc-84d0-067982c24805",
+            "4dcccfe6-fc76-4adc-84d0_067982c24805"};
+    private static final String[] CUSTOMER_NAMES = {null, "", " ", "\t", "\u00A0", "RedBox Logistics", " x "};
+    private static final String[] SLUGS = {null, "", "a", "redbox-logistics", "a-b-c", "-a", "a-", "a--b", "A", "a_b",
+            "\u00E4", "a1-2b", "-", "a b"};
+
+    private final BeanTrackingRequestValidator beanValidator =
+            new BeanTrackingRequestValidator(Validation.buildDefaultValidatorFactory().getValidator());
+    private final CompiledTrackingRequestValidator compiledValidator = new CompiledTrackingRequestValidator();
+
+    private static TrackingRequest request(String origin, String destination, String weight, OffsetDateTime createdAt,
+                                           String customerId, String customerName, String customerSlug) {
+        return new TrackingRequest(origin, destination, weight == null ? null : new BigDecimal(weight), createdAt,
+                customerId, customerName, customerSlug);
+    }
+
+    private static TrackingRequest validRequest() {
+        return request("MY", "ID", "2.211", CREATED_ATS[1], "4dcccfe6-fc76-4adc-84d0-067982c24805",
+                "RedBox Logistics", "redbox-logistics");
+    }
+
+    private static Set<String> messages(String joined) {
+        return joined == null ? Set.of() : new HashSet<>(Arrays.asList(joined.split("\\. ")));
+    }
+
+    private void assertParity(TrackingRequest request) {
+        assertEquals(beanValidator.invalidFields(request), compiledValidator.invalidFields(request));
+        assertEquals(messages(beanValidator.validate(request)), messages(compiledValidator.validate(request)),
+                () -> "origin=" + request.originCountryId + " destination=" + request.destinationCountryId
+                        + " weight=" + request.getWeight() + " createdAt=" + request.getCreatedAt() + " customerId=" + request.customerId
+                        + " customerName=" + request.customerName + " customerSlug=" + request.customerSlug);
+    }
+
+    @Test
+    void validate_eachFieldVariedAlone_matchesBeanValidation() {
+        TrackingRequest valid = validRequest();
+        for (String country : COUNTRIES) {
+            assertParity(request(country, "ID", "2.211", valid.getCreatedAt(), valid.customerId, valid.customerName, valid.customerSlug));
+            assertParity(request("MY", country, "2.211", valid.getCreatedAt(), valid.customerId, valid.customerName, valid.customerSlug));
+        }
+        for (String weight : WEIGHTS) {
+            assertParity(request("MY", "ID", weight, valid.getCreatedAt(), valid.customerId, valid.customerName, valid.customerSlug));
+        }
+        for (OffsetDateTime createdAt : CREATED_ATS) {
+            assertParity(request("MY", "ID", "2.211", createdAt, valid.customerId, valid.customerName, valid.customerSlug));
+        }
+        for (String customerId : CUSTOMER_IDS) {
+            assertParity(request("MY", "ID", "2.211", valid.getCreatedAt(), customerId, valid.customerName, valid.customerSlug));
+        }
+        for (String customerName : CUSTOMER_NAMES) {
+            assertParity(request("MY", "ID", "2.211", valid.getCreatedAt(), valid.customerId, customerName, valid.customerSlug));
+        }
+        for (String slug : SLUGS) {
+            assertParity(request("MY", "ID", "2.211", valid.getCreatedAt(), valid.customerId, valid.customerName, slug));
+        }
+    }
+
+    @Test
+    void validate_randomCombinations_matchBeanValidation() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            assertParity(request(
+                    COUNTRIES[random.nextInt(COUNTRIES.length)],
+                    COUNTRIES[random.nextInt(COUNTRIES.length)],
+                    WEIGHTS[random.nextInt(WEIGHTS.length)],
+                    CREATED_ATS[random.nextInt(CREATED_ATS.length)],
+                    CUSTOMER_IDS[random.nextInt(CUSTOMER_IDS.length)],
+                    CUSTOMER_NAMES[random.nextInt(CUSTOMER_NAMES.length)],
+                    SLUGS[random.nextInt(SLUGS.length)]));
+        }
+    }
+
+    @Test
+    void validate_scannedRequest_matchesBeanValidation() {
+        for (String weight : WEIGHTS) {
+            for (String createdAt : new String[]{null, "2018-11-20T19:29:32+08:00", "2018-11-20T19:29:32 08:00", "2018-11-20T19:29Z"}) {
+                TrackingRequest scanned = TrackingRequest.fromRequest("MY", "ID", weight == null ? "1" : weight, createdAt,
+                        "4dcccfe6-fc76-4adc-84d0-067982c24805", "RedBox Logistics", "redbox-logistics");
+                String expected = beanValidator.validate(scanned);
+                TrackingRequest fresh = TrackingRequest.fromRequest("MY", "ID", weight == null ? "1" : weight, createdAt,
+                        "4dcccfe6-fc76-4adc-84d0-067982c24805", "RedBox Logistics", "redbox-logistics");
+                assertEquals(messages(expected), messages(compiledValidator.validate(fresh)), "weight=" + weight + " createdAt=" + createdAt);
+            }
+        }
+    }
+
+    @Test
+    void validate_validRequest_returnsNull() {
+        assertNull(compiledValidator.validate(validRequest()));
+        assertDoesNotThrow(() -> compiledValidator.requireValid(validRequest(), ""));
+    }
+
+    @Test
+    void validate_severalViolations_joinsInDeclarationOrder() {
+        TrackingRequest request = request("my", "ID", "0.0001", null, "", "RedBox Logistics", "Redbox");
+
+        assertEquals("origin_country_id must be ISO 3166-1 uppercase alpha-2. weight too low, must be at least 0.001. "
+                        + "weight can be up to 3 decimal places. created_at is required. customer_id is required. "
+                        + "customer_id must be a valid UUID. customer_slug must be kebab-case",
+                compiledValidator.validate(request));
+    }
+
+    @Test
+    void requireValid_invalidRequest_throwsWithPrefix() {
+        TrackingRequest request = request("MY", "ID", "2.211", CREATED_ATS[1], null, "RedBox Logistics", "redbox-logistics");
+
+        ServerWebInputException ex = assertThrows(ServerWebInputException.class,
+                () -> compiledValidator.requireValid(request, "metadata: "));
+        assertEquals("metadata: customer_id is required", ex.getReason());
+    }
+
+    @Test
+    void reject_sharesOneStacklessRejectionPerViolationMask() {
+        TrackingRequest first = request("MY", "ID", "2.211", CREATED_ATS[1], null, "RedBox Logistics", "redbox-logistics");
+        TrackingRequest second = request("SG", "ID", "0.5", CREATED_ATS[1], null, "Other", "other");
+
+        InvalidTrackingRequestException rejection = compiledValidator.reject(first);
+
+        assertSame(rejection, compiledValidator.reject(second));
+        assertEquals("customer_id is required", rejection.getMessage());
+        assertEquals(1 << 4, rejection.getInvalidFields());
+        assertEquals(0, rejection.getStackTrace().length);
+        rejection.addSuppressed(new IllegalStateException());
+        assertEquals(0, rejection.getSuppressed().length);
+        assertNull(compiledValidator.reject(request("MY", "ID", "2.211", CREATED_ATS[1],
+                "4dcccfe6-fc76-4adc-84d0-067982c24805", "RedBox Logistics", "redbox-logistics")));
+    }
+}
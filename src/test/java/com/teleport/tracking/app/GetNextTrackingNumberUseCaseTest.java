@@ -2,6 +2,7 @@ package com.teleport.tracking.app;
 
 import com.teleport.tracking.presentation.TrackingRequest;
 import com.teleport.tracking.presentation.TrackingResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
@@ -10,11 +11,11 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.Collections;
 import java.util.Set;
@@ -33,14 +34,14 @@ class GetNextTrackingNumberUseCaseTest {
 
     @BeforeEach
     void setUp() {
-        useCase = new GetNextTrackingNumberUseCase(trackingService, validator);
+        useCase = useCase().validator(new BeanTrackingRequestValidator(validator)).build();
     }
 
     @Test
     void generateTrackingNumber_validRequest_returnsTrackingResponse() {
         TrackingRequest request = mock(TrackingRequest.class);
         when(validator.validate(request)).thenReturn(Collections.emptySet());
-        when(trackingService.generateTrackingNumber()).thenReturn(Mono.just("TRACK123"));
+        when(trackingService.issueTrackingNumber()).thenReturn(Mono.just(new IssuedTrackingNumber(42L, "TRACK123")));
 
         Mono<TrackingResponse> result = useCase.generateTrackingNumber(request);
 
@@ -53,14 +54,16 @@ class GetNextTrackingNumberUseCaseTest {
     }
 
     @Test
-    void generateTrackingNumber_invalidRequest_throwsException() {
+    void generateTrackingNumber_invalidRequest_signalsRejection() {
         TrackingRequest request = mock(TrackingRequest.class);
         ConstraintViolation<TrackingRequest> violation = mock(ConstraintViolation.class);
         when(violation.getMessage()).thenReturn("Invalid field");
         Set<ConstraintViolation<TrackingRequest>> violations = Set.of(violation);
         when(validator.validate(request)).thenReturn(violations);
 
-        assertThrows(ServerWebInputException.class, () -> useCase.generateTrackingNumber(request));
+        StepVerifier.create(useCase.generateTrackingNumber(request))
+                .expectError(InvalidTrackingRequestException.class)
+                .verify();
     }
 
     @Test
@@ -75,7 +78,7 @@ class GetNextTrackingNumberUseCaseTest {
                 "John Doe", // valid name
                 "john-doe" // valid slug
         );
-        when(trackingService.generateTrackingNumber()).thenReturn(Mono.just("TRACK123"));
+        when(trackingService.issueTrackingNumber()).thenReturn(Mono.just(new IssuedTrackingNumber(42L, "TRACK123")));
 
         Mono<TrackingResponse> result = useCase.generateTrackingNumber(request);
 
@@ -99,8 +102,10 @@ class GetNextTrackingNumberUseCaseTest {
                 "",
                 "Not Kebab Case"
         );
-        useCase = new GetNextTrackingNumberUseCase(trackingService, validator);
-        assertThrows(ServerWebInputException.class, () -> useCase.generateTrackingNumber(request));
+        useCase = useCase().validator(new BeanTrackingRequestValidator(validator)).build();
+        StepVerifier.create(useCase.generateTrackingNumber(request))
+                .expectError(InvalidTrackingRequestException.class)
+                .verify();
     }
 
     @Test
@@ -126,4 +131,183 @@ class GetNextTrackingNumberUseCaseTest {
         assertTrue(messages.contains("customer_name is required"));
         assertTrue(messages.contains("customer_slug must be kebab-case"));
     }
+
+    @Test
+    void generateTrackingNumber_invalidRequest_countsFailuresByField() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        useCase = useCase().build();
+        useCase.bindTo(registry);
+        TrackingRequest request = new TrackingRequest("USA", "CA", new BigDecimal("0.0001"), OffsetDateTime.now(),
+                "123e4567-e89b-12d3-a456-426614174000", "John Doe", "john-doe");
+
+        StepVerifier.create(useCase.generateTrackingNumber(request))
+                .expectError(InvalidTrackingRequestException.class)
+                .verify();
+
+        assertEquals(1, registry.get("tracking.validation.failures").tag("field", "origin_country_id").counter().count());
+        assertEquals(1, registry.get("tracking.validation.failures").tag("field", "weight").counter().count());
+        assertEquals(0, registry.get("tracking.validation.failures").tag("field", "destination_country_id").counter().count());
+        verifyNoInteractions(trackingService);
+    }
+
+    @Test
+    void generateTrackingNumber_appendsIssuedCounterToAuditLog() {
+        IssuanceAuditLog auditLog = mock(IssuanceAuditLog.class);
+        useCase = useCase().auditLog(auditLog).build();
+        TrackingRequest request = new TrackingRequest("MY", "ID", new BigDecimal("1.234"), OffsetDateTime.now(),
+                "123e4567-e89b-12d3-a456-426614174000", "John Doe", "john-doe");
+        when(trackingService.issueTrackingNumber()).thenReturn(Mono.just(new IssuedTrackingNumber(42L, "TRACK123")));
+
+        StepVerifier.create(useCase.generateTrackingNumber(request)).expectNextCount(1).verifyComplete();
+
+        verify(auditLog).append(eq(42L), anyLong(),
+                eq(IssuanceAuditLog.customerHash("123e4567-e89b-12d3-a456-426614174000")),
+                eq(IssuanceAuditLog.countryPair("MY", "ID")));
+    }
+
+    @Test
+    void generateTrackingNumber_issuesFromNamespaceOfRequest() {
+        useCase = useCase().namespace(TrackingNamespace.LANE).build();
+        TrackingRequest request = new TrackingRequest("MY", "ID", new BigDecimal("1.234"), OffsetDateTime.now(),
+                "123e4567-e89b-12d3-a456-426614174000", "John Doe", "john-doe");
+        when(trackingService.issueTrackingNumber("lane:MY-ID")).thenReturn(Mono.just(new IssuedTrackingNumber(42L, "TRACK123")));
+
+        StepVerifier.create(useCase.generateTrackingNumber(request))
+                .assertNext(response -> assertEquals("TRACK123", response.getTracking_number()))
+                .verifyComplete();
+        verify(trackingService, never()).issueTrackingNumber();
+    }
+
+    @Test
+    void generateTrackingNumber_withoutNamespaceField_issuesFromGlobalCounter() {
+        useCase = useCase().namespace(TrackingNamespace.CUSTOMER).build();
+        TrackingRequest request = new TrackingRequest("MY", "ID", new BigDecimal("1.234"), OffsetDateTime.now(),
+                "123e4567-e89b-12d3-a456-426614174000", "John Doe", null);
+        when(trackingService.issueTrackingNumber()).thenReturn(Mono.just(new IssuedTrackingNumber(42L, "TRACK123")));
+
+        StepVerifier.create(useCase.generateTrackingNumber(request)).expectNextCount(1).verifyComplete();
+    }
+
+    @Test
+    void generateTrackingNumber_repeatedRequest_replaysFirstTrackingNumber() {
+        IdempotencyStore store = mock(IdempotencyStore.class);
+        useCase = useCase().idempotencyStore(store).build();
+        TrackingRequest request = new TrackingRequest("MY", "ID", new BigDecimal("1.234"), OffsetDateTime.now(),
+                "123e4567-e89b-12d3-a456-426614174000", "John Doe", "john-doe");
+        when(store.find(request.fingerprint())).thenReturn(IdempotencyStore.NONE, 42L);
+        when(store.claim(request.fingerprint(), 42L)).thenReturn(Mono.just(42L));
+        when(trackingService.issueTrackingNumber()).thenReturn(Mono.just(new IssuedTrackingNumber(42L, "TRACK123")));
+        when(trackingService.trackingNumberOf(42L)).thenReturn(new IssuedTrackingNumber(42L, "TRACK123"));
+
+        StepVerifier.create(useCase.generateTrackingNumber(request))
+                .assertNext(response -> assertEquals("TRACK123", response.getTracking_number()))
+                .verifyComplete();
+        StepVerifier.create(useCase.generateTrackingNumber(request))
+                .assertNext(response -> assertEquals("TRACK123", response.getTracking_number()))
+                .verifyComplete();
+
+        verify(trackingService, times(1)).issueTrackingNumber();
+        assertEquals(1, useCase.getReplays());
+    }
+
+    @Test
+    void generateTrackingNumber_concurrentDuplicate_returnsCounterClaimedFirst() {
+        IdempotencyStore store = mock(IdempotencyStore.class);
+        useCase = useCase().idempotencyStore(store).build();
+        TrackingRequest request = new TrackingRequest("MY", "ID", new BigDecimal("1.234"), OffsetDateTime.now(),
+                "123e4567-e89b-12d3-a456-426614174000", "John Doe", "john-doe");
+        long fingerprint = TrackingRequest.fingerprint(request.customerId, "retry-1");
+        when(store.find(fingerprint)).thenReturn(IdempotencyStore.NONE);
+        when(store.claim(fingerprint, 43L)).thenReturn(Mono.just(42L));
+        when(trackingService.issueTrackingNumber()).thenReturn(Mono.just(new IssuedTrackingNumber(43L, "TRACK124")));
+        when(trackingService.trackingNumberOf(42L)).thenReturn(new IssuedTrackingNumber(42L, "TRACK123"));
+
+        StepVerifier.create(useCase.generateTrackingNumber(request, "retry-1"))
+                .assertNext(response -> assertEquals("TRACK123", response.getTracking_number()))
+                .verifyComplete();
+    }
+
+    @Test
+    void generateTrackingNumber_headerOnly_issuesRequestsWithoutKey() {
+        IdempotencyStore store = mock(IdempotencyStore.class);
+        useCase = useCase().idempotencyStore(store).headerOnly(true).build();
+        TrackingRequest request = new TrackingRequest("MY", "ID", new BigDecimal("1.234"), OffsetDateTime.now(),
+                "123e4567-e89b-12d3-a456-426614174000", "John Doe", "john-doe");
+        when(trackingService.issueTrackingNumber()).thenReturn(Mono.just(new IssuedTrackingNumber(42L, "TRACK123")));
+
+        StepVerifier.create(useCase.generateTrackingNumber(request)).expectNextCount(1).verifyComplete();
+        verifyNoInteractions(store);
+    }
+
+    @Test
+    void generateTrackingNumber_shedRequest_issuesNothing() {
+        RequestRejectedException shed = new RequestRejectedException("Too many requests in progress", "queue_full",
+                Duration.ofSeconds(1));
+        AdmissionControl admission = new AdmissionControl() {
+            @Override
+            public <T> Mono<T> admit(Mono<T> work) {
+                return Mono.error(shed);
+            }
+        };
+        useCase = useCase().admission(admission).build();
+        TrackingRequest request = new TrackingRequest("MY", "ID", new BigDecimal("1.234"), OffsetDateTime.now(),
+                "123e4567-e89b-12d3-a456-426614174000", "John Doe", "john-doe");
+
+        StepVerifier.create(useCase.generateTrackingNumber(request))
+                .expectErrorMatches(error -> error == shed)
+                .verify();
+        verifyNoInteractions(trackingService);
+    }
+
+    private UseCaseBuilder useCase() {
+        return new UseCaseBuilder();
+    }
+
+    /**
+     * The use case with the compiled validator, a precise clock and every optional
+     * collaborator left out unless set.
+     */
+    private final class UseCaseBuilder {
+        private TrackingRequestValidator validator = new CompiledTrackingRequestValidator();
+        private IssuanceAuditLog auditLog;
+        private TrackingNamespace namespace = TrackingNamespace.NONE;
+        private IdempotencyStore idempotencyStore;
+        private boolean headerOnly;
+        private AdmissionControl admission;
+
+        UseCaseBuilder validator(TrackingRequestValidator validator) {
+            this.validator = validator;
+            return this;
+        }
+
+        UseCaseBuilder auditLog(IssuanceAuditLog auditLog) {
+            this.auditLog = auditLog;
+            return this;
+        }
+
+        UseCaseBuilder namespace(TrackingNamespace namespace) {
+            this.namespace = namespace;
+            return this;
+        }
+
+        UseCaseBuilder idempotencyStore(IdempotencyStore idempotencyStore) {
+            this.idempotencyStore = idempotencyStore;
+            return this;
+        }
+
+        UseCaseBuilder headerOnly(boolean headerOnly) {
+            this.headerOnly = headerOnly;
+            return this;
+        }
+
+        UseCaseBuilder admission(AdmissionControl admission) {
+            this.admission = admission;
+            return this;
+        }
+
+        GetNextTrackingNumberUseCase build() {
+            return new GetNextTrackingNumberUseCase(trackingService, validator, ResponseClock.precise(), auditLog,
+                    namespace, idempotencyStore, headerOnly, admission);
+        }
+    }
 }
@@ -0,0 +1,99 @@
+package com.teleport.tracking.app;
+
+import com.teleport.tracking.presentation.BatchTrackingRequest;
+import com.teleport.tracking.presentation.TrackingRequestBody;
+import com.teleport.tracking.presentation.TrackingResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GetTrackingNumberBatchUseCaseTest {
+    @Mock
+    private TrackingService trackingService;
+
+    private final TrackingRequestValidator validator = new CompiledTrackingRequestValidator();
+    private GetTrackingNumberBatchUseCase useCase;
+
+    @BeforeEach
+    void setUp() {
+        useCase = new GetTrackingNumberBatchUseCase(trackingService, validator, ResponseClock.precise(), 100);
+    }
+
+    private static TrackingRequestBody validBody() {
+        return new TrackingRequestBody("MY", "ID", "2.211", "2018-11-20T19:29:32+08:00",
+                "4dcccfe6-fc76-4adc-84d0-067982c24805", "RedBox Logistics", "redbox-logistics");
+    }
+
+    @Test
+    void generateTrackingNumbers_countWithMetadata_reservesOneBlock() {
+        when(trackingService.generateTrackingNumbers(3)).thenReturn(Mono.just(List.of("A", "B", "C")));
+
+        StepVerifier.create(useCase.generateTrackingNumbers(new BatchTrackingRequest(3, validBody(), null)))
+                .assertNext(responses -> {
+                    assertEquals(List.of("A", "B", "C"), responses.stream().map(TrackingResponse::getTracking_number).toList());
+                    responses.forEach(r -> assertDoesNotThrow(() -> OffsetDateTime.parse(r.getCreated_at())));
+                })
+                .verifyComplete();
+        verify(trackingService, never()).generateTrackingNumber();
+    }
+
+    @Test
+    void generateTrackingNumbers_requestList_returnsOnePerRequest() {
+        when(trackingService.generateTrackingNumbers(2)).thenReturn(Mono.just(List.of("A", "B")));
+
+        StepVerifier.create(useCase.generateTrackingNumbers(new BatchTrackingRequest(null, null, List.of(validBody(), validBody()))))
+                .assertNext(responses -> assertEquals(2, responses.size()))
+                .verifyComplete();
+    }
+
+    @Test
+    void generateTrackingNumbers_invalidItem_reportsItsIndex() {
+        TrackingRequestBody invalid = validBody();
+        invalid.setOrigin_country_id("MYS");
+
+        ServerWebInputException ex = assertThrows(ServerWebInputException.class, () ->
+                useCase.generateTrackingNumbers(new BatchTrackingRequest(null, null, List.of(validBody(), invalid))));
+        assertEquals("requests[1]: origin_country_id must be ISO 3166-1 uppercase alpha-2", ex.getReason());
+        verifyNoInteractions(trackingService);
+    }
+
+    @Test
+    void generateTrackingNumbers_unparsableWeight_isBadRequest() {
+        TrackingRequestBody invalid = validBody();
+        invalid.setWeight("heavy");
+
+        ServerWebInputException ex = assertThrows(ServerWebInputException.class, () ->
+                useCase.generateTrackingNumbers(new BatchTrackingRequest(2, invalid, null)));
+        assertEquals("metadata: Invalid weight", ex.getReason());
+    }
+
+    @Test
+    void generateTrackingNumbers_countAndRequests_isRejected() {
+        assertThrows(ServerWebInputException.class, () ->
+                useCase.generateTrackingNumbers(new BatchTrackingRequest(1, validBody(), List.of(validBody()))));
+        assertThrows(ServerWebInputException.class, () ->
+                useCase.generateTrackingNumbers(new BatchTrackingRequest(null, null, null)));
+    }
+
+    @Test
+    void generateTrackingNumbers_countOutOfBounds_isRejected() {
+        assertThrows(ServerWebInputException.class, () ->
+                useCase.generateTrackingNumbers(new BatchTrackingRequest(0, validBody(), null)));
+        assertThrows(ServerWebInputException.class, () ->
+                useCase.generateTrackingNumbers(new BatchTrackingRequest(101, validBody(), null)));
+        assertThrows(ServerWebInputException.class, () ->
+                useCase.generateTrackingNumbers(new BatchTrackingRequest(5, null, null)));
+    }
+}
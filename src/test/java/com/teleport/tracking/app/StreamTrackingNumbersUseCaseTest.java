@@ -0,0 +1,111 @@
+package com.teleport.tracking.app;
+
+import com.teleport.tracking.presentation.TrackingResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StreamTrackingNumbersUseCaseTest {
+    @Mock
+    private TrackingService trackingService;
+
+    private final AtomicInteger issued = new AtomicInteger();
+    private StreamTrackingNumbersUseCase useCase;
+
+    @BeforeEach
+    void setUp() {
+        useCase = new StreamTrackingNumbersUseCase(trackingService, ResponseClock.precise(), 100);
+    }
+
+    private void stubChunks(int largest) {
+        when(trackingService.generateTrackingNumberChunk(anyInt())).thenAnswer(invocation -> {
+            int n = Math.min(invocation.<Integer>getArgument(0), largest);
+            List<String> ids = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                ids.add("T" + issued.incrementAndGet());
+            }
+            return Mono.just(ids);
+        });
+    }
+
+    @Test
+    void streamTrackingNumbers_reservesChunksOnlyAsFastAsTheClientReads() {
+        stubChunks(Integer.MAX_VALUE);
+
+        StepVerifier.create(useCase.streamTrackingNumbers(4, 0), 5)
+                .expectNextCount(5)
+                .thenAwait()
+                // the chunk being read and the next one
+                .then(() -> assertTrue(issued.get() <= 5 + 2 * 4, "reserved " + issued.get()))
+                .thenRequest(3)
+                .expectNextCount(3)
+                .then(() -> assertTrue(issued.get() <= 8 + 2 * 4, "reserved " + issued.get()))
+                .thenCancel()
+                .verify();
+        verify(trackingService, never()).generateTrackingNumber();
+        verify(trackingService, never()).generateTrackingNumbers(anyInt());
+    }
+
+    @Test
+    void streamTrackingNumbers_withLimit_trimsTheLastChunk() {
+        stubChunks(Integer.MAX_VALUE);
+
+        StepVerifier.create(useCase.streamTrackingNumbers(4, 10).map(TrackingResponse::getTracking_number))
+                .expectNext("T1", "T2", "T3", "T4", "T5", "T6", "T7", "T8", "T9", "T10")
+                .verifyComplete();
+        verify(trackingService, times(2)).generateTrackingNumberChunk(4);
+        verify(trackingService).generateTrackingNumberChunk(2);
+    }
+
+    @Test
+    void streamTrackingNumbers_shortChunks_stillEmitTheLimit() {
+        stubChunks(3);
+
+        StepVerifier.create(useCase.streamTrackingNumbers(4, 10))
+                .expectNextCount(10)
+                .verifyComplete();
+        assertEquals(10, issued.get());
+        verify(trackingService, times(3)).generateTrackingNumberChunk(4);
+        verify(trackingService).generateTrackingNumberChunk(1);
+    }
+
+    @Test
+    void streamTrackingNumbers_providerFailure_terminatesStream() {
+        when(trackingService.generateTrackingNumberChunk(4))
+                .thenReturn(Mono.just(List.of("A", "B", "C", "D")))
+                .thenReturn(Mono.error(new RuntimeException("redis down")));
+
+        StepVerifier.create(useCase.streamTrackingNumbers(4, 0))
+                .expectNextCount(4)
+                .verifyErrorMessage("redis down");
+    }
+
+    @Test
+    void streamTrackingNumbers_chunkOutOfRange_throws() {
+        ServerWebInputException ex = assertThrows(ServerWebInputException.class,
+                () -> useCase.streamTrackingNumbers(101, 0));
+        assertTrue(ex.getReason().contains("chunk must be between 1 and 100"));
+        assertThrows(ServerWebInputException.class, () -> useCase.streamTrackingNumbers(0, 0));
+        verifyNoInteractions(trackingService);
+    }
+
+    @Test
+    void streamTrackingNumbers_negativeLimit_throws() {
+        assertThrows(ServerWebInputException.class, () -> useCase.streamTrackingNumbers(4, -1));
+        verifyNoInteractions(trackingService);
+    }
+}
@@ -0,0 +1,91 @@
+package com.teleport.tracking.domain;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Round-trips sampled counters through the encoder. Run with
+ * {@code -Dtracking.encoder.samples=2000000000} for the full sweep.
+ */
+class Base36TrackingNumberEncoderTest {
+
+    private static final long SAMPLES = Long.getLong("tracking.encoder.samples", 5_000_000L);
+    private static final Pattern TRACKING_NUMBER = Pattern.compile("^[A-Z0-9]{1,16}$");
+
+    private final Base36TrackingNumberEncoder encoder = new Base36TrackingNumberEncoder(0x5DEECE66D2F1A3B7L);
+
+    @Test
+    void encode_edgeValues_roundTrip() {
+        for (long counter : new long[]{0, 1, 2, Long.MAX_VALUE, Long.MIN_VALUE, -1}) {
+            String trackingNumber = encoder.encode(counter);
+            Assertions.assertTrue(TRACKING_NUMBER.matcher(trackingNumber).matches(), trackingNumber);
+            Assertions.assertEquals(Base36TrackingNumberEncoder.WIDTH, trackingNumber.length());
+            Assertions.assertEquals(counter, encoder.decode(trackingNumber));
+        }
+    }
+
+    @Test
+    void encode_sampledValues_roundTrip() {
+        SplittableRandom random = new SplittableRandom(42);
+        long half = SAMPLES / 2;
+        // sequential counters as Redis issues them, then uniformly random ones
+        for (long counter = 1; counter <= half; counter++) {
+            Assertions.assertEquals(counter, encoder.decode(encoder.encode(counter)));
+        }
+        for (long i = half; i < SAMPLES; i++) {
+            long counter = random.nextLong();
+            if (encoder.decode(encoder.encode(counter)) != counter) {
+                Assertions.fail("round trip failed for " + counter);
+            }
+        }
+    }
+
+    @Test
+    void encode_consecutiveCounters_lookUnrelated() {
+        int differingPositions = 0;
+        String previous = encoder.encode(1_000_000);
+        for (long counter = 1_000_001; counter <= 1_001_000; counter++) {
+            String current = encoder.encode(counter);
+            for (int i = 0; i < current.length(); i++) {
+                if (current.charAt(i) != previous.charAt(i)) {
+                    differingPositions++;
+                }
+            }
+            previous = current;
+        }
+        // the leading digit only spans A-D, the other twelve should change almost always
+        Assertions.assertTrue(differingPositions / 1000.0 > 10.0, "average differing positions " + differingPositions / 1000.0);
+    }
+
+    @Test
+    void encode_isInjectiveOverSequentialRange() {
+        Set<String> seen = new HashSet<>();
+        for (long counter = 1; counter <= 100_000; counter++) {
+            Assertions.assertTrue(seen.add(encoder.encode(counter)));
+        }
+    }
+
+    @Test
+    void differentKeys_produceDifferentNumbers() {
+        Base36TrackingNumberEncoder other = new Base36TrackingNumberEncoder(7L);
+        Assertions.assertNotEquals(encoder.encode(12345), other.encode(12345));
+        Assertions.assertNotEquals(12345, other.decode(encoder.encode(12345)));
+    }
+
+    @Test
+    void decode_rejectsMalformedInput() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> encoder.decode("ABC"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> encoder.decode("abcdefghijklm"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> encoder.decode("9999999999999"));
+    }
+
+    @Test
+    void stringKey_isDecoded() {
+        Assertions.assertEquals(encoder.encode(99), new Base36TrackingNumberEncoder("0x5DEECE66D2F1A3B7").encode(99));
+    }
+}
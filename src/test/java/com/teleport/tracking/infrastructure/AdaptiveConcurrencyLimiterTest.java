@@ -0,0 +1,230 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.app.RequestRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final Duration LATENCY_TARGET = Duration.ofMillis(50);
+    private static final Duration QUEUE_TIMEOUT = Duration.ofMillis(100);
+
+    private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    private final AtomicLong nanos = new AtomicLong();
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit, int minLimit, int maxLimit, int queueSize,
+                                               BooleanSupplier starved) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, LATENCY_TARGET, queueSize,
+                QUEUE_TIMEOUT, Duration.ofSeconds(2), starved, scheduler, nanos::get);
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit, int queueSize) {
+        return limiter(initialLimit, 1, 16, queueSize, () -> false);
+    }
+
+    @Test
+    void requestsOverTheLimit_waitForTheNextGenerationToFinish() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 4);
+        List<Sinks.One<Long>> works = new ArrayList<>();
+        List<Long> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Sinks.One<Long> work = Sinks.one();
+            works.add(work);
+            limiter.admit(Mono.defer(work::asMono)).subscribe(results::add);
+        }
+
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getQueued());
+        assertEquals(0, works.get(2).currentSubscriberCount());
+
+        works.get(0).tryEmitValue(1L);
+
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(0, limiter.getQueued());
+        assertEquals(1, works.get(2).currentSubscriberCount());
+
+        works.get(1).tryEmitValue(2L);
+        works.get(2).tryEmitValue(3L);
+
+        assertEquals(List.of(1L, 2L, 3L), results);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void fullQueue_shedsTheRequestAtOnce() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1);
+        limiter.admit(Mono.never()).subscribe();
+        limiter.admit(Mono.never()).subscribe();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        limiter.admit(Mono.just(1L)).subscribe(value -> fail("admitted"), error::set);
+
+        RequestRejectedException rejected = assertInstanceOf(RequestRejectedException.class, error.get());
+        assertEquals(AdaptiveConcurrencyLimiter.QUEUE_FULL, rejected.getReason());
+        assertEquals(Duration.ofSeconds(2), rejected.getRetryAfter());
+        assertEquals(1, limiter.getQueued());
+    }
+
+    @Test
+    void queuedRequest_isShedAfterQueueTimeout() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 4);
+        Sinks.One<Long> running = Sinks.one();
+        limiter.admit(running.asMono()).subscribe();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        limiter.admit(Mono.just(2L)).subscribe(value -> fail("admitted"), error::set);
+
+        scheduler.advanceTimeBy(QUEUE_TIMEOUT);
+
+        assertEquals(AdaptiveConcurrencyLimiter.QUEUE_TIMEOUT, ((RequestRejectedException) error.get()).getReason());
+        assertEquals(0, limiter.getQueued());
+        running.tryEmitValue(1L);
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(1, limiter.getRejected());
+    }
+
+    @Test
+    void cancelledWaiter_leavesTheQueue() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 4);
+        limiter.admit(Mono.never()).subscribe();
+
+        limiter.admit(Mono.just(2L)).subscribe().dispose();
+
+        assertEquals(0, limiter.getQueued());
+        assertEquals(0, limiter.getRejected());
+    }
+
+    @Test
+    void requestCancelledRightAfterItsGrant_givesThePermitBack() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 4);
+        Sinks.One<Long> running = Sinks.one();
+        limiter.admit(running.asMono()).subscribe();
+        AtomicReference<Disposable> granted = new AtomicReference<>();
+        granted.set(limiter.admit(Mono.defer(() -> {
+            granted.get().dispose();
+            return Mono.just(2L);
+        })).subscribe());
+
+        running.tryEmitValue(1L);
+
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getQueued());
+        assertEquals(1L, limiter.admit(Mono.just(1L)).block());
+    }
+
+    @Test
+    void concurrentCancellations_neverLeakPermits() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 16, LATENCY_TARGET, 8,
+                Duration.ofMillis(20), Duration.ofSeconds(1), () -> false, Schedulers.parallel(), System::nanoTime);
+        for (int i = 0; i < 2000; i++) {
+            Disposable request = limiter.admit(Mono.delay(Duration.ofNanos(i % 7 * 10_000)))
+                    .subscribe(value -> { }, error -> { });
+            if (i % 3 == 0) {
+                Schedulers.parallel().schedule(request::dispose);
+            }
+        }
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while ((limiter.getInFlight() > 0 || limiter.getQueued() > 0) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    void slowGenerations_lowerTheLimitDownToTheMinimum() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 2, 16, 4, () -> false);
+        Mono<Long> slow = Mono.fromSupplier(() -> nanos.addAndGet(LATENCY_TARGET.toNanos() * 2));
+
+        limiter.admit(slow).block();
+        assertEquals(6, limiter.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            limiter.admit(slow).block();
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void fastGenerations_raiseABusyLimitButNotAnIdleOne() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 1, 16, 4, () -> false);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.admit(Mono.just(1L)).block();
+        }
+        assertEquals(4, limiter.getLimit());
+
+        for (int round = 0; round < 20; round++) {
+            List<Sinks.One<Long>> works = new ArrayList<>();
+            for (int i = 0; i < limiter.getLimit(); i++) {
+                Sinks.One<Long> work = Sinks.one();
+                works.add(work);
+                limiter.admit(work.asMono()).subscribe();
+            }
+            works.forEach(work -> work.tryEmitValue(1L));
+        }
+        assertTrue(limiter.getLimit() > 4, "limit " + limiter.getLimit());
+        assertTrue(limiter.getLimit() <= 16);
+    }
+
+    @Test
+    void slowRedis_shedsRequestsWhileTheRefreshIsOverdue() throws InterruptedException {
+        SlowLeaseSource redis = new SlowLeaseSource();
+        RedisTrackingNumberProvider provider = new RedisTrackingNumberProvider(redis, LeaseSizer.fixed(10), 0.5);
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 1, 16, 4, () -> provider.isStarved(0));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        limiter.bindTo(registry);
+
+        AtomicLong first = new AtomicLong(-1);
+        limiter.admit(provider.nextCounter()).subscribe(first::set);
+        Thread.sleep(2);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        limiter.admit(provider.nextCounter()).subscribe(value -> fail("admitted"), error::set);
+
+        assertEquals(AdaptiveConcurrencyLimiter.LEASE_OVERDUE, ((RequestRejectedException) error.get()).getReason());
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(1, registry.get("tracking.admission.rejected").tag("reason", "lease_overdue")
+                .functionCounter().count());
+
+        redis.complete(new LeaseSource.LeaseRange(1, 11));
+
+        assertEquals(1, first.get());
+        assertEquals(2, limiter.admit(provider.nextCounter()).block());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(8, registry.get("tracking.admission.limit").gauge().value());
+    }
+
+    /**
+     * A lease source whose leases arrive only when the test says so.
+     */
+    private static final class SlowLeaseSource implements LeaseSource {
+        private final Queue<Sinks.One<LeaseRange>> pending = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public Mono<LeaseRange> lease(long size) {
+            Sinks.One<LeaseRange> sink = Sinks.one();
+            pending.add(sink);
+            return sink.asMono();
+        }
+
+        void complete(LeaseRange range) {
+            pending.remove().tryEmitValue(range);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.teleport.tracking.infrastructure;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+class CachedResponseClockTest {
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2018-11-20T11:29:32.123456789Z"));
+
+    @Test
+    void secondsPrecision_reusesStringWithinSecond() {
+        CachedResponseClock responseClock = new CachedResponseClock(CachedResponseClock.Precision.SECONDS, clock);
+
+        String first = responseClock.now();
+        clock.instant = clock.instant.plusMillis(800);
+        String second = responseClock.now();
+
+        Assertions.assertEquals("2018-11-20T11:29:32Z", first);
+        Assertions.assertSame(first, second);
+        clock.instant = clock.instant.plusMillis(100);
+        Assertions.assertEquals("2018-11-20T11:29:33Z", responseClock.now());
+    }
+
+    @Test
+    void millisPrecision_truncatesToMillisecond() {
+        CachedResponseClock responseClock = new CachedResponseClock(CachedResponseClock.Precision.MILLIS, clock);
+
+        String first = responseClock.now();
+        Assertions.assertEquals("2018-11-20T11:29:32.123Z", first);
+        Assertions.assertSame(first, responseClock.now());
+        clock.instant = clock.instant.plusMillis(1);
+        Assertions.assertEquals("2018-11-20T11:29:32.124Z", responseClock.now());
+    }
+
+    @Test
+    void precisePrecision_formatsFullTime() {
+        CachedResponseClock responseClock = new CachedResponseClock(CachedResponseClock.Precision.PRECISE, clock);
+
+        Assertions.assertEquals("2018-11-20T11:29:32.123456789Z", responseClock.now());
+    }
+
+    @Test
+    void configuredPrecision_isCaseInsensitiveAndParsesAsOffsetDateTime() {
+        CachedResponseClock responseClock = new CachedResponseClock("Seconds");
+
+        Assertions.assertEquals(CachedResponseClock.Precision.SECONDS, responseClock.getPrecision());
+        Assertions.assertDoesNotThrow(() -> OffsetDateTime.parse(responseClock.now()));
+    }
+}
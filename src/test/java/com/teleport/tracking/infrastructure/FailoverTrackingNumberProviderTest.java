@@ -0,0 +1,103 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.domain.CounterBlock;
+import com.teleport.tracking.domain.CounterSpace;
+import com.teleport.tracking.domain.TrackingNumberGenerationException;
+import com.teleport.tracking.domain.TrackingNumberProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FailoverTrackingNumberProviderTest {
+
+    private static final TrackingNumberGenerationException REDIS_DOWN =
+            new TrackingNumberGenerationException("Failed to refresh tracking number range", new RuntimeException("connection refused"));
+
+    private TrackingNumberProvider leased;
+    private SnowflakeTrackingNumberProvider fallback;
+
+    @BeforeEach
+    void setUp() {
+        leased = Mockito.mock(TrackingNumberProvider.class);
+        fallback = new SnowflakeTrackingNumberProvider(7, System::currentTimeMillis);
+    }
+
+    @Test
+    void leasedProviderHealthy_issuesFromIt() {
+        Mockito.when(leased.nextCounter()).thenReturn(Mono.just(42L));
+        FailoverTrackingNumberProvider provider = new FailoverTrackingNumberProvider(leased, fallback, Duration.ofSeconds(1), Duration.ofMinutes(10));
+
+        StepVerifier.create(provider.nextCounter()).expectNext(42L).verifyComplete();
+        assertFalse(provider.isOnFallback());
+    }
+
+    @Test
+    void leasedProviderFails_switchesToFallback() {
+        Mockito.when(leased.nextCounter()).thenReturn(Mono.error(REDIS_DOWN));
+        FailoverTrackingNumberProvider provider = new FailoverTrackingNumberProvider(leased, fallback, Duration.ofHours(1), Duration.ofMinutes(10));
+
+        long first = provider.nextCounter().block();
+        long second = provider.nextCounter().block();
+
+        assertTrue(CounterSpace.isFallback(first));
+        assertEquals(first + 1, second);
+        assertTrue(provider.isOnFallback());
+        // not probed again before the probe interval
+        Mockito.verify(leased, Mockito.times(1)).nextCounter();
+    }
+
+    @Test
+    void batchWhileOnFallback_isContiguousFallbackBlock() {
+        Mockito.when(leased.nextCounters(500)).thenReturn(Mono.error(REDIS_DOWN));
+        FailoverTrackingNumberProvider provider = new FailoverTrackingNumberProvider(leased, fallback, Duration.ofHours(1), Duration.ofMinutes(10));
+
+        CounterBlock block = provider.nextCounters(500).block();
+
+        assertTrue(CounterSpace.isFallback(block.start()));
+        assertEquals(500, block.size());
+    }
+
+    @Test
+    void probeSucceeds_switchesBack() {
+        Mockito.when(leased.nextCounter()).thenReturn(Mono.error(REDIS_DOWN), Mono.just(1L), Mono.just(2L));
+        FailoverTrackingNumberProvider provider = new FailoverTrackingNumberProvider(leased, fallback, Duration.ZERO, Duration.ofMinutes(10));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        provider.bindTo(registry);
+
+        assertTrue(CounterSpace.isFallback(provider.nextCounter().block()));
+        assertEquals(1, registry.get("tracking.fallback.active").gauge().value());
+        // this request is still served by the fallback; its background probe reaches Redis
+        assertTrue(CounterSpace.isFallback(provider.nextCounter().block()));
+
+        assertFalse(provider.isOnFallback());
+        assertEquals(2L, provider.nextCounter().block());
+        assertEquals(0, registry.get("tracking.fallback.active").gauge().value());
+        assertEquals(2, registry.get("tracking.fallback.issued").functionCounter().count());
+        assertEquals(1, registry.get("tracking.fallback.switchovers").functionCounter().count());
+    }
+
+    @Test
+    void outageLongerThanMaxDuration_failsRequests() {
+        Mockito.when(leased.nextCounter()).thenReturn(Mono.error(REDIS_DOWN));
+        FailoverTrackingNumberProvider provider = new FailoverTrackingNumberProvider(leased, fallback, Duration.ofHours(1), Duration.ZERO);
+
+        provider.nextCounter().onErrorResume(ex -> Mono.empty()).block();
+
+        StepVerifier.create(provider.nextCounter()).expectError(TrackingNumberGenerationException.class).verify();
+    }
+
+    @Test
+    void fallbackDisabled_propagatesLeasedFailure() {
+        Mockito.when(leased.nextCounter()).thenReturn(Mono.error(REDIS_DOWN));
+        FailoverTrackingNumberProvider provider = new FailoverTrackingNumberProvider(leased, null, Duration.ofSeconds(1), Duration.ofMinutes(10));
+
+        StepVerifier.create(provider.nextCounter()).expectErrorMatches(ex -> ex == REDIS_DOWN).verify();
+    }
+}
@@ -0,0 +1,91 @@
+package com.teleport.tracking.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FingerprintCacheTest {
+
+    private final AtomicLong millis = new AtomicLong(1_000);
+
+    @Test
+    void putIfAbsent_keepsFirstCounter() {
+        FingerprintCache cache = new FingerprintCache(1024, 60_000, millis::get);
+
+        assertEquals(FingerprintCache.NONE, cache.get(42));
+        assertEquals(FingerprintCache.NONE, cache.putIfAbsent(42, 7));
+        assertEquals(7, cache.putIfAbsent(42, 8));
+        assertEquals(7, cache.get(42));
+        assertEquals(FingerprintCache.NONE, cache.get(43));
+    }
+
+    @Test
+    void entries_expireAfterTtl() {
+        FingerprintCache cache = new FingerprintCache(1024, 60_000, millis::get);
+        cache.putIfAbsent(42, 7);
+
+        millis.addAndGet(59_999);
+        assertEquals(7, cache.get(42));
+        millis.addAndGet(1);
+        assertEquals(FingerprintCache.NONE, cache.get(42));
+        assertEquals(FingerprintCache.NONE, cache.putIfAbsent(42, 8));
+        assertEquals(8, cache.get(42));
+    }
+
+    @Test
+    void fullCache_forgetsOldestEntries() {
+        FingerprintCache cache = new FingerprintCache(4096, 60_000, millis::get);
+        int inserted = cache.capacity() * 4;
+        for (int i = 0; i < inserted; i++) {
+            millis.incrementAndGet();
+            cache.put(i, i);
+        }
+
+        int recentHits = 0;
+        int oldHits = 0;
+        for (int i = 0; i < cache.capacity() / 4; i++) {
+            recentHits += cache.get(inserted - 1 - i) == inserted - 1 - i ? 1 : 0;
+            oldHits += cache.get(i) == i ? 1 : 0;
+        }
+        assertEquals(0, oldHits);
+        assertTrue(recentHits > cache.capacity() / 4 * 0.9, "recent entries kept: " + recentHits);
+    }
+
+    @Test
+    void concurrentClaims_agreeOnOneCounter() throws Exception {
+        FingerprintCache cache = new FingerprintCache(1 << 16, 60_000, millis::get);
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long counter = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long[] owners = new long[10_000];
+                    for (int key = 0; key < owners.length; key++) {
+                        long earlier = cache.putIfAbsent(key, counter);
+                        owners[key] = earlier == FingerprintCache.NONE ? counter : earlier;
+                    }
+                    return owners;
+                }));
+            }
+            start.countDown();
+            long[] first = futures.get(0).get();
+            for (Future<long[]> future : futures) {
+                assertArrayEquals(first, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
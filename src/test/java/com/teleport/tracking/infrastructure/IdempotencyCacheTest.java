@@ -0,0 +1,54 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.app.IdempotencyStore;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+class IdempotencyCacheTest {
+
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    @Test
+    void claim_locallyKeepsFirstCounter() {
+        IdempotencyCache cache = new IdempotencyCache(null, 1024, TTL, System::currentTimeMillis);
+
+        assertEquals(IdempotencyStore.NONE, cache.find(42));
+        StepVerifier.create(cache.claim(42, 7)).expectNext(7L).verifyComplete();
+        StepVerifier.create(cache.claim(42, 8)).expectNext(7L).verifyComplete();
+        assertEquals(7, cache.find(42));
+        assertEquals(1, cache.getConflicts());
+    }
+
+    @Test
+    void claim_adoptsCounterClaimedInRedisByAnotherInstance() {
+        RedisService redisService = Mockito.mock(RedisService.class);
+        String key = IdempotencyCache.KEY_PREFIX + Long.toHexString(42);
+        Mockito.when(redisService.setIfAbsent(key, "8", TTL)).thenReturn(Mono.just(false));
+        Mockito.when(redisService.get(key)).thenReturn(Mono.just("7"));
+        IdempotencyCache cache = new IdempotencyCache(redisService, 1024, TTL, System::currentTimeMillis);
+
+        StepVerifier.create(cache.claim(42, 8)).expectNext(7L).verifyComplete();
+        assertEquals(7, cache.find(42));
+    }
+
+    @Test
+    void claim_keepsLocalClaimWhenRedisFails() {
+        RedisService redisService = Mockito.mock(RedisService.class);
+        Mockito.when(redisService.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenReturn(Mono.error(new IllegalStateException("Connection refused")));
+        IdempotencyCache cache = new IdempotencyCache(redisService, 1024, TTL, System::currentTimeMillis);
+
+        StepVerifier.create(cache.claim(42, 8)).expectNext(8L).verifyComplete();
+        assertEquals(8, cache.find(42));
+        Mockito.verify(redisService).setIfAbsent(eq(IdempotencyCache.KEY_PREFIX + "2a"), eq("8"), eq(TTL));
+    }
+}
@@ -0,0 +1,126 @@
+package com.teleport.tracking.infrastructure;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Kills a JVM that has issued a random number of counters through a
+ * {@link JournaledLeaseSource}, several times over, and checks that every restart resumes the
+ * same Redis lease without reissuing a counter and without burning more than the
+ * steps the killed process held.
+ */
+class JournaledLeaseSourceCrashTest {
+
+    private static final long STEP = 100;
+    private static final long LEASE_SIZE = 1_000_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void killedProcess_restartResumesLeaseWithoutReissuing() throws Exception {
+        Path journal = directory.resolve("lease.journal");
+        Path counter = directory.resolve("redis.counter");
+        Set<Long> issued = new HashSet<>();
+        long highest = 0;
+        for (int round = 0; round < 3; round++) {
+            int kill = ThreadLocalRandom.current().nextInt(1_000, 5_000);
+            Process child = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-DLOG_LEVEL=OFF", "-cp", System.getProperty("java.class.path"), Child.class.getName(),
+                    journal.toString(), counter.toString(), Integer.toString(kill))
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(child.getInputStream(), StandardCharsets.US_ASCII))) {
+                for (int i = 0; i < kill; i++) {
+                    String line = out.readLine();
+                    assertNotNull(line, "child exited early");
+                    long id = Long.parseLong(line);
+                    if (i == 0 && round > 0) {
+                        assertTrue(id > highest && id <= highest + 1 + 2 * STEP,
+                                "resumed at " + id + " after " + highest);
+                    }
+                    assertTrue(issued.add(id), "reissued " + id);
+                    highest = Math.max(highest, id);
+                }
+            } finally {
+                child.destroyForcibly();
+                assertTrue(child.waitFor(30, TimeUnit.SECONDS));
+            }
+            assertEquals(LEASE_SIZE, FileCounterRedisService.read(counter), "restart leased again from Redis");
+        }
+    }
+
+    /**
+     * Issues and prints the given number of counters, then waits to be killed.
+     */
+    public static final class Child {
+        public static void main(String[] args) throws IOException, InterruptedException {
+            RedisService redis = new FileCounterRedisService(Path.of(args[1]));
+            JournaledLeaseSource source = new JournaledLeaseSource(new RedisLeaseSource(redis), Path.of(args[0]), STEP);
+            RedisTrackingNumberProvider provider = new RedisTrackingNumberProvider(source, LeaseSizer.fixed(LEASE_SIZE), 0.5);
+            PrintStream out = new PrintStream(System.out, true, StandardCharsets.US_ASCII);
+            int count = Integer.parseInt(args[2]);
+            for (int i = 0; i < count; i++) {
+                out.println(provider.nextCounter().block());
+            }
+            Thread.sleep(Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * The in-memory Redis with its counters kept in a file, so that the leases outlive
+     * the processes taking them. Nothing else the child does needs to survive it.
+     */
+    static final class FileCounterRedisService extends InMemoryRedisService {
+        private final Path file;
+
+        FileCounterRedisService(Path file) {
+            this.file = file;
+        }
+
+        static long read(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+                channel.read(buffer, 0);
+                return buffer.flip().remaining() == Long.BYTES ? buffer.getLong() : 0;
+            }
+        }
+
+        @Override
+        public Mono<Long> incrementCounterWithDelta(String key, long delta) {
+            return Mono.fromCallable(() -> {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                     FileLock ignored = channel.lock()) {
+                    ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+                    channel.read(buffer, 0);
+                    long value = (buffer.flip().remaining() == Long.BYTES ? buffer.getLong() : 0) + delta;
+                    channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, value), 0);
+                    channel.force(false);
+                    return value;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
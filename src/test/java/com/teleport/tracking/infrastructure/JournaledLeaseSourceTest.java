@@ -0,0 +1,98 @@
+package com.teleport.tracking.infrastructure;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+
+class JournaledLeaseSourceTest {
+
+    @TempDir
+    Path directory;
+
+    private RedisService redisService;
+    private final AtomicLong redisCounter = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        redisService = Mockito.mock(RedisService.class);
+        Mockito.when(redisService.incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong()))
+                .thenAnswer(invocation -> Mono.fromSupplier(() -> redisCounter.addAndGet(invocation.getArgument(1))));
+    }
+
+    private JournaledLeaseSource source() {
+        return new JournaledLeaseSource(new RedisLeaseSource(redisService), directory.resolve("lease.journal"), 100);
+    }
+
+    @Test
+    void lease_handsOutRedisLeaseInSteps() throws IOException {
+        JournaledLeaseSource source = source();
+
+        StepVerifier.create(source.lease(250)).expectNext(new LeaseSource.LeaseRange(1, 101)).verifyComplete();
+        StepVerifier.create(source.lease(250)).expectNext(new LeaseSource.LeaseRange(101, 201)).verifyComplete();
+        StepVerifier.create(source.lease(250)).expectNext(new LeaseSource.LeaseRange(201, 251)).verifyComplete();
+        StepVerifier.create(source.lease(250)).expectNext(new LeaseSource.LeaseRange(251, 351)).verifyComplete();
+        Mockito.verify(redisService, Mockito.times(2)).incrementCounterWithDelta(RedisConstants.TRACKING_COUNTER_KEY, 250);
+        source.close();
+    }
+
+    @Test
+    void restart_resumesLeaseWithoutRedis() throws IOException {
+        JournaledLeaseSource source = source();
+        StepVerifier.create(source.lease(1000)).expectNext(new LeaseSource.LeaseRange(1, 101)).verifyComplete();
+        StepVerifier.create(source.lease(1000)).expectNext(new LeaseSource.LeaseRange(101, 201)).verifyComplete();
+        source.close();
+
+        JournaledLeaseSource restarted = source();
+
+        StepVerifier.create(restarted.lease(1000)).expectNext(new LeaseSource.LeaseRange(201, 301)).verifyComplete();
+        assertEquals(800, restarted.getRecovered());
+        Mockito.verify(redisService, Mockito.times(1)).incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong());
+        restarted.close();
+    }
+
+    @Test
+    void cleanShutdown_releasesUnissuedCountersToTheJournal() throws IOException {
+        JournaledLeaseSource source = source();
+        RedisTrackingNumberProvider provider = new RedisTrackingNumberProvider(source, LeaseSizer.fixed(1000), 0.5);
+        for (long expected = 1; expected <= 60; expected++) {
+            assertEquals(expected, provider.nextCounter().block());
+        }
+        // the prefetch of the second step runs on another thread
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (provider.remaining() < 140 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        provider.shutdown();
+        source.close();
+
+        assertEquals(0, provider.getBurned());
+        JournaledLeaseSource restarted = source();
+        RedisTrackingNumberProvider next = new RedisTrackingNumberProvider(restarted, LeaseSizer.fixed(1000), 0.5);
+        assertEquals(61, next.nextCounter().block());
+        Mockito.verify(redisService, Mockito.times(1)).incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong());
+        restarted.close();
+    }
+
+    @Test
+    void release_ofOlderRange_isRefused() throws IOException {
+        JournaledLeaseSource source = source();
+        source.lease(1000).block();
+        source.lease(1000).block();
+
+        assertFalse(source.release(new LeaseSource.LeaseRange(50, 101)));
+        assertTrue(source.release(new LeaseSource.LeaseRange(150, 201)));
+        assertTrue(source.release(new LeaseSource.LeaseRange(101, 150)));
+        source.close();
+    }
+}
@@ -0,0 +1,118 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.domain.CounterSpace;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaseJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recover_emptyJournal_returnsNull() throws IOException {
+        try (LeaseJournal journal = new LeaseJournal(directory.resolve("lease.journal"), 1024)) {
+            assertNull(journal.recover());
+        }
+    }
+
+    @Test
+    void recover_returnsLastRecord() throws IOException {
+        Path file = directory.resolve("lease.journal");
+        try (LeaseJournal journal = new LeaseJournal(file, 1024)) {
+            journal.append(100, 1000);
+            journal.append(300, 1000);
+            journal.append(1100, 2000);
+        }
+        try (LeaseJournal journal = new LeaseJournal(file, 1024)) {
+            assertArrayEquals(new long[]{1100, 2000}, journal.recover());
+        }
+    }
+
+    @Test
+    void recover_afterFailoverToLowerShard_returnsTheLowerLease() throws IOException {
+        Path file = directory.resolve("lease.journal");
+        long home = CounterSpace.shardCounter(5, 1);
+        long sibling = CounterSpace.shardCounter(2, 1);
+        try (LeaseJournal journal = new LeaseJournal(file, 1024)) {
+            journal.append(home + 100, home + 1000);
+            journal.append(sibling + 100, sibling + 1000);
+        }
+        try (LeaseJournal journal = new LeaseJournal(file, 1024)) {
+            assertArrayEquals(new long[]{sibling + 100, sibling + 1000}, journal.recover());
+        }
+    }
+
+    @Test
+    void recover_cutsTornTail() throws IOException {
+        Path file = directory.resolve("lease.journal");
+        try (LeaseJournal journal = new LeaseJournal(file, 1024)) {
+            journal.append(100, 1000);
+        }
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, StandardOpenOption.APPEND);
+
+        try (LeaseJournal journal = new LeaseJournal(file, 1024)) {
+            assertArrayEquals(new long[]{100, 1000}, journal.recover());
+            assertEquals(LeaseJournal.RECORD_SIZE, journal.size());
+            journal.append(200, 1000);
+        }
+        try (LeaseJournal journal = new LeaseJournal(file, 1024)) {
+            assertArrayEquals(new long[]{200, 1000}, journal.recover());
+        }
+    }
+
+    @Test
+    void recover_ignoresCorruptRecord() throws IOException {
+        Path file = directory.resolve("lease.journal");
+        try (LeaseJournal journal = new LeaseJournal(file, 1024)) {
+            journal.append(100, 1000);
+            journal.append(200, 1000);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[LeaseJournal.RECORD_SIZE] ^= 1;
+        Files.write(file, bytes);
+
+        try (LeaseJournal journal = new LeaseJournal(file, 1024)) {
+            assertArrayEquals(new long[]{100, 1000}, journal.recover());
+        }
+    }
+
+    @Test
+    void append_compactsAtMaxSize() throws IOException {
+        Path file = directory.resolve("lease.journal");
+        try (LeaseJournal journal = new LeaseJournal(file, 4 * LeaseJournal.RECORD_SIZE)) {
+            for (int mark = 1; mark <= 10; mark++) {
+                journal.append(mark, 1000);
+                assertTrue(journal.size() <= 4 * LeaseJournal.RECORD_SIZE);
+            }
+            assertArrayEquals(new long[]{10, 1000}, journal.recover());
+        }
+    }
+
+    @Test
+    void rewrite_canMoveMarkBack() throws IOException {
+        Path file = directory.resolve("lease.journal");
+        try (LeaseJournal journal = new LeaseJournal(file, 1024)) {
+            journal.append(500, 1000);
+            journal.rewrite(400, 1000);
+        }
+        try (LeaseJournal journal = new LeaseJournal(file, 1024)) {
+            assertArrayEquals(new long[]{400, 1000}, journal.recover());
+        }
+    }
+
+    @Test
+    void open_journalInUse_fails() throws IOException {
+        Path file = directory.resolve("lease.journal");
+        try (LeaseJournal ignored = new LeaseJournal(file, 1024)) {
+            assertThrows(IOException.class, () -> new LeaseJournal(file, 1024));
+        }
+    }
+}
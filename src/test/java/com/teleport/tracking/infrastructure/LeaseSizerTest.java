@@ -0,0 +1,74 @@
+package com.teleport.tracking.infrastructure;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+class LeaseSizerTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private LeaseSizer adaptiveSizer() {
+        return new LeaseSizer(10_000, true, Duration.ofSeconds(2), 100, 50_000, Duration.ofSeconds(1));
+    }
+
+    @Test
+    void fixedSizer_alwaysReturnsConfiguredSize() {
+        LeaseSizer sizer = LeaseSizer.fixed(500);
+        Assertions.assertEquals(500, sizer.nextSize(0, 0));
+        Assertions.assertEquals(500, sizer.nextSize(SECOND, 100_000));
+    }
+
+    @Test
+    void adaptiveSizer_startsFromInitialSize() {
+        Assertions.assertEquals(10_000, adaptiveSizer().nextSize(0, 0));
+    }
+
+    @Test
+    void adaptiveSizer_convergesToTargetDuration() {
+        LeaseSizer sizer = adaptiveSizer();
+        long issued = 0;
+        long size = sizer.nextSize(0, issued);
+        // 3,000 ids per second, sampled every half second for a while
+        for (int i = 1; i <= 40; i++) {
+            issued += 1_500;
+            size = sizer.nextSize(i * SECOND / 2, issued);
+        }
+        Assertions.assertEquals(6_000, size, 60);
+        Assertions.assertEquals(2.0, sizer.getRefreshRate(), 0.05);
+    }
+
+    @Test
+    void adaptiveSizer_quietPodShrinksToMinimum() {
+        LeaseSizer sizer = adaptiveSizer();
+        sizer.nextSize(0, 0);
+        long size = sizer.nextSize(60 * SECOND, 10);
+        Assertions.assertEquals(100, size);
+    }
+
+    @Test
+    void adaptiveSizer_busyPodIsCappedAtMaximum() {
+        LeaseSizer sizer = adaptiveSizer();
+        sizer.nextSize(0, 0);
+        long size = sizer.nextSize(10 * SECOND, 10_000_000);
+        Assertions.assertEquals(50_000, size);
+    }
+
+    @Test
+    void invalidBounds_areRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new LeaseSizer(10, true, Duration.ofSeconds(2), 100, 10, Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void bindTo_registersGauges() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LeaseSizer sizer = adaptiveSizer();
+        sizer.bindTo(registry);
+
+        Assertions.assertEquals(10_000, registry.get("tracking.lease.size").gauge().value());
+        Assertions.assertNotNull(registry.get("tracking.lease.refresh.rate").gauge());
+    }
+}
@@ -0,0 +1,39 @@
+package com.teleport.tracking.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogRateLimiterTest {
+
+    @Test
+    void tryAcquire_allowsLimitPerSecond() {
+        AtomicLong now = new AtomicLong(5_000_000_000L);
+        LogRateLimiter limiter = new LogRateLimiter(2, now::get);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        now.addAndGet(999_000_000L);
+        assertFalse(limiter.tryAcquire());
+
+        now.addAndGet(1_000_000L);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(3, limiter.getSuppressed());
+    }
+
+    @Test
+    void tryAcquire_unlimitedWhenZero() {
+        LogRateLimiter limiter = new LogRateLimiter(0, () -> 0L);
+
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertEquals(0, limiter.getSuppressed());
+    }
+}
@@ -1,7 +1,13 @@
 package com.teleport.tracking.infrastructure;
 
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.teleport.tracking.app.TraceContext;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -15,6 +21,7 @@ import reactor.test.StepVerifier;
 
 import java.net.URI;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,6 +32,7 @@ class LoggingWebFilterTest {
     private WebFilterChain chain;
     private ServerHttpRequest request;
     private ServerHttpResponse response;
+    private ListAppender<ILoggingEvent> appender;
 
     @BeforeEach
     void setUp() {
@@ -37,7 +45,16 @@ class LoggingWebFilterTest {
         when(exchange.getResponse()).thenReturn(response);
         when(request.getMethod()).thenReturn(HttpMethod.GET);
         when(request.getURI()).thenReturn(URI.create("/test"));
+        when(request.getHeaders()).thenReturn(new HttpHeaders());
         when(response.getStatusCode()).thenReturn(HttpStatus.OK);
+        appender = new ListAppender<>();
+        appender.start();
+        ((Logger) LoggerFactory.getLogger(LoggingWebFilter.class)).addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ((Logger) LoggerFactory.getLogger(LoggingWebFilter.class)).detachAppender(appender);
     }
 
     @Test
@@ -46,45 +63,147 @@ class LoggingWebFilterTest {
         String traceId = UUID.randomUUID().toString();
         headers.add(LoggingWebFilter.TRACE_ID_HEADER, traceId);
         when(request.getHeaders()).thenReturn(headers);
-        // Use a custom chain to assert MDC inside the reactive context
-        WebFilterChain customChain = exchange -> Mono.fromRunnable(() -> {
-            assertEquals(traceId, MDC.get(LoggingWebFilter.TRACE_ID_KEY));
-        });
+        when(chain.filter(exchange)).thenReturn(Mono.empty());
 
-        StepVerifier.create(filter.filter(exchange, customChain)).verifyComplete();
-        // No assertion on MDC here, as it is cleaned up after the chain
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+        String line = appender.list.get(0).getFormattedMessage();
+        assertTrue(line.endsWith(" traceId=" + traceId), line);
     }
 
     @Test
     void filter_traceIdAbsent_generatesTraceId() {
+        when(chain.filter(exchange)).thenReturn(Mono.empty());
+
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+        String line = appender.list.get(0).getFormattedMessage();
+        assertTrue(line.matches(".* traceId=[0-9a-f]{32}"), line);
+    }
+
+    @Test
+    void filter_traceIdPresent_isInTheContextOfTheChain() {
         HttpHeaders headers = new HttpHeaders();
+        headers.add(LoggingWebFilter.TRACE_ID_HEADER, "abc123");
         when(request.getHeaders()).thenReturn(headers);
-        WebFilterChain customChain = exchange -> Mono.fromRunnable(() -> {
-            String mdcTraceId = MDC.get(LoggingWebFilter.TRACE_ID_KEY);
-            assertNotNull(mdcTraceId);
-            assertFalse(mdcTraceId.isEmpty());
+        AtomicReference<String> seen = new AtomicReference<>();
+        WebFilterChain customChain = exchange -> Mono.deferContextual(context -> {
+            seen.set(TraceContext.traceId(context));
+            return Mono.empty();
+        });
+
+        StepVerifier.create(filter.filter(exchange, customChain)).verifyComplete();
+
+        assertEquals("abc123", seen.get());
+    }
+
+    @Test
+    void filter_traceIdAbsent_putsTheGeneratedIdInTheContextOfTheChain() {
+        AtomicReference<String> seen = new AtomicReference<>();
+        WebFilterChain customChain = exchange -> Mono.deferContextual(context -> {
+            seen.set(TraceContext.traceId(context));
+            return Mono.empty();
+        });
+
+        StepVerifier.create(filter.filter(exchange, customChain)).verifyComplete();
+
+        assertNotNull(seen.get());
+        assertTrue(seen.get().matches("[0-9a-f]{32}"), seen.get());
+        assertTrue(appender.list.get(0).getFormattedMessage().endsWith(" traceId=" + seen.get()));
+    }
+
+    @Test
+    void filter_off_stillPropagatesTheTraceId() {
+        filter = new LoggingWebFilter(LoggingWebFilter.Mode.OFF, 1.0, new LogRateLimiter(0));
+        AtomicReference<String> seen = new AtomicReference<>();
+        WebFilterChain customChain = exchange -> Mono.deferContextual(context -> {
+            seen.set(TraceContext.traceId(context));
+            return Mono.empty();
         });
 
         StepVerifier.create(filter.filter(exchange, customChain)).verifyComplete();
+
+        assertNotNull(seen.get());
+    }
+
+    @Test
+    void filter_leavesMdcUntouched() {
+        WebFilterChain customChain = exchange -> Mono.fromRunnable(
+                () -> assertNull(MDC.get(LoggingWebFilter.TRACE_ID_KEY)));
+
+        StepVerifier.create(filter.filter(exchange, customChain)).verifyComplete();
+        assertNull(MDC.get(LoggingWebFilter.TRACE_ID_KEY));
+    }
+
+    @Test
+    void filter_propagatesError() {
+        when(chain.filter(exchange)).thenReturn(Mono.error(new RuntimeException("fail")));
+
+        StepVerifier.create(filter.filter(exchange, chain)).expectErrorMessage("fail").verify();
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().startsWith("GET /test 500 "));
     }
 
     @Test
-    void filter_removesMdcOnSuccess() {
+    void filter_combined_logsOneLineWithStatusLatencyAndTraceId() {
         HttpHeaders headers = new HttpHeaders();
+        headers.add(LoggingWebFilter.TRACE_ID_HEADER, "abc123");
         when(request.getHeaders()).thenReturn(headers);
         when(chain.filter(exchange)).thenReturn(Mono.empty());
 
         StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
-        assertNull(MDC.get(LoggingWebFilter.TRACE_ID_KEY));
+
+        assertEquals(1, appender.list.size());
+        String line = appender.list.get(0).getFormattedMessage();
+        assertTrue(line.matches("GET /test 200 \\d+\\.\\d{3} ms traceId=abc123"), line);
     }
 
     @Test
-    void filter_removesMdcOnError() {
-        HttpHeaders headers = new HttpHeaders();
-        when(request.getHeaders()).thenReturn(headers);
+    void filter_split_logsRequestAndResponse() {
+        filter = new LoggingWebFilter(LoggingWebFilter.Mode.SPLIT, 1.0, new LogRateLimiter(0));
+        when(chain.filter(exchange)).thenReturn(Mono.empty());
+
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+
+        assertEquals(2, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().startsWith("Incoming request: GET /test"));
+        assertTrue(appender.list.get(1).getFormattedMessage().startsWith("Outgoing response: GET 200"));
+    }
+
+    @Test
+    void filter_sampledOut_skipsSuccessButLogsServerErrors() {
+        filter = new LoggingWebFilter(LoggingWebFilter.Mode.COMBINED, 0.0, new LogRateLimiter(0));
+        when(chain.filter(exchange)).thenReturn(Mono.empty());
+
+        for (int i = 0; i < 100; i++) {
+            StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+        }
+        assertTrue(appender.list.isEmpty());
+
+        when(response.getStatusCode()).thenReturn(HttpStatus.SERVICE_UNAVAILABLE);
+        StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+        assertEquals(1, appender.list.size());
+    }
+
+    @Test
+    void filter_off_logsNothing() {
+        filter = new LoggingWebFilter(LoggingWebFilter.Mode.OFF, 1.0, new LogRateLimiter(0));
         when(chain.filter(exchange)).thenReturn(Mono.error(new RuntimeException("fail")));
 
         StepVerifier.create(filter.filter(exchange, chain)).expectError().verify();
-        assertNull(MDC.get(LoggingWebFilter.TRACE_ID_KEY));
+        assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    void filter_rateLimited_dropsLinesOverTheLimit() {
+        LogRateLimiter limiter = new LogRateLimiter(3, () -> 0L);
+        filter = new LoggingWebFilter(LoggingWebFilter.Mode.COMBINED, 1.0, limiter);
+        when(chain.filter(exchange)).thenReturn(Mono.empty());
+
+        for (int i = 0; i < 10; i++) {
+            StepVerifier.create(filter.filter(exchange, chain)).verifyComplete();
+        }
+        assertEquals(3, appender.list.size());
+        assertEquals(7, limiter.getSuppressed());
     }
 }
@@ -0,0 +1,116 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.app.IssuanceAuditLog;
+import com.teleport.tracking.infrastructure.AuditLogReader.AuditRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedIssuanceAuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void append_recordsAreReadBackAcrossSegments() throws IOException {
+        MappedIssuanceAuditLog auditLog = new MappedIssuanceAuditLog(directory, 4);
+        long customerHash = IssuanceAuditLog.customerHash("123e4567-e89b-12d3-a456-426614174000");
+        for (long counter = 1; counter <= 10; counter++) {
+            auditLog.append(counter, 1_700_000_000_000L + counter, customerHash, IssuanceAuditLog.countryPair("MY", "ID"));
+        }
+        auditLog.close();
+
+        List<AuditRecord> records = read();
+        assertEquals(3, MappedIssuanceAuditLog.segments(directory).size());
+        assertEquals(10, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(new AuditRecord(i + 1, 1_700_000_000_001L + i, customerHash, "MY", "ID"), records.get(i));
+        }
+    }
+
+    @Test
+    void reopen_startsNewSegmentWithoutOverwriting() throws IOException {
+        MappedIssuanceAuditLog first = new MappedIssuanceAuditLog(directory, 8);
+        first.append(1, 0, 0, 0);
+        first.close();
+        MappedIssuanceAuditLog second = new MappedIssuanceAuditLog(directory, 8);
+        second.append(2, 0, 0, 0);
+        second.close();
+
+        assertEquals(List.of(1L, 2L), read().stream().map(AuditRecord::counter).toList());
+        assertEquals(2, MappedIssuanceAuditLog.segments(directory).size());
+    }
+
+    @Test
+    void append_concurrentWriters_everyRecordLandsOnce() throws Exception {
+        int threads = 8;
+        int perThread = 20_000;
+        MappedIssuanceAuditLog auditLog = new MappedIssuanceAuditLog(directory, 10_000);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long base = (long) t * perThread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        auditLog.append(base + i, 0, 0, 0);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        auditLog.bindTo(registry);
+        assertEquals(threads * perThread, registry.get("tracking.audit.records").functionCounter().count());
+        auditLog.close();
+
+        BitSet seen = new BitSet();
+        List<AuditRecord> records = read();
+        records.forEach(record -> {
+            assertFalse(seen.get((int) record.counter()), "duplicate " + record.counter());
+            seen.set((int) record.counter());
+        });
+        assertEquals(threads * perThread, records.size());
+        assertEquals(0, auditLog.getDropped());
+    }
+
+    @Test
+    void append_afterClose_isDropped() {
+        MappedIssuanceAuditLog auditLog = new MappedIssuanceAuditLog(directory, 8);
+        auditLog.close();
+
+        auditLog.append(1, 0, 0, 0);
+
+        assertEquals(1, auditLog.getDropped());
+    }
+
+    @Test
+    void read_rejectsForeignFile() throws IOException {
+        Path file = directory.resolve("issued-000000000001.bin");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IOException.class, () -> AuditLogReader.read(file, record -> { }));
+    }
+
+    private List<AuditRecord> read() throws IOException {
+        List<AuditRecord> records = new ArrayList<>();
+        AuditLogReader.read(directory, records::add);
+        return records;
+    }
+}
@@ -0,0 +1,214 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.app.IssuedTrackingNumber;
+import com.teleport.tracking.domain.CounterBlock;
+import com.teleport.tracking.domain.TrackingNumberProvider;
+import com.teleport.tracking.domain.TrackingServiceImpl;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefilledTrackingServiceTest {
+
+    private final CountingProvider provider = new CountingProvider();
+    private final LongAdder burned = new LongAdder();
+    private final AtomicLong nanos = new AtomicLong();
+
+    /**
+     * Started, and filling on the calling thread, so that every fill has finished when the call returns.
+     */
+    private PrefilledTrackingService service(int capacity, int minSize, Duration targetDuration) {
+        PrefilledTrackingService service = new PrefilledTrackingService(new TrackingServiceImpl(provider), provider,
+                burned::add, capacity, minSize, targetDuration, 4, Schedulers.immediate(), nanos::get);
+        service.start();
+        return service;
+    }
+
+    @Test
+    void construction_takesNoCountersUntilStarted() {
+        PrefilledTrackingService service = new PrefilledTrackingService(new TrackingServiceImpl(provider), provider,
+                burned::add, 64, 16, Duration.ofMillis(100), 4, Schedulers.immediate(), nanos::get);
+
+        assertEquals(0, service.getSize());
+        assertEquals(0, provider.issued.get());
+
+        service.start();
+
+        assertEquals(16, service.getSize());
+    }
+
+    @Test
+    void ring_isFilledAheadOfRequests() {
+        PrefilledTrackingService service = service(64, 16, Duration.ofMillis(100));
+
+        assertEquals(16, service.getSize());
+        assertEquals(16, provider.issued.get());
+
+        IssuedTrackingNumber issued = service.issueTrackingNumber().block();
+        assertEquals(1, issued.counter());
+        assertEquals(new TrackingServiceImpl(provider).trackingNumberOf(1).trackingNumber(), issued.trackingNumber());
+    }
+
+    @Test
+    void requests_receiveUniqueCountersWithoutMisses() {
+        PrefilledTrackingService service = service(64, 16, Duration.ofMillis(100));
+
+        Set<Long> counters = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            counters.add(service.issueTrackingNumber().block().counter());
+        }
+
+        assertEquals(1000, counters.size());
+        assertEquals(0, service.getMisses());
+        assertEquals(0, provider.singles.get());
+    }
+
+    @Test
+    void concurrentRequests_receiveUniqueCounters() {
+        PrefilledTrackingService service = new PrefilledTrackingService(new TrackingServiceImpl(provider), provider,
+                burned::add, 1024, 64, Duration.ofMillis(100), 16, Schedulers.newSingle("prefill-test"), System::nanoTime);
+        service.start();
+
+        List<Long> counters = Flux.range(0, 20_000)
+                .flatMap(i -> service.issueTrackingNumber().subscribeOn(Schedulers.parallel()), 64)
+                .map(IssuedTrackingNumber::counter)
+                .collectList()
+                .block();
+        service.shutdown();
+
+        assertEquals(20_000, new HashSet<>(counters).size());
+    }
+
+    @Test
+    void emptyRing_fallsBackToEncodingOnTheRequest() {
+        provider.failBlocks = true;
+        PrefilledTrackingService service = service(64, 16, Duration.ofMillis(100));
+
+        IssuedTrackingNumber issued = service.issueTrackingNumber().block();
+
+        assertEquals(0, service.getSize());
+        assertEquals(1, issued.counter());
+        assertEquals(1, service.getMisses());
+    }
+
+    @Test
+    void target_followsRequestRate() {
+        PrefilledTrackingService service = service(4096, 16, Duration.ofMillis(100));
+        for (int i = 0; i < 10_000; i++) {
+            service.issueTrackingNumber().block();
+        }
+
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        drainBelowHalf(service);
+        int busy = service.getTarget();
+        assertTrue(busy > 500 && busy < 1000, "target " + busy);
+        assertTrue(service.getSize() >= busy - 4);
+
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+        drainBelowHalf(service);
+        assertEquals(16, service.getTarget());
+    }
+
+    @Test
+    void target_isCappedAtCapacity() {
+        PrefilledTrackingService service = service(1024, 16, Duration.ofSeconds(1));
+        for (int i = 0; i < 10_000; i++) {
+            service.issueTrackingNumber().block();
+        }
+
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        drainBelowHalf(service);
+
+        assertEquals(1024, service.getTarget());
+        assertTrue(service.getSize() > 1020, "size " + service.getSize());
+    }
+
+    @Test
+    void ring_isFilledFromTheCurrentLeaseWithoutRoundTripsPerChunk() {
+        AtomicLong leased = new AtomicLong();
+        LongAdder leaseCalls = new LongAdder();
+        LeaseSource redis = new LeaseSource() {
+            @Override
+            public Mono<LeaseRange> lease(long size) {
+                leaseCalls.increment();
+                long start = leased.getAndAdd(size);
+                return Mono.just(new LeaseRange(start, start + size));
+            }
+
+            @Override
+            public Mono<LeaseRange> leaseExactly(long n) {
+                return Mono.error(new AssertionError("dedicated round trip for a chunk of " + n));
+            }
+        };
+        RedisTrackingNumberProvider leases = new RedisTrackingNumberProvider(redis, LeaseSizer.fixed(1000), 0.5);
+        PrefilledTrackingService service = new PrefilledTrackingService(new TrackingServiceImpl(leases), leases,
+                leases::burn, 4096, 1024, Duration.ofMillis(100), 256, Schedulers.immediate(), nanos::get);
+        service.start();
+
+        Set<Long> counters = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            counters.add(service.issueTrackingNumber().block().counter());
+        }
+
+        assertEquals(10_000, counters.size());
+        assertEquals(0, service.getMisses());
+        // 10,000 issued and at most 1024 in the ring, in leases of 1000, plus the one on standby
+        assertTrue(leaseCalls.sum() <= 13, "lease calls " + leaseCalls.sum());
+        assertEquals(0, leases.getBurned());
+    }
+
+    @Test
+    void shutdown_burnsWhatIsLeftInTheRing() {
+        PrefilledTrackingService service = service(64, 16, Duration.ofMillis(100));
+        for (int i = 0; i < 5; i++) {
+            service.issueTrackingNumber().block();
+        }
+
+        service.shutdown();
+
+        assertEquals(0, service.getSize());
+        assertEquals(11, burned.sum());
+        assertEquals(17, service.issueTrackingNumber().block().counter());
+        assertEquals(1, service.getMisses());
+    }
+
+    /**
+     * Issues until the ring asks for a refill, which resizes the target.
+     */
+    private static void drainBelowHalf(PrefilledTrackingService service) {
+        int before = service.getTarget();
+        for (int i = 0; i < before && service.getTarget() == before; i++) {
+            service.issueTrackingNumber().block();
+        }
+    }
+
+    private static final class CountingProvider implements TrackingNumberProvider {
+        final AtomicLong issued = new AtomicLong();
+        final AtomicLong singles = new AtomicLong();
+        volatile boolean failBlocks;
+
+        @Override
+        public Mono<Long> nextCounter() {
+            singles.incrementAndGet();
+            return Mono.fromSupplier(issued::incrementAndGet);
+        }
+
+        @Override
+        public Mono<CounterBlock> nextCounters(int n) {
+            if (failBlocks) {
+                return Mono.error(new IllegalStateException("no blocks"));
+            }
+            return Mono.fromSupplier(() -> new CounterBlock(issued.getAndAdd(n) + 1, n));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.domain.CounterSpace;
+import com.teleport.tracking.domain.TrackingNumberGenerationException;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisLeaseSourceTest {
+
+    @Test
+    void unsharded_leasesFromSingleKey() {
+        InMemoryRedisService redis = new InMemoryRedisService();
+        RedisLeaseSource source = new RedisLeaseSource(redis);
+
+        StepVerifier.create(source.lease(100)).expectNext(new LeaseSource.LeaseRange(1, 101)).verifyComplete();
+        StepVerifier.create(source.lease(100)).expectNext(new LeaseSource.LeaseRange(101, 201)).verifyComplete();
+        assertEquals(Set.of(RedisConstants.TRACKING_COUNTER_KEY), redis.keys());
+        assertEquals(-1, source.getShard());
+    }
+
+    @Test
+    void unsharded_exhaustedCounter_failsInsteadOfRunningIntoShardPrefixes() {
+        InMemoryRedisService redis = new InMemoryRedisService();
+        redis.set(RedisConstants.TRACKING_COUNTER_KEY, CounterSpace.SHARD_COUNTER_LIMIT - 50);
+        RedisLeaseSource source = new RedisLeaseSource(redis);
+
+        StepVerifier.create(source.lease(100)).expectError(TrackingNumberGenerationException.class).verify();
+    }
+
+    @Test
+    void sharded_leasesFromHomeShardUnderItsPrefix() {
+        InMemoryRedisService redis = new InMemoryRedisService();
+        RedisLeaseSource source = new RedisLeaseSource(redis, 8, "pod-3");
+        int home = source.getShardOrder()[0];
+
+        LeaseSource.LeaseRange range = source.lease(100).block();
+
+        assertEquals(home, source.getShard());
+        assertEquals(CounterSpace.shardCounter(home, 1), range.start());
+        assertEquals(100, range.size());
+        assertEquals(home, CounterSpace.shardOf(range.start()));
+        assertEquals(home, CounterSpace.shardOf(range.end() - 1));
+        assertEquals(Set.of("tracking:counter:{" + home + "}"), redis.keys());
+    }
+
+    @Test
+    void shardOrder_listsEveryShardOnce() {
+        int[] order = RedisLeaseSource.shardOrder("pod-0", 16);
+
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15},
+                Arrays.stream(order).sorted().toArray());
+        assertArrayEquals(order, RedisLeaseSource.shardOrder("pod-0", 16));
+    }
+
+    @Test
+    void addingShard_movesFewInstances() {
+        int[] perShard = new int[8];
+        int moved = 0;
+        for (int i = 0; i < 1000; i++) {
+            int before = RedisLeaseSource.shardOrder("pod-" + i, 8)[0];
+            int after = RedisLeaseSource.shardOrder("pod-" + i, 9)[0];
+            perShard[before]++;
+            if (before != after) {
+                moved++;
+                assertEquals(8, after, "instances only move to the new shard");
+            }
+        }
+        assertTrue(moved > 0 && moved < 200, "moved " + moved + " of 1000 instances");
+        for (int count : perShard) {
+            assertTrue(count > 60 && count < 200, "unbalanced ring: " + Arrays.toString(perShard));
+        }
+    }
+
+    @Test
+    void failedShard_failsOverToSiblingAndStaysThere() {
+        InMemoryRedisService redis = new InMemoryRedisService();
+        RedisLeaseSource source = new RedisLeaseSource(redis, 4, "pod-1");
+        int[] order = source.getShardOrder();
+        redis.fail(RedisLeaseSource.shardKey(order[0]));
+
+        LeaseSource.LeaseRange range = source.lease(100).block();
+
+        assertEquals(order[1], CounterSpace.shardOf(range.start()));
+        assertEquals(order[1], source.getShard());
+        source.lease(100).block();
+        assertEquals(1, redis.getIncrements(RedisLeaseSource.shardKey(order[0])),
+                "home shard is not retried on every lease");
+    }
+
+    @Test
+    void exhaustedShard_failsOverToSibling() {
+        InMemoryRedisService redis = new InMemoryRedisService();
+        RedisLeaseSource source = new RedisLeaseSource(redis, 4, "pod-2");
+        int[] order = source.getShardOrder();
+        redis.set(RedisLeaseSource.shardKey(order[0]), CounterSpace.SHARD_COUNTER_LIMIT - 50);
+
+        LeaseSource.LeaseRange range = source.lease(100).block();
+
+        assertEquals(CounterSpace.shardCounter(order[1], 1), range.start());
+    }
+
+    @Test
+    void allShardsFailing_propagatesError() {
+        InMemoryRedisService redis = new InMemoryRedisService();
+        RedisLeaseSource source = new RedisLeaseSource(redis, 2, "pod-1");
+        redis.fail(RedisLeaseSource.shardKey(0));
+        redis.fail(RedisLeaseSource.shardKey(1));
+
+        StepVerifier.create(source.lease(100)).expectError(IllegalStateException.class).verify();
+    }
+
+    /**
+     * Each stand-in shard serves one INCRBY at a time, taking a millisecond, so a
+     * single key caps throughput the way a single Redis key does. Four keys should
+     * serve close to four times as many leases.
+     */
+    @Test
+    void leaseThroughput_scalesWithShards() throws Exception {
+        List<LeaseSource.LeaseRange> single = new ArrayList<>();
+        List<LeaseSource.LeaseRange> sharded = new ArrayList<>();
+
+        long singleThroughput = run(1, single);
+        long shardedThroughput = run(4, sharded);
+
+        assertTrue(shardedThroughput >= 3 * singleThroughput,
+                "1 shard: " + singleThroughput + " leases, 4 shards: " + shardedThroughput + " leases");
+        assertDisjoint(single);
+        assertDisjoint(sharded);
+    }
+
+    private static long run(int shards, List<LeaseSource.LeaseRange> leased) throws Exception {
+        int instances = 32;
+        long runNanos = 500_000_000L;
+        InMemoryRedisService redis = new InMemoryRedisService();
+        redis.setServiceTime(Duration.ofMillis(1));
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(instances);
+        try {
+            List<Future<List<LeaseSource.LeaseRange>>> futures = new ArrayList<>();
+            for (int i = 0; i < instances; i++) {
+                RedisLeaseSource source = new RedisLeaseSource(redis, shards, "pod-" + i);
+                futures.add(executor.submit(() -> {
+                    List<LeaseSource.LeaseRange> ranges = new ArrayList<>();
+                    start.await();
+                    long deadline = System.nanoTime() + runNanos;
+                    while (System.nanoTime() < deadline) {
+                        ranges.add(source.lease(1000).block());
+                    }
+                    return ranges;
+                }));
+            }
+            start.countDown();
+            for (Future<List<LeaseSource.LeaseRange>> future : futures) {
+                leased.addAll(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return leased.size();
+    }
+
+    private static void assertDisjoint(List<LeaseSource.LeaseRange> ranges) {
+        ranges.sort(Comparator.comparingLong(LeaseSource.LeaseRange::start));
+        for (int i = 1; i < ranges.size(); i++) {
+            assertTrue(ranges.get(i - 1).end() <= ranges.get(i).start(),
+                    "overlapping leases " + ranges.get(i - 1) + " and " + ranges.get(i));
+        }
+    }
+}
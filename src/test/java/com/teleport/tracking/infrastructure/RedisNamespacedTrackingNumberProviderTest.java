@@ -0,0 +1,129 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.domain.CounterSpace;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedisNamespacedTrackingNumberProviderTest {
+
+    private final InMemoryRedisService redis = new InMemoryRedisService();
+    private final AtomicLong nanos = new AtomicLong();
+
+    private RedisNamespacedTrackingNumberProvider provider(long maxActive) {
+        return new RedisNamespacedTrackingNumberProvider(redis, 100, maxActive, Duration.ofMinutes(5),
+                Runnable::run, nanos::get);
+    }
+
+    @Test
+    void namespaces_issueFromTheirOwnCounters() {
+        RedisNamespacedTrackingNumberProvider provider = provider(100);
+
+        long a1 = provider.nextCounter("customer:acme").block();
+        long a2 = provider.nextCounter("customer:acme").block();
+        long b1 = provider.nextCounter("customer:globex").block();
+
+        assertEquals(CounterSpace.namespaceCounter(1, 1), a1);
+        assertEquals(a1 + 1, a2);
+        assertEquals(CounterSpace.namespaceCounter(2, 1), b1);
+        assertTrue(CounterSpace.isNamespaced(a1));
+        assertEquals(2, CounterSpace.namespaceOf(b1));
+        assertEquals(100, redis.counter(RedisNamespacedTrackingNumberProvider.NAMESPACE_KEY_PREFIX + "{1}:counter"));
+    }
+
+    @Test
+    void instances_shareNamespaceIdsAndNeverOverlap() {
+        RedisNamespacedTrackingNumberProvider first = provider(100);
+        RedisNamespacedTrackingNumberProvider second = provider(100);
+
+        long fromFirst = first.nextCounter("lane:MY-ID").block();
+        long fromSecond = second.nextCounter("lane:MY-ID").block();
+
+        assertEquals(CounterSpace.namespaceOf(fromFirst), CounterSpace.namespaceOf(fromSecond));
+        assertEquals(fromFirst + 100, fromSecond);
+    }
+
+    @Test
+    void concurrentRequests_shareOneLeasePerRefill() {
+        redis.setLatency(Duration.ofMillis(20));
+        RedisNamespacedTrackingNumberProvider provider = provider(100);
+
+        List<Long> counters = Flux.range(0, 250)
+                .flatMap(i -> provider.nextCounter("customer:acme").subscribeOn(Schedulers.parallel()), 64)
+                .collectList()
+                .block();
+
+        assertEquals(250, new HashSet<>(counters).size());
+        assertEquals(300, redis.counter(RedisNamespacedTrackingNumberProvider.NAMESPACE_KEY_PREFIX + "{1}:counter"));
+    }
+
+    @Test
+    void evictedLease_isGivenBackToRedis() {
+        RedisNamespacedTrackingNumberProvider provider = provider(2);
+        Map<String, Long> last = new ConcurrentHashMap<>();
+        for (String name : List.of("customer:a", "customer:b", "customer:c")) {
+            last.put(name, provider.nextCounter(name).block());
+        }
+        provider.cleanUp();
+
+        assertEquals(2, provider.getActive());
+        assertEquals(1, provider.getEvictions());
+        assertEquals(99, provider.getReleased());
+        assertEquals(0, provider.getBurned());
+        // every namespace carries on right after its last counter, evicted or not
+        for (String name : List.of("customer:a", "customer:b", "customer:c")) {
+            assertEquals(last.get(name) + 1, provider.nextCounter(name).block());
+        }
+    }
+
+    @Test
+    void idleLease_expiresAndIsGivenBack() {
+        RedisNamespacedTrackingNumberProvider provider = provider(100);
+        provider.nextCounter("customer:acme").block();
+        provider.nextCounter("customer:acme").block();
+
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+        provider.cleanUp();
+
+        assertEquals(0, provider.getActive());
+        assertEquals(98, provider.getReleased());
+        assertEquals(2, redis.counter(RedisNamespacedTrackingNumberProvider.NAMESPACE_KEY_PREFIX + "{1}:counter"));
+    }
+
+    @Test
+    void evictedLease_isBurnedWhenAnotherInstanceLeasedSince() {
+        RedisNamespacedTrackingNumberProvider first = provider(100);
+        RedisNamespacedTrackingNumberProvider second = provider(100);
+        first.nextCounter("customer:acme").block();
+        second.nextCounter("customer:acme").block();
+
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+        first.cleanUp();
+
+        assertEquals(99, first.getBurned());
+        assertEquals(0, first.getReleased());
+        assertEquals(200, redis.counter(RedisNamespacedTrackingNumberProvider.NAMESPACE_KEY_PREFIX + "{1}:counter"));
+    }
+
+    @Test
+    void shutdown_givesBackEveryLease() {
+        RedisNamespacedTrackingNumberProvider provider = provider(100);
+        provider.nextCounter("customer:a").block();
+        provider.nextCounter("customer:b").block();
+
+        provider.shutdown();
+
+        assertEquals(198, provider.getReleased());
+        assertEquals(1, redis.counter(RedisNamespacedTrackingNumberProvider.NAMESPACE_KEY_PREFIX + "{1}:counter"));
+        assertEquals(1, redis.counter(RedisNamespacedTrackingNumberProvider.NAMESPACE_KEY_PREFIX + "{2}:counter"));
+    }
+}
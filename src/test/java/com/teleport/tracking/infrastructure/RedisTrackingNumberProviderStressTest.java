@@ -0,0 +1,98 @@
+package com.teleport.tracking.infrastructure;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+
+/**
+ * Hammers one provider from many threads against a Redis stub that answers on
+ * another thread, and checks that every issued counter is unique and that no
+ * counter was skipped. Run with {@code -Dtracking.stress.ids-per-thread=1000000}
+ * for the full 64M-ID run.
+ */
+class RedisTrackingNumberProviderStressTest {
+
+    private static final int THREADS = 64;
+    private static final int IDS_PER_THREAD = Integer.getInteger("tracking.stress.ids-per-thread", 250_000);
+    private static final long BATCH_SIZE = 1_000L;
+
+    @Test
+    void concurrentCallers_receiveDenseUniqueCounters() throws Exception {
+        RedisService redisService = Mockito.mock(RedisService.class);
+        AtomicLong redisCounter = new AtomicLong();
+        Mockito.when(redisService.incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong()))
+                .thenAnswer(invocation -> {
+                    long delta = invocation.getArgument(1);
+                    return Mono.fromSupplier(() -> redisCounter.addAndGet(delta))
+                            .subscribeOn(Schedulers.parallel());
+                });
+        RedisTrackingNumberProvider provider = new RedisTrackingNumberProvider(redisService, BATCH_SIZE);
+
+        long total = (long) THREADS * IDS_PER_THREAD;
+        AtomicLongArray seen = new AtomicLongArray((int) (total / 64) + 2);
+        AtomicLong duplicates = new AtomicLong();
+        AtomicLong outOfRange = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        long id = provider.nextCounter().block();
+                        if (id < 1 || id > total) {
+                            outOfRange.incrementAndGet();
+                        } else if (!mark(seen, id)) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertEquals(0, duplicates.get(), "duplicate counters issued");
+        Assertions.assertEquals(0, outOfRange.get(), "counters skipped: issued ids are not dense");
+        // every value in [1, total] was issued exactly once
+        long issued = 0;
+        for (int i = 0; i < seen.length(); i++) {
+            issued += Long.bitCount(seen.get(i));
+        }
+        Assertions.assertEquals(total, issued);
+    }
+
+    private static boolean mark(AtomicLongArray bits, long id) {
+        int index = (int) (id >>> 6);
+        long mask = 1L << (id & 63);
+        for (;;) {
+            long current = bits.get(index);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (bits.compareAndSet(index, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.teleport.tracking.infrastructure;
 
+import com.teleport.tracking.domain.CounterBlock;
 import com.teleport.tracking.domain.TrackingNumberGenerationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,6 +15,7 @@ import reactor.test.StepVerifier;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
@@ -65,16 +68,17 @@ class RedisTrackingNumberProviderTest {
 
     @Test
     void testConcurrentNextCounterWithoutRangeRefresh() throws InterruptedException, ExecutionException {
-        setupAndAssert(10, 10, 1);
+        // one active range plus the standby range prefetched at the threshold
+        setupAndAssert(10, 10, 2);
 
     }
     @Test
     void testConcurrentNextCounterRangeRefreshWhenRangeExceeds() throws InterruptedException, ExecutionException {
-        setupAndAssert(2, 100, 2);
+        setupAndAssert(2, 100, 3);
     }
     @Test
     void testNextCounterWithAllThreadStartingAtAlmostSameTime() throws InterruptedException, ExecutionException {
-        setupAndAssert(100, 1000, 1000);
+        setupAndAssert(100, 1000, 1001);
     }
     private void setupAndAssert(int threadCount, int callsPerThread, int expectedRedisCallCount) throws InterruptedException, ExecutionException {
         int totalCalls = threadCount * callsPerThread;
@@ -97,6 +101,107 @@ class RedisTrackingNumberProviderTest {
                 })
                 .verifyComplete();
     }
+    @Test
+    void testStandbyRangePrefetchedAtThreshold() {
+        AtomicInteger redisCallCount = new AtomicInteger();
+        Mockito.when(redisService.incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong()))
+                .thenAnswer(invocation -> Mono.just(batchSize * redisCallCount.incrementAndGet()));
+
+        StepVerifier.create(Flux.range(0, 50).concatMap(i -> redisTrackingNumberProvider.nextCounter()))
+                .expectNextCount(50)
+                .verifyComplete();
+        Assertions.assertEquals(1, redisCallCount.get());
+
+        StepVerifier.create(redisTrackingNumberProvider.nextCounter())
+                .expectNext(51L)
+                .verifyComplete();
+        Assertions.assertEquals(2, redisCallCount.get());
+    }
+
+    @Test
+    void testSwitchToStandbyRangeDoesNotStall() {
+        AtomicInteger redisCallCount = new AtomicInteger();
+        Mockito.when(redisService.incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong()))
+                .thenAnswer(invocation -> Mono.just(batchSize * redisCallCount.incrementAndGet()));
+
+        StepVerifier.create(Flux.range(0, 5 * batchSize.intValue()).concatMap(i -> redisTrackingNumberProvider.nextCounter()).collectList())
+                .assertNext(list -> {
+                    Assertions.assertEquals(5 * batchSize, new HashSet<>(list).size());
+                    Assertions.assertEquals(5 * batchSize, (long) list.get(list.size() - 1));
+                })
+                .verifyComplete();
+        // only the very first call has nothing prefetched yet
+        Assertions.assertEquals(1, redisTrackingNumberProvider.getRefreshStalls());
+    }
+
+    @Test
+    void testFailedPrefetch_fallsBackToRefreshOnExhaustion() {
+        AtomicInteger redisCallCount = new AtomicInteger();
+        Mockito.when(redisService.incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong()))
+                .thenAnswer(invocation -> {
+                    int call = redisCallCount.incrementAndGet();
+                    if (call == 2) {
+                        return Mono.error(new TrackingNumberGenerationException("Redis failure", null));
+                    }
+                    return Mono.just(batchSize * call);
+                });
+
+        StepVerifier.create(Flux.range(0, batchSize.intValue() + 1).concatMap(i -> redisTrackingNumberProvider.nextCounter()).last())
+                .expectNext(2 * batchSize + 1)
+                .verifyComplete();
+        Assertions.assertEquals(3, redisCallCount.get());
+        Assertions.assertEquals(2, redisTrackingNumberProvider.getRefreshStalls());
+    }
+
+    @Test
+    void testNextCountersWithinActiveLease_doesNotInterleave() {
+        AtomicLong redisCounter = new AtomicLong();
+        Mockito.when(redisService.incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong()))
+                .thenAnswer(invocation -> Mono.just(redisCounter.addAndGet(invocation.getArgument(1))));
+
+        StepVerifier.create(redisTrackingNumberProvider.nextCounter()).expectNext(1L).verifyComplete();
+        StepVerifier.create(redisTrackingNumberProvider.nextCounters(10))
+                .expectNext(new CounterBlock(2, 10))
+                .verifyComplete();
+        StepVerifier.create(redisTrackingNumberProvider.nextCounter()).expectNext(12L).verifyComplete();
+        Assertions.assertEquals(batchSize, redisCounter.get());
+    }
+
+    @Test
+    void testNextCountersLargerThanActiveLease_leasesDedicatedRange() {
+        AtomicLong redisCounter = new AtomicLong();
+        Mockito.when(redisService.incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong()))
+                .thenAnswer(invocation -> Mono.just(redisCounter.addAndGet(invocation.getArgument(1))));
+
+        StepVerifier.create(redisTrackingNumberProvider.nextCounter()).expectNext(1L).verifyComplete();
+        StepVerifier.create(redisTrackingNumberProvider.nextCounters(150))
+                .expectNext(new CounterBlock(101, 150))
+                .verifyComplete();
+        // the rest of the active lease is still used by single requests
+        StepVerifier.create(redisTrackingNumberProvider.nextCounter()).expectNext(2L).verifyComplete();
+    }
+
+    @Test
+    void testNextCounterChunks_comeFromTheLeasesWithoutRoundTripsOfTheirOwn() {
+        AtomicLong redisCounter = new AtomicLong();
+        AtomicInteger redisCalls = new AtomicInteger();
+        Mockito.when(redisService.incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong()))
+                .thenAnswer(invocation -> {
+                    redisCalls.incrementAndGet();
+                    return Mono.just(redisCounter.addAndGet(invocation.getArgument(1)));
+                });
+
+        StepVerifier.create(redisTrackingNumberProvider.nextCounterChunk(30)).expectNext(new CounterBlock(1, 30)).verifyComplete();
+        StepVerifier.create(redisTrackingNumberProvider.nextCounterChunk(30)).expectNext(new CounterBlock(31, 30)).verifyComplete();
+        StepVerifier.create(redisTrackingNumberProvider.nextCounterChunk(30)).expectNext(new CounterBlock(61, 30)).verifyComplete();
+        // the rest of the active lease, then the standby lease prefetched at the threshold
+        StepVerifier.create(redisTrackingNumberProvider.nextCounterChunk(30)).expectNext(new CounterBlock(91, 10)).verifyComplete();
+        StepVerifier.create(redisTrackingNumberProvider.nextCounterChunk(30)).expectNext(new CounterBlock(101, 30)).verifyComplete();
+
+        Assertions.assertEquals(2, redisCalls.get());
+        Assertions.assertEquals(0, redisTrackingNumberProvider.getBurned());
+    }
+
     @Test
     void testRedisServiceException_propagatesTrackingNumberGenerationException() {
         Mockito.when(redisService.incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong()))
@@ -111,4 +216,30 @@ class RedisTrackingNumberProviderTest {
                 .verify();
     }
 
-}
\ No newline at end of file
+    @Test
+    void testMetrics_reportLeaseStateAndBurnedCountersOnShutdown() {
+        AtomicLong redisCounter = new AtomicLong();
+        Mockito.when(redisService.incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong()))
+                .thenAnswer(invocation -> Mono.just(redisCounter.addAndGet(invocation.getArgument(1))));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        redisTrackingNumberProvider.bindTo(registry);
+
+        StepVerifier.create(Flux.range(0, 10).concatMap(i -> redisTrackingNumberProvider.nextCounter()))
+                .expectNextCount(10)
+                .verifyComplete();
+        Assertions.assertEquals(90, registry.get("tracking.lease.remaining").gauge().value());
+
+        // the 51st counter is the prefetch point of [1, 101)
+        StepVerifier.create(Flux.range(0, 41).concatMap(i -> redisTrackingNumberProvider.nextCounter()))
+                .expectNextCount(41)
+                .verifyComplete();
+        Assertions.assertEquals(49 + 100, registry.get("tracking.lease.remaining").gauge().value());
+        Assertions.assertEquals(2, registry.get("tracking.lease.refresh").tag("outcome", "success").timer().count());
+        Assertions.assertEquals(0, registry.get("tracking.lease.refresh").tag("outcome", "failure").timer().count());
+        Assertions.assertEquals(0, registry.get("tracking.lease.waiters").gauge().value());
+
+        redisTrackingNumberProvider.shutdown();
+        Assertions.assertEquals(149, redisTrackingNumberProvider.getBurned());
+        Assertions.assertEquals(149, registry.get("tracking.ids.burned").functionCounter().count());
+    }
+}
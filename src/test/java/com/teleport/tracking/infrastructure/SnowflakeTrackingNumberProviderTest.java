@@ -0,0 +1,147 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.domain.Base36TrackingNumberEncoder;
+import com.teleport.tracking.domain.CounterBlock;
+import com.teleport.tracking.domain.CounterSpace;
+import com.teleport.tracking.domain.SqidsTrackingNumberEncoder;
+import com.teleport.tracking.domain.TrackingNumberGenerationException;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+
+class SnowflakeTrackingNumberProviderTest {
+
+    private static final long NOW = CounterSpace.FALLBACK_EPOCH_MILLIS + 123_456_789L;
+
+    @Test
+    void nextCounter_carriesFlagNodeAndTime() {
+        SnowflakeTrackingNumberProvider provider = new SnowflakeTrackingNumberProvider(517, () -> NOW);
+
+        long counter = provider.nextCounter().block();
+
+        assertTrue(CounterSpace.isFallback(counter));
+        assertEquals(517, CounterSpace.fallbackNodeId(counter));
+        assertEquals(NOW, CounterSpace.fallbackIssuedAtMillis(counter));
+        assertEquals(counter + 1, provider.nextCounter().block());
+    }
+
+    @Test
+    void nextCounter_neverRepeatsWhenClockStepsBack() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeTrackingNumberProvider provider = new SnowflakeTrackingNumberProvider(1, clock::get);
+
+        long before = provider.nextCounter().block();
+        clock.addAndGet(-5_000);
+        long after = provider.nextCounter().block();
+
+        assertEquals(before + 1, after);
+    }
+
+    @Test
+    void nextCounters_blockRunsIntoNextMilliseconds() {
+        SnowflakeTrackingNumberProvider provider = new SnowflakeTrackingNumberProvider(3, () -> NOW);
+
+        CounterBlock block = provider.nextCounters(10_000).block();
+
+        long last = block.start() + block.size() - 1;
+        assertEquals(NOW, CounterSpace.fallbackIssuedAtMillis(block.start()));
+        assertEquals(NOW + 4, CounterSpace.fallbackIssuedAtMillis(last));
+        assertEquals(3, CounterSpace.fallbackNodeId(last));
+        assertEquals(last + 1, provider.nextCounter().block());
+    }
+
+    @Test
+    void nextCounter_failsBeyondBorrowLimit() {
+        SnowflakeTrackingNumberProvider provider = new SnowflakeTrackingNumberProvider(3, () -> NOW);
+        int perMillisecond = 1 << CounterSpace.SEQUENCE_BITS;
+
+        provider.nextCounters((int) (perMillisecond * SnowflakeTrackingNumberProvider.MAX_BORROW_MILLIS + 1)).block();
+
+        StepVerifier.create(provider.nextCounter()).expectError(TrackingNumberGenerationException.class).verify();
+    }
+
+    @Test
+    void constructor_rejectsNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeTrackingNumberProvider(-1, () -> NOW));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeTrackingNumberProvider(1024, () -> NOW));
+    }
+
+    @Test
+    void concurrentCallers_receiveUniqueCounters() throws Exception {
+        SnowflakeTrackingNumberProvider provider = new SnowflakeTrackingNumberProvider(9, System::currentTimeMillis);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 50_000; i++) {
+                        assertTrue(seen.add(provider.nextCounter().block()));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(400_000, seen.size());
+    }
+
+    @Test
+    void fallbackCounters_neverCollideWithRedisCounters() {
+        AtomicLong redisCounter = new AtomicLong();
+        RedisService redisService = Mockito.mock(RedisService.class);
+        Mockito.when(redisService.incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong()))
+                .thenAnswer(invocation -> Mono.fromSupplier(() -> redisCounter.addAndGet(invocation.getArgument(1))));
+        RedisTrackingNumberProvider redis = new RedisTrackingNumberProvider(redisService, 1_000L);
+        List<SnowflakeTrackingNumberProvider> nodes = List.of(
+                new SnowflakeTrackingNumberProvider(0, () -> CounterSpace.FALLBACK_EPOCH_MILLIS),
+                new SnowflakeTrackingNumberProvider(1, () -> CounterSpace.FALLBACK_EPOCH_MILLIS),
+                new SnowflakeTrackingNumberProvider(CounterSpace.MAX_NODE_ID, () -> NOW));
+        Base36TrackingNumberEncoder base36 = new Base36TrackingNumberEncoder(0x5DEECE66D2F1A3B7L);
+
+        Set<Long> counters = new HashSet<>();
+        Set<String> trackingNumbers = new HashSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            long counter = redis.nextCounter().block();
+            assertFalse(CounterSpace.isFallback(counter));
+            assertTrue(counters.add(counter));
+            assertTrue(trackingNumbers.add(base36.encode(counter)));
+            for (SnowflakeTrackingNumberProvider node : nodes) {
+                long fallback = node.nextCounter().block();
+                assertTrue(counters.add(fallback), "collision on " + fallback);
+                assertTrue(trackingNumbers.add(base36.encode(fallback)));
+            }
+        }
+    }
+
+    @Test
+    void wholeCounterSpace_fitsSixteenCharacters() {
+        SqidsTrackingNumberEncoder sqids = new SqidsTrackingNumberEncoder();
+        Base36TrackingNumberEncoder base36 = new Base36TrackingNumberEncoder(0x5DEECE66D2F1A3B7L);
+        long[] extremes = {1, CounterSpace.FALLBACK_FLAG - 1,
+                CounterSpace.fallbackCounter(0, 0), CounterSpace.fallbackCounter(CounterSpace.MAX_NODE_ID, CounterSpace.TIMESTAMP_MASK)};
+        for (long counter : extremes) {
+            assertTrue(sqids.encode(counter).matches("[A-Z0-9]{1,16}"), Long.toString(counter));
+            assertTrue(base36.encode(counter).matches("[A-Z0-9]{1,16}"), Long.toString(counter));
+        }
+        assertEquals(Long.MAX_VALUE, extremes[3]);
+    }
+}
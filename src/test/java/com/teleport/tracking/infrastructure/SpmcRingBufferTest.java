@@ -0,0 +1,90 @@
+package com.teleport.tracking.infrastructure;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpmcRingBufferTest {
+
+    @Test
+    void capacity_isRoundedUpToPowerOfTwo() {
+        assertEquals(8, new SpmcRingBuffer<Long>(5).capacity());
+        assertEquals(1024, new SpmcRingBuffer<Long>(1024).capacity());
+    }
+
+    @Test
+    void fullBuffer_rejectsOffersUntilPolled() {
+        SpmcRingBuffer<Long> ring = new SpmcRingBuffer<>(4);
+        for (long i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4L));
+        assertEquals(4, ring.size());
+
+        assertEquals(0L, ring.poll());
+        assertTrue(ring.offer(4L));
+        for (long i = 1; i <= 4; i++) {
+            assertEquals(i, ring.poll());
+        }
+        assertNull(ring.poll());
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void concurrentConsumers_takeEveryElementExactlyOnce() throws Exception {
+        SpmcRingBuffer<Long> ring = new SpmcRingBuffer<>(256);
+        int consumers = 8;
+        int total = 100_000;
+        AtomicBoolean produced = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(consumers);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int c = 0; c < consumers; c++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<Long> taken = new ArrayList<>();
+                    for (;;) {
+                        boolean done = produced.get();
+                        Long element = ring.poll();
+                        if (element != null) {
+                            taken.add(element);
+                        } else if (done) {
+                            return taken;
+                        } else {
+                            Thread.yield();
+                        }
+                    }
+                }));
+            }
+            start.countDown();
+            for (long i = 0; i < total; i++) {
+                while (!ring.offer(i)) {
+                    Thread.yield();
+                }
+            }
+            produced.set(true);
+
+            boolean[] seen = new boolean[total];
+            int count = 0;
+            for (Future<List<Long>> future : futures) {
+                for (long element : future.get()) {
+                    assertFalse(seen[(int) element], "taken twice: " + element);
+                    seen[(int) element] = true;
+                    count++;
+                }
+            }
+            assertEquals(total, count);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.teleport.tracking.infrastructure;
+
+import com.teleport.tracking.domain.TrackingNumberGenerationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+
+class StripedTrackingNumberProviderTest {
+
+    private RedisService redisService;
+    private final AtomicLong redisCounter = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        redisService = Mockito.mock(RedisService.class);
+        Mockito.when(redisService.incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong()))
+                .thenAnswer(invocation -> {
+                    long delta = invocation.getArgument(1);
+                    return Mono.fromSupplier(() -> redisCounter.addAndGet(delta));
+                });
+    }
+
+    @Test
+    void stripeCount_isRoundedUpToPowerOfTwo() {
+        RedisTrackingNumberProvider source = new RedisTrackingNumberProvider(redisService, 100L);
+        Assertions.assertEquals(8, new StripedTrackingNumberProvider(source, 5, 16).stripeCount());
+        Assertions.assertEquals(1, new StripedTrackingNumberProvider(source, 1, 16).stripeCount());
+    }
+
+    @Test
+    void singleThread_issuesEveryCounterInOrder() {
+        RedisTrackingNumberProvider source = new RedisTrackingNumberProvider(redisService, 100L);
+        StripedTrackingNumberProvider provider = new StripedTrackingNumberProvider(source, 4, 16);
+
+        StepVerifier.create(Flux.range(0, 1000).concatMap(i -> provider.nextCounter()).collectList())
+                .assertNext(list -> {
+                    for (int i = 0; i < list.size(); i++) {
+                        Assertions.assertEquals(i + 1L, list.get(i));
+                    }
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void concurrentCallers_receiveDenseUniqueCounters() {
+        Mockito.when(redisService.incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong()))
+                .thenAnswer(invocation -> {
+                    long delta = invocation.getArgument(1);
+                    return Mono.fromSupplier(() -> redisCounter.addAndGet(delta))
+                            .subscribeOn(Schedulers.parallel());
+                });
+        RedisTrackingNumberProvider source = new RedisTrackingNumberProvider(redisService, 1000L);
+        StripedTrackingNumberProvider provider = new StripedTrackingNumberProvider(source, 8, 64);
+        int total = 200_000;
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+
+        Flux.range(0, total)
+                .parallel(16)
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> provider.nextCounter())
+                .doOnNext(seen::add)
+                .sequential()
+                .blockLast();
+
+        Assertions.assertEquals(total, seen.size());
+        Assertions.assertEquals(total, seen.stream().mapToLong(Long::longValue).max().orElse(0));
+    }
+
+    @Test
+    void redisFailure_propagatesTrackingNumberGenerationException() {
+        Mockito.when(redisService.incrementCounterWithDelta(eq(RedisConstants.TRACKING_COUNTER_KEY), anyLong()))
+                .thenReturn(Mono.error(new RuntimeException("Redis failure")));
+        RedisTrackingNumberProvider source = new RedisTrackingNumberProvider(redisService, 100L);
+        StripedTrackingNumberProvider provider = new StripedTrackingNumberProvider(source, 2, 16);
+
+        StepVerifier.create(provider.nextCounter())
+                .expectError(TrackingNumberGenerationException.class)
+                .verify();
+    }
+
+    @Test
+    void smallChunks_leaveNoGapsAcrossLeaseBoundaries() {
+        RedisTrackingNumberProvider source = new RedisTrackingNumberProvider(redisService, 10L);
+        StripedTrackingNumberProvider provider = new StripedTrackingNumberProvider(source, 1, 3);
+
+        List<Long> issued = Flux.range(0, 30).concatMap(i -> provider.nextCounter()).collectList().block();
+
+        Assertions.assertNotNull(issued);
+        Assertions.assertEquals(30, new HashSet<>(issued).size());
+        Assertions.assertEquals(30L, issued.stream().mapToLong(Long::longValue).max().orElse(0));
+    }
+}
@@ -1,10 +1,23 @@
 package com.teleport.tracking.presentation;
 
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.teleport.tracking.app.InvalidTrackingRequestException;
+import com.teleport.tracking.app.RequestRejectedException;
+import com.teleport.tracking.app.TraceContext;
 import com.teleport.tracking.domain.TrackingNumberGenerationException;
+import com.teleport.tracking.infrastructure.LogRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.server.ServerWebInputException;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -14,7 +27,7 @@ class GlobalExceptionHandlerTest {
     @Test
     void handleTrackingNumberGenerationException_returnsInternalServerError() {
         TrackingNumberGenerationException ex = new TrackingNumberGenerationException("Generation failed", null);
-        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleTrackingNumberGenerationException(ex);
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handle(ex);
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals("TRACKING_NUMBER_ERROR", response.getBody().getCode());
@@ -24,7 +37,7 @@ class GlobalExceptionHandlerTest {
     @Test
     void handleWebInputException_returnsBadRequest() {
         ServerWebInputException ex = new ServerWebInputException("Invalid input");
-        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleWebInputException(ex);
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handle(ex);
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals("BAD_REQUEST", response.getBody().getCode());
@@ -34,10 +47,111 @@ class GlobalExceptionHandlerTest {
     @Test
     void handleGenericException_returnsInternalServerError() {
         Exception ex = new Exception("Some error");
-        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handleGenericException(ex);
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handle(ex);
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals("INTERNAL_ERROR", response.getBody().getCode());
         assertEquals("An unexpected error occurred", response.getBody().getMessage());
     }
+
+    @Test
+    void handleWebInputException_illegalArgument_returnsBadRequestWithMessage() {
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response =
+                handler.handle(new IllegalArgumentException("Invalid weight"));
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("BAD_REQUEST", response.getBody().getCode());
+        assertEquals("Invalid weight", response.getBody().getMessage());
+    }
+
+    @Test
+    void handle_picksTheHandlerOfTheExceptionType() {
+        assertEquals("TRACKING_NUMBER_ERROR",
+                handler.handle(new TrackingNumberGenerationException("Generation failed", null)).getBody().getCode());
+        assertEquals("BAD_REQUEST", handler.handle(new ServerWebInputException("Invalid input")).getBody().getCode());
+        assertEquals("BAD_REQUEST", handler.handle(new IllegalArgumentException("Invalid weight")).getBody().getCode());
+        assertEquals("INTERNAL_ERROR", handler.handle(new IllegalStateException("Some error")).getBody().getCode());
+    }
+
+    @Test
+    void invalidTrackingRequest_returnsBadRequestWithItsMessage() {
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response =
+                handler.handle(new InvalidTrackingRequestException("customer_id is required", 1 << 4));
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals("customer_id is required", response.getBody().getMessage());
+    }
+
+    @Test
+    void rejectedRequest_returnsServiceUnavailableWithRetryAfter() {
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = handler.handle(
+                new RequestRejectedException("Too many requests in progress", "queue_full", Duration.ofMillis(1500)));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("2", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("SERVICE_UNAVAILABLE", response.getBody().getCode());
+        assertEquals("Too many requests in progress", response.getBody().getMessage());
+    }
+
+    @Test
+    void handleException_logsTheTraceIdOfTheRequestContext() {
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        Logger logger = (Logger) LoggerFactory.getLogger(GlobalExceptionHandler.class);
+        logger.addAppender(appender);
+        try {
+            StepVerifier.create(handler.handleException(new TrackingNumberGenerationException("Generation failed", null))
+                            .contextWrite(TraceContext.of("abc123")))
+                    .assertNext(response -> assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode()))
+                    .verifyComplete();
+        } finally {
+            logger.detachAppender(appender);
+        }
+
+        assertEquals(1, appender.list.size());
+        assertEquals("Tracking number generation error traceId=abc123", appender.list.get(0).getFormattedMessage());
+    }
+
+    @Test
+    void errors_areCountedByCodeAndLoggedAtLimitedRate() {
+        GlobalExceptionHandler limited = new GlobalExceptionHandler(() -> new LogRateLimiter(1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        limited.bindTo(registry);
+
+        limited.handle(new InvalidTrackingRequestException("customer_id is required", 1 << 4));
+        limited.handle(new ServerWebInputException("Invalid input"));
+        limited.handle(new TrackingNumberGenerationException("Generation failed", null));
+        limited.handle(new RequestRejectedException("Too many requests in progress", "queue_full", Duration.ofSeconds(1)));
+
+        assertEquals(2, registry.get("tracking.errors").tag("code", "BAD_REQUEST").functionCounter().count());
+        assertEquals(1, registry.get("tracking.errors").tag("code", "TRACKING_NUMBER_ERROR").functionCounter().count());
+        assertEquals(0, registry.get("tracking.errors").tag("code", "INTERNAL_ERROR").functionCounter().count());
+        assertEquals(1, registry.get("tracking.errors").tag("code", "SERVICE_UNAVAILABLE").functionCounter().count());
+        assertTrue(registry.get("tracking.errors.log.suppressed").tag("code", "BAD_REQUEST")
+                .functionCounter().count() >= 1);
+    }
+
+    @Test
+    void badRequestFlood_doesNotSilenceServerErrors() {
+        GlobalExceptionHandler limited = new GlobalExceptionHandler(() -> new LogRateLimiter(10));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        limited.bindTo(registry);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        Logger logger = (Logger) LoggerFactory.getLogger(GlobalExceptionHandler.class);
+        logger.addAppender(appender);
+        try {
+            for (int i = 0; i < 1000; i++) {
+                limited.handle(new ServerWebInputException("Invalid input"));
+            }
+            limited.handle(new TrackingNumberGenerationException("Generation failed", null));
+            limited.handle(new IllegalStateException("Some error"));
+        } finally {
+            logger.detachAppender(appender);
+        }
+
+        assertTrue(appender.list.stream()
+                .anyMatch(event -> event.getFormattedMessage().startsWith("Tracking number generation error")));
+        assertTrue(appender.list.stream()
+                .anyMatch(event -> event.getFormattedMessage().startsWith("Unhandled exception")));
+        assertEquals(0, registry.get("tracking.errors.log.suppressed").tag("code", "TRACKING_NUMBER_ERROR")
+                .functionCounter().count());
+    }
 }
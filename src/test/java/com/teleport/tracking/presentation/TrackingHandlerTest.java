@@ -0,0 +1,159 @@
+package com.teleport.tracking.presentation;
+
+import com.teleport.tracking.app.GetNextTrackingNumberUseCase;
+import com.teleport.tracking.domain.TrackingNumberGenerationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TrackingHandlerTest {
+
+    private static final String[][] VALID = {
+            {"origin_country_id", "MY"},
+            {"destination_country_id", "ID"},
+            {"weight", "2.211"},
+            {"created_at", "2018-11-20T19:29:32%2B08:00"},
+            {"customer_id", "4dcccfe6-fc76-4adc-84d0-067982c24805"},
+            {"customer_name", "RedBox%20Logistics"},
+            {"customer_slug", "redbox-logistics"}
+    };
+
+    private GetNextTrackingNumberUseCase useCase;
+    private WebTestClient annotated;
+    private WebTestClient functional;
+
+    @BeforeEach
+    void setUp() {
+        useCase = mock(GetNextTrackingNumberUseCase.class);
+        // echoes what was parsed, so that both endpoints can be compared by their bodies
+        when(useCase.generateTrackingNumber(any(), any())).thenAnswer(invocation -> {
+            TrackingRequest req = invocation.getArgument(0);
+            String key = invocation.getArgument(1);
+            return Mono.just(new TrackingResponse(String.join("|", req.originCountryId, req.destinationCountryId,
+                    String.valueOf(req.getWeight()), String.valueOf(req.getCreatedAt()), req.customerId,
+                    req.customerName, req.customerSlug, String.valueOf(key)), "2025-06-01T12:34:56Z"));
+        });
+        GlobalExceptionHandler exceptionHandler = new GlobalExceptionHandler();
+        annotated = WebTestClient.bindToController(new TrackingController(useCase))
+                .controllerAdvice(exceptionHandler)
+                .build();
+        TrackingHandler handler = new TrackingHandler(useCase, exceptionHandler);
+        functional = WebTestClient.bindToRouterFunction(
+                RouterFunctions.route(RequestPredicates.GET("/next-tracking-number"), handler::next)).build();
+    }
+
+    @Test
+    void validRequest_isAnsweredLikeTheController() {
+        EntityExchangeResult<byte[]> result = assertSameResponse(query(VALID), null);
+
+        assertEquals(200, result.getStatus().value());
+        assertTrue(body(result).contains("MY|ID|2.211|2018-11-20T19:29:32+08:00|4dcccfe6-fc76-4adc-84d0-067982c24805"
+                + "|RedBox Logistics|redbox-logistics|null"), body(result));
+    }
+
+    @Test
+    void idempotencyKey_isPassedOn() {
+        EntityExchangeResult<byte[]> result = assertSameResponse(query(VALID), "retry-1");
+
+        assertTrue(body(result).contains("|retry-1\""), body(result));
+    }
+
+    @Test
+    void encodedRepeatedAndUnknownParameters_areReadLikeTheController() {
+        String query = query(VALID)
+                .replace("RedBox%20Logistics", "RedBox+Logistics%2C+Inc.&customer_name=Asia%20")
+                .replace("weight=", "unknown=1&&flag&weight=");
+
+        EntityExchangeResult<byte[]> result = assertSameResponse(query, null);
+
+        assertTrue(body(result).contains("|RedBox Logistics, Inc.,Asia |"), body(result));
+    }
+
+    @Test
+    void missingParameter_getsTheSameErrorAsTheController() {
+        for (int i = 0; i < VALID.length; i++) {
+            String[][] params = Arrays.stream(VALID).map(String[]::clone).toArray(String[][]::new);
+            params[i] = new String[]{params[i][0], null};
+
+            EntityExchangeResult<byte[]> result = assertSameResponse(query(params), null);
+
+            assertEquals(400, result.getStatus().value());
+            assertEquals("{\"code\":\"BAD_REQUEST\",\"message\":\"Required query parameter '" + VALID[i][0]
+                    + "' is not present.\"}", body(result));
+        }
+    }
+
+    @Test
+    void firstMissingParameter_isReported() {
+        EntityExchangeResult<byte[]> result = assertSameResponse("/next-tracking-number?customer_slug=acme", null);
+
+        assertTrue(body(result).contains("'origin_country_id'"), body(result));
+    }
+
+    @Test
+    void unparsableWeight_getsTheSameErrorAsTheController() {
+        EntityExchangeResult<byte[]> result = assertSameResponse(query(VALID).replace("2.211", "heavy"), null);
+
+        assertEquals(400, result.getStatus().value());
+        assertEquals("{\"code\":\"BAD_REQUEST\",\"message\":\"Invalid weight\"}", body(result));
+    }
+
+    @Test
+    void generationFailure_getsTheSameErrorAsTheController() {
+        when(useCase.generateTrackingNumber(any(), any()))
+                .thenReturn(Mono.error(new TrackingNumberGenerationException("Failed to generate tracking number", null)));
+
+        EntityExchangeResult<byte[]> result = assertSameResponse(query(VALID), null);
+
+        assertEquals(500, result.getStatus().value());
+        assertTrue(body(result).contains("TRACKING_NUMBER_ERROR"), body(result));
+    }
+
+    private EntityExchangeResult<byte[]> assertSameResponse(String uri, String idempotencyKey) {
+        EntityExchangeResult<byte[]> expected = get(annotated, uri, idempotencyKey);
+        EntityExchangeResult<byte[]> actual = get(functional, uri, idempotencyKey);
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getResponseHeaders().getContentType(), actual.getResponseHeaders().getContentType());
+        assertEquals(body(expected), body(actual));
+        return actual;
+    }
+
+    private static EntityExchangeResult<byte[]> get(WebTestClient client, String uri, String idempotencyKey) {
+        return client.get().uri(URI.create(uri))
+                .headers(headers -> {
+                    if (idempotencyKey != null) {
+                        headers.set(TrackingHandler.IDEMPOTENCY_KEY, idempotencyKey);
+                    }
+                })
+                .exchange()
+                .expectBody().returnResult();
+    }
+
+    /**
+     * @param params name and raw value pairs; a {@code null} value leaves the parameter out
+     */
+    private static String query(String[][] params) {
+        return "/next-tracking-number?" + Arrays.stream(params)
+                .filter(p -> p[1] != null)
+                .map(p -> p[0] + "=" + p[1])
+                .collect(Collectors.joining("&"));
+    }
+
+    private static String body(EntityExchangeResult<byte[]> result) {
+        return new String(result.getResponseBody(), StandardCharsets.UTF_8);
+    }
+}
@@ -23,13 +23,13 @@ class TrackingRequestTest {
         TrackingRequest req = assertDoesNotThrow(() ->
             TrackingRequest.fromRequest(originCountryId, destinationCountryId, weightStr, createdAtStr, customerId, customerName, customerSlug)
         );
-        assertEquals(new BigDecimal(weightStr), req.weight);
+        assertEquals(new BigDecimal(weightStr), req.getWeight());
         assertEquals(originCountryId, req.originCountryId);
         assertEquals(destinationCountryId, req.destinationCountryId);
         assertEquals(customerId, req.customerId);
         assertEquals(customerName, req.customerName);
         assertEquals(customerSlug, req.customerSlug);
-        assertNotNull(req.createdAt);
+        assertNotNull(req.getCreatedAt());
     }
 
     @Test
@@ -62,7 +62,7 @@ class TrackingRequestTest {
         TrackingRequest req = assertDoesNotThrow(() ->
             TrackingRequest.fromRequest("US", "CA", "1.23", now, "123e4567-e89b-12d3-a456-426614174000", "John Doe", "john-doe")
         );
-        assertNotNull(req.createdAt);
+        assertNotNull(req.getCreatedAt());
     }
 
     @Test
@@ -115,4 +115,68 @@ class TrackingRequestTest {
         var violations = validator.validate(req);
         assertTrue(violations.stream().anyMatch(v -> v.getMessage().contains("customer_id must be a valid UUID")));
     }
+
+    @Test
+    void fromRequest_matchesEagerParsing() {
+        String[] weights = {"1.23", "+1.23", "-0", "0.0005", "0.001", "1.2300", ".5", "5.", "12345678901", "1E+3", "1e-4", "1..2", "", "-", "abc"};
+        String[] createdAts = {null, "2018-11-20T19:29:32+08:00", "2018-11-20T19:29:32 08:00", "2018-11-20T19:29Z",
+                "2018-11-20T19:29:32.123456789-05:30", "2016-02-29T00:00:00Z", "2100-02-29T00:00:00Z", "2018-11-20T24:00:00Z",
+                "2018-11-20T19:29:32+18:01", "2018-11-20t19:29:32z", "2018-11-20T19:29:32+08:00:00", "2018-11-20T19:29:32+0800", ""};
+        for (String weight : weights) {
+            for (String createdAt : createdAts) {
+                String expected;
+                try {
+                    BigDecimal eagerWeight = new BigDecimal(weight);
+                    OffsetDateTime eagerCreatedAt;
+                    try {
+                        eagerCreatedAt = createdAt == null ? null : OffsetDateTime.parse(createdAt.replace(" ", "+"));
+                        expected = eagerWeight + " " + eagerCreatedAt;
+                    } catch (java.time.format.DateTimeParseException e) {
+                        expected = "Invalid created_at";
+                    }
+                } catch (NumberFormatException e) {
+                    expected = "Invalid weight";
+                }
+                String actual;
+                try {
+                    TrackingRequest req = TrackingRequest.fromRequest("US", "CA", weight, createdAt,
+                            "123e4567-e89b-12d3-a456-426614174000", "John Doe", "john-doe");
+                    assertEquals(req.getCreatedAt() != null, req.hasCreatedAt());
+                    actual = req.getWeight() + " " + req.getCreatedAt();
+                } catch (IllegalArgumentException e) {
+                    actual = e.getMessage();
+                }
+                assertEquals(expected, actual, "weight=" + weight + " created_at=" + createdAt);
+            }
+        }
+    }
+
+    @Test
+    void fromRequest_scannedWeight_reportsSameConstraintOutcomesAsBigDecimal() {
+        String[] weights = {"1.23", "-0", "-1", "0", "0.000", "0.0005", "0.001", "0.0010", "000.0019", "1.2300",
+                "9999999999.999", "12345678901", "0000012345678901.5"};
+        for (String weight : weights) {
+            TrackingRequest scanned = TrackingRequest.fromRequest("US", "CA", weight, null, null, null, null);
+            TrackingRequest eager = new TrackingRequest("US", "CA", new BigDecimal(weight), null, null, null, null);
+            assertEquals(eager.weightBelowMinimum(), scanned.weightBelowMinimum(), weight);
+            assertEquals(eager.weightExceedsDigits(), scanned.weightExceedsDigits(), weight);
+        }
+    }
+
+    @Test
+    void fingerprint_isStableAndCoversEveryField() {
+        TrackingRequest request = TrackingRequest.fromRequest("MY", "ID", "2.211", "2018-11-20T19:29:32+08:00",
+                "4dcccfe6-fc76-4adc-84d0-067982c24805", "RedBox Logistics", "redbox-logistics");
+        TrackingRequest retry = TrackingRequest.fromRequest("MY", "ID", "2.211", "2018-11-20T19:29:32+08:00",
+                "4dcccfe6-fc76-4adc-84d0-067982c24805", "RedBox Logistics", "redbox-logistics");
+        TrackingRequest heavier = TrackingRequest.fromRequest("MY", "ID", "2.212", "2018-11-20T19:29:32+08:00",
+                "4dcccfe6-fc76-4adc-84d0-067982c24805", "RedBox Logistics", "redbox-logistics");
+        TrackingRequest shifted = TrackingRequest.fromRequest("MYI", "D", "2.211", "2018-11-20T19:29:32+08:00",
+                "4dcccfe6-fc76-4adc-84d0-067982c24805", "RedBox Logistics", "redbox-logistics");
+
+        assertEquals(request.fingerprint(), retry.fingerprint());
+        assertNotEquals(request.fingerprint(), heavier.fingerprint());
+        assertNotEquals(request.fingerprint(), shifted.fingerprint());
+        assertNotEquals(TrackingRequest.fingerprint("customer-a", "key-1"), TrackingRequest.fingerprint("customer-b", "key-1"));
+    }
 }
@@ -0,0 +1,135 @@
+package com.teleport.tracking.presentation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.teleport.tracking.app.GetNextTrackingNumberUseCase;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TrackingResponseEncoderTest {
+
+    private static final String QUERY = "/next-tracking-number?origin_country_id=MY&destination_country_id=ID"
+            + "&weight=2.211&created_at=2018-11-20T19:29:32%2B08:00&customer_id=4dcccfe6-fc76-4adc-84d0-067982c24805"
+            + "&customer_name=RedBox%20Logistics&customer_slug=redbox-logistics";
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final TrackingResponseEncoder encoder = new TrackingResponseEncoder(objectMapper);
+
+    @Test
+    void response_isByteForByteWhatJacksonWrites() {
+        TrackingResponse response = new TrackingResponse("8F3K2M9XQ1ZP7RTA", "2025-06-01T12:34:56.789Z");
+
+        EntityExchangeResult<byte[]> jackson = get(client(response, false));
+        EntityExchangeResult<byte[]> template = get(client(response, true));
+
+        assertArrayEquals(jackson.getResponseBody(), template.getResponseBody());
+        assertEquals("{\"tracking_number\":\"8F3K2M9XQ1ZP7RTA\",\"created_at\":\"2025-06-01T12:34:56.789Z\"}",
+                new String(template.getResponseBody(), StandardCharsets.UTF_8));
+        assertEquals(jackson.getResponseHeaders().getContentType(), template.getResponseHeaders().getContentType());
+        assertEquals(jackson.getResponseHeaders().getContentLength(), template.getResponseHeaders().getContentLength());
+    }
+
+    @Test
+    void valuesNeedingEscapes_matchJackson() throws Exception {
+        for (TrackingResponse response : List.of(
+                new TrackingResponse("A\"B\\C", "2025-06-01T12:34:56Z"),
+                new TrackingResponse("\u00C4BC\u0001", "2025-06-01T12:34:56+08:00"),
+                new TrackingResponse(null, "2025-06-01T12:34:56Z"),
+                new TrackingResponse("ABC", null))) {
+            assertArrayEquals(objectMapper.writeValueAsBytes(response), encode(response));
+        }
+    }
+
+    @Test
+    void cachedTimestamp_isOnlyReusedForTheSameString() {
+        String createdAt = "2025-06-01T12:34:56.789Z";
+
+        byte[] first = encode(new TrackingResponse("AAA", createdAt));
+        byte[] second = encode(new TrackingResponse("BBB", createdAt));
+        byte[] next = encode(new TrackingResponse("CCC", "2025-06-01T12:34:56.790Z"));
+
+        assertEquals("{\"tracking_number\":\"AAA\",\"created_at\":\"2025-06-01T12:34:56.789Z\"}", utf8(first));
+        assertEquals("{\"tracking_number\":\"BBB\",\"created_at\":\"2025-06-01T12:34:56.789Z\"}", utf8(second));
+        assertEquals("{\"tracking_number\":\"CCC\",\"created_at\":\"2025-06-01T12:34:56.790Z\"}", utf8(next));
+    }
+
+    @Test
+    void flux_isWrittenAsTheSameArrayAsJackson() {
+        List<TrackingResponse> responses = List.of(
+                new TrackingResponse("AAA", "2025-06-01T12:34:56Z"),
+                new TrackingResponse("B\"B", "2025-06-01T12:34:57Z"));
+        ResolvableType type = ResolvableType.forClass(TrackingResponse.class);
+        DefaultDataBufferFactory factory = DefaultDataBufferFactory.sharedInstance;
+
+        byte[] jackson = join(new Jackson2JsonEncoder(objectMapper)
+                .encode(Flux.fromIterable(responses), factory, type, MediaType.APPLICATION_JSON, Collections.emptyMap()));
+        byte[] template = join(encoder
+                .encode(Flux.fromIterable(responses), factory, type, MediaType.APPLICATION_JSON, Collections.emptyMap()));
+
+        assertArrayEquals(jackson, template);
+    }
+
+    @Test
+    void canEncode_onlyTrackingResponsesAsJson() {
+        ResolvableType type = ResolvableType.forClass(TrackingResponse.class);
+
+        assertTrue(encoder.canEncode(type, MediaType.APPLICATION_JSON));
+        assertTrue(encoder.canEncode(type, null));
+        assertFalse(encoder.canEncode(type, MediaType.APPLICATION_NDJSON));
+        assertFalse(encoder.canEncode(ResolvableType.forClass(Object.class), MediaType.APPLICATION_JSON));
+    }
+
+    private static WebTestClient client(TrackingResponse response, boolean template) {
+        GetNextTrackingNumberUseCase useCase = mock(GetNextTrackingNumberUseCase.class);
+        when(useCase.generateTrackingNumber(any(), any())).thenReturn(Mono.just(response));
+        WebTestClient.ControllerSpec spec = WebTestClient.bindToController(new TrackingController(useCase));
+        if (template) {
+            spec.httpMessageCodecs(codecs -> codecs.customCodecs()
+                    .register(new TrackingResponseEncoder(Jackson2ObjectMapperBuilder.json().build())));
+        }
+        return spec.build();
+    }
+
+    private static EntityExchangeResult<byte[]> get(WebTestClient client) {
+        return client.get().uri(QUERY).exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult();
+    }
+
+    private byte[] encode(TrackingResponse response) {
+        DataBuffer buffer = encoder.encodeValue(response, DefaultDataBufferFactory.sharedInstance,
+                ResolvableType.forClass(TrackingResponse.class), MediaType.APPLICATION_JSON, Collections.emptyMap());
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        return bytes;
+    }
+
+    private static byte[] join(Flux<DataBuffer> buffers) {
+        DataBuffer joined = DataBufferUtils.join(buffers).block();
+        byte[] bytes = new byte[joined.readableByteCount()];
+        joined.read(bytes);
+        return bytes;
+    }
+
+    private static String utf8(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,8 +1,15 @@
 package com.teleport.tracking.services;
 
+import com.teleport.tracking.app.IssuedTrackingNumber;
+import com.teleport.tracking.domain.Base36TrackingNumberEncoder;
+import com.teleport.tracking.domain.CounterBlock;
+import com.teleport.tracking.domain.CounterSpace;
+import com.teleport.tracking.domain.NamespacedTrackingNumberProvider;
 import com.teleport.tracking.domain.TrackingNumberGenerationException;
 import com.teleport.tracking.domain.TrackingNumberProvider;
 import com.teleport.tracking.domain.TrackingServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -35,6 +42,29 @@ class TrackingServiceImplTest {
                 .verifyComplete();
     }
 
+    @Test
+    void issueTrackingNumber_shouldReturnCounterWithItsTrackingNumber() {
+        Mockito.when(trackingNumberProvider.nextCounter()).thenReturn(Mono.just(12345L), Mono.just(12345L));
+
+        IssuedTrackingNumber issued = trackingService.issueTrackingNumber().block();
+
+        Assertions.assertEquals(12345L, issued.counter());
+        Assertions.assertEquals(trackingService.generateTrackingNumber().block(), issued.trackingNumber());
+    }
+
+    @Test
+    void issueTrackingNumber_withNamespace_issuesFromNamespacedProvider() {
+        NamespacedTrackingNumberProvider namespaced = Mockito.mock(NamespacedTrackingNumberProvider.class);
+        long counter = CounterSpace.namespaceCounter(7, 1);
+        Mockito.when(namespaced.nextCounter("customer:acme")).thenReturn(Mono.just(counter));
+        trackingService = new TrackingServiceImpl(trackingNumberProvider, new Base36TrackingNumberEncoder(1L), namespaced);
+
+        IssuedTrackingNumber issued = trackingService.issueTrackingNumber("customer:acme").block();
+
+        Assertions.assertEquals(counter, issued.counter());
+        Mockito.verifyNoInteractions(trackingNumberProvider);
+    }
+
     @Test
     void generateTrackingNumber_shouldPropagateError() {
         RuntimeException error = new RuntimeException("Counter error");
@@ -65,4 +95,65 @@ class TrackingServiceImplTest {
                 })
                 .verifyComplete();
     }
+
+    @Test
+    void generateTrackingNumber_usesConfiguredEncoder() {
+        Base36TrackingNumberEncoder encoder = new Base36TrackingNumberEncoder(1L);
+        trackingService = new TrackingServiceImpl(trackingNumberProvider, encoder);
+        Mockito.when(trackingNumberProvider.nextCounter()).thenReturn(Mono.just(42L));
+
+        StepVerifier.create(trackingService.generateTrackingNumber())
+                .assertNext(trackingNumber -> {
+                    assert trackingNumber.matches("^[A-Z0-9]{1,16}$") : trackingNumber;
+                    assert encoder.decode(trackingNumber) == 42L : trackingNumber;
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void generateTrackingNumbers_encodesEveryCounterOfTheBlock() {
+        Mockito.when(trackingNumberProvider.nextCounters(3)).thenReturn(Mono.just(new CounterBlock(5, 3)));
+
+        StepVerifier.create(trackingService.generateTrackingNumbers(3))
+                .assertNext(trackingNumbers -> {
+                    assert trackingNumbers.size() == 3 : trackingNumbers;
+                    assert trackingNumbers.stream().distinct().count() == 3 : trackingNumbers;
+                    assert trackingNumbers.stream().allMatch(n -> n.matches("^[A-Z0-9]{1,16}$")) : trackingNumbers;
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void generateTrackingNumberChunk_encodesTheChunkTheProviderHandsOut() {
+        Mockito.when(trackingNumberProvider.nextCounterChunk(8)).thenReturn(Mono.just(new CounterBlock(5, 3)));
+
+        StepVerifier.create(trackingService.generateTrackingNumberChunk(8))
+                .assertNext(trackingNumbers -> {
+                    assert trackingNumbers.size() == 3 : trackingNumbers;
+                    assert trackingNumbers.get(0).equals(trackingService.trackingNumberOf(5).trackingNumber()) : trackingNumbers;
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void generateTrackingNumbers_shouldPropagateError() {
+        Mockito.when(trackingNumberProvider.nextCounters(3)).thenReturn(Mono.error(new RuntimeException("Counter error")));
+
+        StepVerifier.create(trackingService.generateTrackingNumbers(3))
+                .expectError(TrackingNumberGenerationException.class)
+                .verify();
+    }
+
+    @Test
+    void generateTrackingNumbers_recordsEncodeTimePerTrackingNumber() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        trackingService.bindTo(registry);
+        Mockito.when(trackingNumberProvider.nextCounter()).thenReturn(Mono.just(1L));
+        Mockito.when(trackingNumberProvider.nextCounters(3)).thenReturn(Mono.just(new CounterBlock(2, 3)));
+
+        StepVerifier.create(trackingService.generateTrackingNumber()).expectNextCount(1).verifyComplete();
+        StepVerifier.create(trackingService.generateTrackingNumbers(3)).expectNextCount(1).verifyComplete();
+
+        Assertions.assertEquals(4, registry.get("tracking.encode").tag("encoder", "SqidsTrackingNumberEncoder").timer().count());
+    }
 }
@@ -0,0 +1,150 @@
+package com.teleport.tracking.infrastructure;
+
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stands in for Redis in tests, benchmarks and the load test, serving every
+ * {@link RedisService} command from a local map. One instance can be shared by
+ * several providers or application instances, which then lease from the same
+ * counters as they would from one Redis.
+ * <p>
+ * Commands can be given a fixed latency, to model the network round trip, and a
+ * service time during which each key serves nothing else, to model a single hot
+ * key. Keys can be made to fail, to model an unreachable shard.
+ */
+public class InMemoryRedisService extends RedisService {
+
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+    private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> increments = new ConcurrentHashMap<>();
+    private final LongAdder totalIncrements = new LongAdder();
+    private final Set<String> failing = ConcurrentHashMap.newKeySet();
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Duration serviceTime = Duration.ZERO;
+
+    public InMemoryRedisService() {
+        super((ReactiveValueOperations<String, String>) null);
+    }
+
+    /**
+     * Delays every command by {@code latency} before it runs.
+     */
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * Makes each key serve its commands one at a time, taking {@code serviceTime} each.
+     */
+    public void setServiceTime(Duration serviceTime) {
+        this.serviceTime = serviceTime;
+    }
+
+    /**
+     * Makes every later command on {@code key} fail as if the connection was refused.
+     */
+    public void fail(String key) {
+        failing.add(key);
+    }
+
+    public void set(String key, long value) {
+        values.put(key, Long.toString(value));
+    }
+
+    /**
+     * The value of the counter at {@code key}, 0 if it was never incremented.
+     */
+    public long counter(String key) {
+        return Long.parseLong(values.getOrDefault(key, "0"));
+    }
+
+    public Set<String> keys() {
+        return Set.copyOf(values.keySet());
+    }
+
+    /**
+     * Number of INCRBY calls made, failed ones included, i.e. lease refreshes across all users.
+     */
+    public long getIncrements() {
+        return totalIncrements.sum();
+    }
+
+    public long getIncrements(String key) {
+        LongAdder calls = increments.get(key);
+        return calls == null ? 0 : calls.sum();
+    }
+
+    @Override
+    public Mono<Long> incrementCounterWithDelta(String key, long delta) {
+        return Mono.defer(() -> {
+            increments.computeIfAbsent(key, k -> new LongAdder()).increment();
+            totalIncrements.increment();
+            return command(key, () -> Long.parseLong(values.merge(key, Long.toString(delta),
+                    (old, d) -> Long.toString(Long.parseLong(old) + Long.parseLong(d)))));
+        });
+    }
+
+    @Override
+    public Mono<String> get(String key) {
+        return command(key, () -> live(key));
+    }
+
+    @Override
+    public Mono<Boolean> setIfAbsent(String key, String value) {
+        return command(key, () -> live(key) == null && values.putIfAbsent(key, value) == null);
+    }
+
+    @Override
+    public Mono<Boolean> setIfAbsent(String key, String value, Duration timeout) {
+        return command(key, () -> {
+            if (live(key) != null || values.putIfAbsent(key, value) != null) {
+                return false;
+            }
+            expiries.put(key, System.nanoTime() + timeout.toNanos());
+            return true;
+        });
+    }
+
+    @Override
+    public Mono<Boolean> releaseCounterTail(String key, long expected, long delta) {
+        return command(key, () -> values.replace(key, Long.toString(expected), Long.toString(expected - delta)));
+    }
+
+    /**
+     * The value at {@code key}, after dropping it if its timeout has passed.
+     */
+    private String live(String key) {
+        Long expiry = expiries.get(key);
+        if (expiry != null && System.nanoTime() - expiry >= 0 && expiries.remove(key, expiry)) {
+            values.remove(key);
+        }
+        return values.get(key);
+    }
+
+    private <T> Mono<T> command(String key, Callable<T> body) {
+        Mono<T> command = Mono.fromCallable(() -> {
+            if (failing.contains(key)) {
+                throw new IllegalStateException("Connection to " + key + " refused");
+            }
+            Duration service = serviceTime;
+            if (service.isZero()) {
+                return body.call();
+            }
+            synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+                Thread.sleep(service.toMillis());
+                return body.call();
+            }
+        });
+        Duration delay = latency;
+        return delay.isZero() ? command : command.delaySubscription(delay);
+    }
+}